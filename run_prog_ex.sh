@@ -2,8 +2,9 @@
 
 CP=lib/wala/dat:lib/wala/com.ibm.wala.core_1.1.3.200805291128.jar:lib/wala/com.ibm.wala.shrike_1.0.0.jar:lib/wala/org.eclipse.core.jobs_3.4.100.v20090429-1800.jar:lib/wala/org.eclipse.core.resources_3.5.2.R35x_v20091203-1235.jar:lib/wala/org.eclipse.core.runtime_3.5.0.v20090525.jar:lib/wala/org.eclipse.equinox.common_3.5.1.R35x_v20090807-1100.jar:lib/wala/org.eclipse.osgi_3.5.2.R35x_v20100126.jar:lib/asm-all-3.3.jar:./build/impl
 
-rm -rf output
-mkdir output
+# keep results of SMT queries from previous runs
+mkdir -p output
+find output -mindepth 1 ! -name smt_query_cache.bin -delete
 
 # these settings are passed to java runtime
 JAVA_OPTS="-Xmx4G -DWALA_HOME=." TOOL_CLASSPATH="-cp lib/wala/dat" scala -cp "$CP" j2bp.Main progtest.ParamTest none build/examples 4 none none none config/Default_Exclusions.txt output > output/gen_progtest_Param.txt 2>&1
@@ -0,0 +1,6 @@
+#!/bin/sh
+
+CP=lib/wala/dat:lib/wala/com.ibm.wala.core_1.1.3.200805291128.jar:lib/wala/com.ibm.wala.shrike_1.0.0.jar:lib/wala/org.eclipse.core.jobs_3.4.100.v20090429-1800.jar:lib/wala/org.eclipse.core.resources_3.5.2.R35x_v20091203-1235.jar:lib/wala/org.eclipse.core.runtime_3.5.0.v20090525.jar:lib/wala/org.eclipse.equinox.common_3.5.1.R35x_v20090807-1100.jar:lib/wala/org.eclipse.osgi_3.5.2.R35x_v20100126.jar:lib/asm-all-3.3.jar:./build/impl
+
+# arguments: query log (e.g., output/paper_Scheduler_smtqueries.log.gz), number of workers, mode (session or process), command and capabilities of the SMT-LIB2 solver used for the log (Yices by default)
+JAVA_OPTS="-Xmx4G" scala -cp "$CP" j2bp.SMTQueryReplay "$@"
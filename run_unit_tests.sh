@@ -0,0 +1,9 @@
+#!/bin/sh
+
+CP=lib/wala/dat:lib/wala/com.ibm.wala.core_1.1.3.200805291128.jar:lib/wala/com.ibm.wala.shrike_1.0.0.jar:lib/wala/org.eclipse.core.jobs_3.4.100.v20090429-1800.jar:lib/wala/org.eclipse.core.resources_3.5.2.R35x_v20091203-1235.jar:lib/wala/org.eclipse.core.runtime_3.5.0.v20090525.jar:lib/wala/org.eclipse.equinox.common_3.5.1.R35x_v20090807-1100.jar:lib/wala/org.eclipse.osgi_3.5.2.R35x_v20100126.jar:lib/asm-all-3.3.jar:./build/impl
+
+# unit tests do not need any external solver, the script fails if some test fails
+for t in test.PooledSMTProviderTest test.SMTLib2SMTProviderTest test.CubeIteratorTest test.SMTStatisticsTest test.PartitionedDecisionTableTest test.PredicateSlicingTest test.PredicateRelationGraphTest test.EqualityPreSolverTest test.CanonicalQueryTest test.PersistentResultCacheTest test.DecisionTableCacheTest
+do
+	scala -cp "$CP" $t || exit 1
+done
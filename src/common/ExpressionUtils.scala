@@ -18,6 +18,9 @@ package common
 import scala.collection.mutable.Map
 import scala.collection.mutable.HashMap
 import scala.util.matching.Regex
+import scala.collection.JavaConverters._
+
+import java.util.concurrent.ConcurrentHashMap
 
 import util.StringUtils
 
@@ -32,7 +35,8 @@ object ExpressionUtils
 	private val fieldAccessRE = new Regex("^[a-zA-Z][a-zA-Z0-9_]*\\.[a-zA-Z][a-zA-Z0-9_\\.]*$")
 	private val funcExprRE = new Regex("^[a-zA-Z][a-zA-Z0-9_]*\\(.*\\)$")
 
-	private var cacheExpr2VarNames : Map[String, Set[String]] = new HashMap
+	// the cache is accessed also from threads of solver workers
+	private var cacheExpr2VarNames : Map[String, Set[String]] = new ConcurrentHashMap[String, Set[String]]().asScala
 
 
 	def isVariableName(exprStr : String) : Boolean =
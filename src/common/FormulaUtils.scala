@@ -18,6 +18,9 @@ package common
 import scala.collection.mutable.Map
 import scala.collection.mutable.HashMap
 import scala.collection.JavaConversions._
+import scala.collection.JavaConverters._
+
+import java.util.concurrent.ConcurrentHashMap
 
 import scala.util.matching.Regex
 
@@ -26,9 +29,10 @@ import util.StringUtils
 
 object FormulaUtils
 {
-	private var cacheForm2VarExprs : Map[String, List[Expression]] = new HashMap
-	private var cacheForm2VarNames : Map[String, Set[String]] = new HashMap
-	private var cacheForm2FieldNames : Map[String, List[String]] = new HashMap
+	// caches are accessed also from threads of solver workers
+	private var cacheForm2VarExprs : Map[String, List[Expression]] = new ConcurrentHashMap[String, List[Expression]]().asScala
+	private var cacheForm2VarNames : Map[String, Set[String]] = new ConcurrentHashMap[String, Set[String]]().asScala
+	private var cacheForm2FieldNames : Map[String, List[String]] = new ConcurrentHashMap[String, List[String]]().asScala
 
 	
 	private val binPredOpRE = new Regex("([<>=\\!]+)\\s*")
@@ -60,6 +60,8 @@ class AbstractionContext
 	
 	private var backtrackLocations : List[(String,Int)] = null
 	
+	private var cartesianMethods : List[String] = null
+	
 	
 	def setProgramClasses(progClasses : List[String]) =
 	{
@@ -236,6 +238,8 @@ class AbstractionContext
 		curMethodData.localRefVarTypes.clear()
 		
 		curMethodData.lastNewType = ""
+		
+		curMethodData.curInsnIndex = -1
 	}
 	
 	def getCurMethodName() : String =
@@ -273,6 +277,16 @@ class AbstractionContext
 		curMethodData.absParamCount = count
 	}
 
+	def setCurInsnIndex(insnIdx : Int) =
+	{
+		curMethodData.curInsnIndex = insnIdx
+	}
+	
+	def getCurInsnIndex() : Int =
+	{
+		return curMethodData.curInsnIndex
+	}
+	
 	def addLabelForInsn(insnIdx : Int) =
 	{
 		if ( ! curMethodData.insn2label.contains(insnIdx) ) curMethodData.insn2label.put(insnIdx, new Label())
@@ -534,6 +548,18 @@ class AbstractionContext
 		return backtrackLocations.contains( (fullMthName, bcPos) )	
 	}
 	
+	def setCartesianAbstractionMethods(fullMthNames : List[String]) =
+	{
+		cartesianMethods = fullMthNames
+	}
+	
+	def isCartesianAbstractionMethod(fullMthName : String) : Boolean =
+	{
+		if (cartesianMethods == null) return false
+		
+		return cartesianMethods.contains(fullMthName)
+	}
+	
 	private def getClassData(clsName : String) : ClassData =
 	{
 		return classname2data.getOrElseUpdate(clsName, new ClassData())
@@ -602,6 +628,9 @@ class AbstractionContext
 		
 		// type of the result of the last the NEW instruction that was processed 
 		var lastNewType = ""
+		
+		// bytecode index of the instruction that is processed
+		var curInsnIndex = -1
 	}
 	
 }
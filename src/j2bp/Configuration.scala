@@ -38,7 +38,25 @@ object Configuration
 	var varScopeDetector : ExecutionVisitor = null
 	
 	
-	val smtProvider : SMTProvider = new YicesSMTProvider
+	// maximal numbers of entries in the in-memory caches of SMT translations and query results (the least recently used entries are evicted), they must be defined before the provider is created
+	val smtTranslationCacheMaxEntries = 200000
+	val smtValidityCacheMaxEntries = 500000
+	
+	// maximal number of entries in the caches of predicates over expressions
+	val predicatesCacheMaxEntries = 100000
+	
+	// maximal number of decision tables of statements in the cache
+	val decisionTableCacheMaxEntries = 50000
+	
+	// number of solver processes that check validity queries concurrently (1 means that all queries are checked sequentially by a single solver)
+	// the pool of solvers (see "PooledSMTProvider") is used only when more workers are set here, and concurrent decision tables and cube evaluation are enabled only with the pool
+	val smtSolverWorkers = 1
+	
+	// minimal number of queries from a batch that one worker of the pool receives together (they are checked in a single solver script)
+	val smtPoolMinChunkSize = 2
+	
+	// Yices is used by default, an external SMT-LIB2 solver can be selected in the settings file (see "createSMTProvider")
+	var smtProvider : SMTProvider = createSMTProvider(null)
 	
 	
 	val printInfoMsgs = true
@@ -53,9 +71,83 @@ object Configuration
 	// determines whether to compute results by (1) processing cubes in the order of increasing size or (2) just considering cubes of the maximal size
 	val processCubesWithIncSize = false
 	
+	// determines whether minimal cubes implying a weakest precondition are derived from unsat cores returned by the solver (true) or found by systematic search through sub-cubes (false)
+	val unsatCoreMinimalCubes = false
+	
+	// determines whether cubes over result-determining predicates are enumerated as models returned by the solver (true) or all of them are generated (false)
+	// models are always used when there are too many result-determining predicates
+	val allSatCubeEnumeration = false
+	
+	// determines whether generated cubes are evaluated concurrently (results are still used in the order of cubes, so the output is the same), it requires a provider that accepts concurrent queries
+	val parallelCubeResolution = false
+	
+	// maximal number of cubes evaluated concurrently in the parallel mode
+	val cubeResolutionThreads = smtSolverWorkers
+	
+	// determines whether decision tables of several predicates updated by a statement are computed concurrently (code is still generated in the same order), it requires a provider that accepts concurrent queries
+	val concurrentDecisionTables = true
+	
+	// maximal number of decision tables computed concurrently
+	val decisionTableThreads = smtSolverWorkers
+	
+	// determines whether result-determining predicates are split into groups without shared symbols, which are resolved separately when the weakest precondition is a conjunction or disjunction of parts over different groups
+	val partitionIndependentPredicates = true
+	
+	// determines whether relations between pairs of predicates are identified once for each method and shared by all statements in the method (syntactic conflicts, and infeasible pairs of literals checked by the solver in batches), so cubes with infeasible pairs are not evaluated
+	val predicateRelationGraph = true
+	
+	// determines whether complete decision tables are reused for statements that differ only in names of variables (at other code locations, in other methods, and for other properties), so that only the code is generated for them
+	val cacheDecisionTables = true
+	
+	// determines whether new truth values of updated predicates are computed in the Cartesian mode for all methods (each literal over result-determining predicates is checked separately, which needs a linear number of queries but loses precision)
+	// the mode can be also selected for individual methods in the settings file ("cartesian=<class>.<method>;...")
+	val cartesianAbstraction = false
+	
+	// result-determining predicates that are not connected with weakest preconditions of updated predicates through shared symbols (directly or via supporting formulas and other predicates) are dropped before cubes are generated
+	val sliceResultDeterminingPredicates = true
+	
+	// determines whether new truth values of updated predicates are computed in the generated code by nested branches of a reduced ordered decision diagram (true) or by a chain of tests for individual cubes (false)
+	val decisionDiagramCodeGen = false
+	
+	// maximal size of a decision diagram, the chain of tests is generated for larger diagrams
+	val maxDecisionDiagramNodes = 10000
+	
 	// collect atomic predicates that make a part of some weakest precondition but are not available in the input set (user-defined or automatically inferred)
 	val collectMissingPredicates = true
 	
+	// determines whether validity queries are sent to one long-running solver process (true) or whether a new solver process is started for each query (false)
+	val smtSessionMode = true
+	
+	// maximal time (in milliseconds) for a single SMT query, 0 means no limit (the result of a query that runs out of time is unknown and it is never considered as valid)
+	val smtQueryTimeoutMS : Long = 30000
+	
+	// maximal time (in milliseconds) spent by SMT queries for a single statement, 0 means no limit (new values of predicates that are not computed in time are chosen nondeterministically)
+	val smtStatementTimeoutMS : Long = 300000
+	
+	// only supporting formulas connected with a query through shared symbols are sent to the solver together with the query
+	val relevantSupportFormulasOnly = true
+	
+	// simple queries (equalities and disequalities over variables, fields, and constants) are decided by congruence closure without running the solver
+	val equalityPreSolver = true
+	
+	// metrics of solver usage are collected for each statement and written into a file in the output directory
+	val collectSMTStatistics = true
+	
+	// every validity query sent to the solver is recorded (with a standalone script, result, latency, and origin) into a compressed file in the output directory, which can be replayed by "SMTQueryReplay"
+	val logSMTQueries = false
+	
+	// log of validity queries (null if it is not used)
+	var smtQueryLog : SMTQueryLog = null
+	
+	// results of validity queries are stored in a file in the output directory and reused by later runs
+	val persistentQueryCache = true
+	
+	// maximal number of results kept in the persistent cache (the oldest results are evicted)
+	val persistentQueryCacheMaxEntries = 2000000
+	
+	// persistent cache of query results (null if it is not used)
+	var queryResultsStore : util.PersistentResultCache = null
+	
 	
 	def init(withContainers : Boolean) =
 	{
@@ -82,4 +174,15 @@ object Configuration
 			varScopeDetector = new DefaultVarScopeDetector
 		}
 	}
+	
+	/**
+	 * Creates the provider for the given external solver, or for Yices when no solver is given (null).
+	 */
+	def createSMTProvider(solverConfig : SMTSolverConfig) : SMTProvider =
+	{
+		val createWorker = if (solverConfig != null) (() => new SMTLib2SMTProvider(solverConfig)) else (() => new YicesSMTProvider)
+		
+		if (smtSolverWorkers > 1) return new PooledSMTProvider(smtSolverWorkers, createWorker)
+		else return createWorker()
+	}
 }
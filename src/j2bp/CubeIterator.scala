@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import scala.collection.immutable.List
+import scala.collection.mutable.Map
+import scala.collection.mutable.HashMap
+
+import common.LogicFormula
+import common.AtomicPredicate
+import common.Negation
+
+
+/**
+ * Enumerates cubes of the maximal size over the result-determining predicates in the order of their combinations, where the first cube contains only negations and the last cube contains all positive predicates.
+ * Cubes with conflicting literals, cubes with some infeasible pair of literals (see "PredicateRelationGraph.getInfeasiblePairs"), ambiguous cubes, and cubes irrelevant with respect to aliasing are skipped.
+ * A combination is encoded by the bit mask of positive predicates (the bit "i" corresponds to the i-th predicate in the list), and the cube object (set of literals) is created only for the returned cubes.
+ * Cubes that include some minimal cube registered by "addMinimalCube" are skipped as well, so they are never created.
+ * A combination excluded by a pattern with fixed literals (conflict, ambiguity, minimal cube) is skipped together with all following combinations that differ from it only in predicates below the first fixed one, so the iterator does not visit them one by one.
+ */
+class CubeIterator (resdetPredList : List[AtomicPredicate], resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], infeasibleLitPairs : Set[Set[LogicFormula]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]]) extends Iterator[Set[LogicFormula]]
+{
+	private val predicates = resdetPredList.toArray
+	
+	private val negations = predicates.map(p => new Negation(p))
+	
+	private val pred2index : Map[AtomicPredicate, Int] = new HashMap
+	
+	for (i <- 0 until predicates.length) pred2index.getOrElseUpdate(predicates(i), i)
+	
+	private val maxCombinations : Long = 1L << predicates.length
+	
+	
+	// each conflict pattern contains flags of positive literals and flags of negative literals
+	private var patternsConflictLits = List[(Long, Long)]()
+	
+	for ( (resPred, conflictingTuples) <- resdetpred2conflicts )
+	{
+		for (cfLitTuple <- conflictingTuples)
+		{
+			val cfMasks = getLiteralMasks(cfLitTuple + resPred)
+			
+			if (cfMasks != null) patternsConflictLits = patternsConflictLits :+ cfMasks
+		}
+	}
+	
+	// infeasible pairs over other predicates are ignored
+	for (litPair <- infeasibleLitPairs)
+	{
+		val cfMasks = getLiteralMasks(litPair)
+		
+		if (cfMasks != null) patternsConflictLits = patternsConflictLits :+ cfMasks
+	}
+	
+	// for each temporary variable, flags of predicates that would make a cube unambiguous (some of them must be positive)
+	private var flagsUnambigPreds = List[Long]()
+	
+	for ( (tempVarName, unambgIndexes) <- Configuration.predicateSemModel.getIndexesForUnambiguousPredicates(resdetPredList, tempvar2eqlpreds) )
+	{
+		flagsUnambigPreds = flagsUnambigPreds :+ unambgIndexes.foldLeft(0L)( (flags, idx) => flags | (1L << idx) )
+	}
+	
+	// flag of the aliasing predicate and flags of relevant predicates (they cannot be positive when the aliasing predicate is negative)
+	private var patternsAliasRelevPreds = List[(Long, Long)]()
+	
+	for ( (aliasingPredIdx, relevantPredIndexes) <- Configuration.predicateSemModel.getIndexesForAliasingRelevantPredicates(resdetPredList, alias2relevantpreds) )
+	{
+		patternsAliasRelevPreds = patternsAliasRelevPreds :+ ( (1L << aliasingPredIdx, relevantPredIndexes.foldLeft(0L)( (flags, idx) => flags | (1L << idx) )) )
+	}
+	
+	
+	// already found minimal cubes
+	private val minimalCubes = new CubeIterator.SubsumptionTrie()
+	
+	// combination that will be returned next (-1 if it has not been found yet)
+	private var nextCmb : Long = -1
+	
+	// the first combination that was not examined yet
+	private var curCmb : Long = 0
+	
+	
+	def hasNext() : Boolean =
+	{
+		if (nextCmb >= 0) return true
+		
+		while (curCmb < maxCombinations)
+		{
+			val cmb = curCmb
+			
+			val excludingMask = getExcludingMask(cmb)
+			
+			if (excludingMask >= 0)
+			{
+				// all combinations that differ from this one only in predicates below the first fixed predicate are excluded too
+				curCmb = skipExcludedRange(cmb, excludingMask)
+			}
+			else
+			{
+				curCmb += 1
+				
+				if (isRelevantForAliasing(cmb))
+				{
+					nextCmb = cmb
+					return true
+				}
+			}
+		}
+		
+		return false
+	}
+	
+	def next() : Set[LogicFormula] =
+	{
+		if ( ! hasNext() ) throw new NoSuchElementException()
+		
+		val cmb = nextCmb
+		
+		nextCmb = -1
+		
+		var cube = Set[LogicFormula]()
+		
+		for (i <- 0 until predicates.length)
+		{
+			if ((cmb & (1L << i)) != 0) cube = cube + predicates(i)
+			else cube = cube + negations(i)
+		}
+		
+		return cube
+	}
+	
+	/**
+	 * Remaining cubes that include the given cube will be skipped.
+	 */
+	def addMinimalCube(minCube : Set[LogicFormula]) =
+	{
+		val masks = getLiteralMasks(minCube)
+		
+		// a cube with other formulas is not included in any cube over the result-determining predicates
+		if (masks != null) minimalCubes.add(masks._1, masks._2)
+	}
+	
+	/**
+	 * Returns true if the cube (returned by this iterator) includes some registered minimal cube.
+	 */
+	def isPruned(cube : Set[LogicFormula]) : Boolean =
+	{
+		val masks = getLiteralMasks(cube)
+		
+		return (masks != null) && minimalCubes.subsumes(masks._1)
+	}
+	
+	/**
+	 * Returns the number of combinations that were not examined yet (some of them will be skipped).
+	 */
+	def getRemainingCombinations() : Long =
+	{
+		return maxCombinations - curCmb + (if (nextCmb >= 0) 1 else 0)
+	}
+	
+	
+	/**
+	 * Returns flags of predicates fixed by some conflict pattern, ambiguity pattern, or minimal cube that excludes the combination (-1 if there is no such pattern).
+	 * When more patterns exclude the combination, the one whose first fixed predicate has the greatest index is chosen, because it excludes the longest range of combinations.
+	 */
+	private def getExcludingMask(cmb : Long) : Long =
+	{
+		var bestMask : Long = -1
+		
+		for ( (posFlags, negFlags) <- patternsConflictLits )
+		{
+			if (((cmb & posFlags) == posFlags) && ((cmb & negFlags) == 0)) bestMask = CubeIterator.selectLongerRange(bestMask, posFlags | negFlags)
+		}
+		
+		for (unambigFlags <- flagsUnambigPreds)
+		{
+			if ((cmb & unambigFlags) == 0) bestMask = CubeIterator.selectLongerRange(bestMask, unambigFlags)
+		}
+		
+		return CubeIterator.selectLongerRange(bestMask, minimalCubes.findSubsumingMask(cmb))
+	}
+	
+	/**
+	 * Returns the first combination after the given one that differs from it in some fixed predicate (all combinations in between match the same pattern).
+	 */
+	private def skipExcludedRange(cmb : Long, fixedMask : Long) : Long =
+	{
+		// a pattern without literals excludes everything
+		if (fixedMask == 0) return maxCombinations
+		
+		val lowestFixedFlag = fixedMask & (-fixedMask)
+		
+		return (cmb | (lowestFixedFlag - 1)) + 1
+	}
+	
+	/**
+	 * Checks whether relevant predicates are positive only when the aliasing predicate is positive.
+	 */
+	private def isRelevantForAliasing(cmb : Long) : Boolean =
+	{
+		for ( (aliasPredFlag, relevPredFlags) <- patternsAliasRelevPreds )
+		{
+			if (((cmb & aliasPredFlag) == 0) && ((cmb & relevPredFlags) != 0)) return false
+		}
+		
+		return true
+	}
+	
+	/**
+	 * Returns flags of positive literals and flags of negative literals, or null if some formula is not a literal over the result-determining predicates.
+	 */
+	private def getLiteralMasks(literals : Set[LogicFormula]) : (Long, Long) =
+	{
+		var posMask : Long = 0
+		var negMask : Long = 0
+		
+		for (lit <- literals)
+		{
+			val positive = ! lit.isInstanceOf[Negation]
+			
+			val pred = if (positive) lit else lit.asInstanceOf[Negation].clause
+			
+			if ( ! pred.isInstanceOf[AtomicPredicate] ) return null
+			
+			val idxOpt = pred2index.get(pred.asInstanceOf[AtomicPredicate])
+			
+			if (idxOpt == None) return null
+			
+			if (positive) posMask = posMask | (1L << idxOpt.get)
+			else negMask = negMask | (1L << idxOpt.get)
+		}
+		
+		return (posMask, negMask)
+	}
+}
+
+object CubeIterator
+{
+	/**
+	 * Stores cubes given by flags of positive and negative literals, and finds whether some stored cube is included in a given combination.
+	 * Literals of each cube are inserted in the order of predicate indexes, so cubes with common prefixes share nodes.
+	 */
+	class SubsumptionTrie
+	{
+		private class Node
+		{
+			// the path from the root to this node is a stored cube
+			var terminal = false
+			
+			// keys are literal codes (two times the predicate index, plus one for positive literals)
+			val children : Map[Int, Node] = new HashMap
+		}
+		
+		private val root = new Node()
+		
+		
+		def add(posMask : Long, negMask : Long) =
+		{
+			var node = root
+			
+			for (i <- 0 until 64 if ( ! node.terminal ))
+			{
+				if ((posMask & (1L << i)) != 0) node = node.children.getOrElseUpdate(2 * i + 1, new Node())
+				else if ((negMask & (1L << i)) != 0) node = node.children.getOrElseUpdate(2 * i, new Node())
+			}
+			
+			// when some prefix is already stored, the longer cube is redundant
+			node.terminal = true
+		}
+		
+		/**
+		 * Returns true if some stored cube is included in the cube that contains the positive literals given by the combination and negations of all other predicates.
+		 */
+		def subsumes(cmb : Long) : Boolean =
+		{
+			return findSubsumingMask(cmb) >= 0
+		}
+		
+		/**
+		 * Returns flags of predicates in some stored cube that is included in the cube given by the combination (-1 if there is no such stored cube).
+		 * The stored cube whose first literal has the greatest predicate index is chosen.
+		 */
+		def findSubsumingMask(cmb : Long) : Long =
+		{
+			return findSubsumingMask(root, cmb, 0)
+		}
+		
+		private def findSubsumingMask(node : Node, cmb : Long, pathMask : Long) : Long =
+		{
+			if (node.terminal) return pathMask
+			
+			var bestMask : Long = -1
+			
+			for ( (litCode, child) <- node.children )
+			{
+				val positive = ((litCode % 2) == 1)
+				
+				val predFlag = 1L << (litCode / 2)
+				
+				if (((cmb & predFlag) != 0) == positive) bestMask = selectLongerRange(bestMask, findSubsumingMask(child, cmb, pathMask | predFlag))
+			}
+			
+			return bestMask
+		}
+	}
+	
+	/**
+	 * Returns the mask (flags of fixed predicates) whose lowest fixed predicate has the greater index, where -1 means no mask.
+	 */
+	def selectLongerRange(mask1 : Long, mask2 : Long) : Long =
+	{
+		if (mask1 < 0) return mask2
+		if (mask2 < 0) return mask1
+		
+		// lower flags give shorter ranges, and the empty mask excludes all combinations
+		if (mask1 == 0 || mask2 == 0) return 0
+		
+		if ((mask1 & (-mask1)) >= (mask2 & (-mask2))) return mask1
+		else return mask2
+	}
+}
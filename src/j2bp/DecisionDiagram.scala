@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import scala.collection.immutable.List
+import scala.collection.mutable.Map
+import scala.collection.mutable.HashMap
+
+
+/**
+ * Reduced ordered decision diagram over boolean variables with integer results in the terminal nodes.
+ * The function is given by a list of rules, where each rule consists of literals (variable and its value) and the result. The first rule whose literals hold determines the result, and the default result is used when no rule applies.
+ * Variables are ordered by the number of rules that test them (the most frequently tested variable is at the top).
+ * Building stops when the number of sub-tables exceeds the given limit, and then the diagram is not complete.
+ */
+class DecisionDiagram (rules : List[(List[(String, Boolean)], Int)], defaultResult : Int, maxNodes : Int)
+{
+	val variables : Array[String] = orderVariables()
+	
+	private val var2index : Map[String, Int] = new HashMap
+	
+	for (i <- 0 until variables.length) var2index.put(variables(i), i)
+	
+	
+	// each internal node is identified by the variable and both successors
+	private val uniqueNodes : Map[(Int, DecisionDiagram.Node, DecisionDiagram.Node), DecisionDiagram.Node] = new HashMap
+	
+	private val result2terminal : Map[Int, DecisionDiagram.Node] = new HashMap
+	
+	// sub-tables (remaining rules for some values of the top variables) that were already processed
+	private val table2node : Map[List[(List[(Int, Boolean)], Int)], DecisionDiagram.Node] = new HashMap
+	
+	private var complete = true
+	
+	val root : DecisionDiagram.Node = build(encodeRules())
+	
+	
+	def isComplete() : Boolean =
+	{
+		return complete
+	}
+	
+	/**
+	 * Returns the number of internal nodes.
+	 */
+	def getNodeCount() : Int =
+	{
+		return uniqueNodes.size
+	}
+	
+	
+	private def orderVariables() : Array[String] =
+	{
+		val var2count : Map[String, Int] = new HashMap
+		
+		var varList = List[String]()
+		
+		for ( (lits, res) <- rules ; (v, value) <- lits )
+		{
+			if ( ! var2count.contains(v) ) varList = varList :+ v
+			
+			var2count.put(v, var2count.getOrElse(v, 0) + 1)
+		}
+		
+		// the order of first occurrence is kept for variables tested by the same number of rules
+		return varList.zipWithIndex.sortBy(vi => (- var2count(vi._1), vi._2)).map(_._1).toArray
+	}
+	
+	/**
+	 * Literals of each rule are sorted by the order of variables. Rules with contradicting literals are dropped, because they never apply.
+	 */
+	private def encodeRules() : List[(List[(Int, Boolean)], Int)] =
+	{
+		var encRules = List[(List[(Int, Boolean)], Int)]()
+		
+		for ( (lits, res) <- rules )
+		{
+			val encLits = lits.map(lit => (var2index(lit._1), lit._2)).distinct.sortBy(_._1)
+			
+			var contradicting = false
+			
+			for (i <- 1 until encLits.size if (encLits(i)._1 == encLits(i-1)._1)) contradicting = true
+			
+			if ( ! contradicting ) encRules = encRules :+ (encLits, res)
+		}
+		
+		return dropUnreachableRules(encRules)
+	}
+	
+	private def build(table : List[(List[(Int, Boolean)], Int)]) : DecisionDiagram.Node =
+	{
+		if (table.isEmpty) return getTerminal(defaultResult)
+		
+		if (table.head._1.isEmpty) return getTerminal(table.head._2)
+		
+		if (table.forall(_._2 == defaultResult)) return getTerminal(defaultResult)
+		
+		val nodeOpt = table2node.get(table)
+		
+		if (nodeOpt != None) return nodeOpt.get
+		
+		if (table2node.size >= maxNodes)
+		{
+			complete = false
+			return getTerminal(defaultResult)
+		}
+		
+		// the top variable among those tested by remaining rules
+		var varIdx = variables.length
+		
+		for ( (lits, res) <- table if (lits.size > 0) ) varIdx = math.min(varIdx, lits.head._1)
+		
+		val lowNode = build(restrict(table, varIdx, false))
+		val highNode = build(restrict(table, varIdx, true))
+		
+		var node = lowNode
+		
+		if (lowNode ne highNode) node = uniqueNodes.getOrElseUpdate( (varIdx, lowNode, highNode), new DecisionDiagram.Node(varIdx, lowNode, highNode, 0) )
+		
+		table2node.put(table, node)
+		
+		return node
+	}
+	
+	/**
+	 * Returns the rules that may apply when the variable has the given value (without literals for the variable).
+	 */
+	private def restrict(table : List[(List[(Int, Boolean)], Int)], varIdx : Int, value : Boolean) : List[(List[(Int, Boolean)], Int)] =
+	{
+		var newTable = List[(List[(Int, Boolean)], Int)]()
+		
+		for ( (lits, res) <- table )
+		{
+			if (lits.isEmpty || (lits.head._1 != varIdx)) newTable = newTable :+ (lits, res)
+			else if (lits.head._2 == value) newTable = newTable :+ (lits.tail, res)
+		}
+		
+		return dropUnreachableRules(newTable)
+	}
+	
+	/**
+	 * Rules after the first rule without literals never apply.
+	 */
+	private def dropUnreachableRules(table : List[(List[(Int, Boolean)], Int)]) : List[(List[(Int, Boolean)], Int)] =
+	{
+		val firstIdx = table.indexWhere(_._1.isEmpty)
+		
+		if (firstIdx < 0) return table
+		
+		return table.take(firstIdx + 1)
+	}
+	
+	private def getTerminal(result : Int) : DecisionDiagram.Node =
+	{
+		return result2terminal.getOrElseUpdate(result, new DecisionDiagram.Node(-1, null, null, result))
+	}
+}
+
+object DecisionDiagram
+{
+	/**
+	 * Internal node tests the variable with the given index, and it has the successor for the value false (low) and the successor for the value true (high).
+	 * Terminal node has no variable (the index is -1) and it holds the result (the result of an internal node is not used).
+	 */
+	class Node (val varIndex : Int, val low : Node, val high : Node, val result : Int)
+	{
+		def isTerminal() : Boolean =
+		{
+			return varIndex < 0
+		}
+	}
+}
@@ -30,15 +30,28 @@ import common.UnaryPredicate
 import common.ExpressionUtils
 import common.FormulaUtils
 
+import util.UnionFind
+
 
 class DefaultPredicateSemanticsModel extends PredicateSemanticsModel
 {
 	protected var supportFormulas = Set[LogicFormula]()
 	
+	// index of supporting formulas by symbols (it is built when needed and dropped when the set of supporting formulas changes)
+	protected var symbol2supportForms : Map[String, Set[LogicFormula]] = null
+	protected var supportForm2symbols : Map[LogicFormula, Set[String]] = null
+	
+	// supporting formulas without symbols
+	protected var globalSupportForms = Set[LogicFormula]()
+	
+	protected val cacheSymbols2RelevantSupportForms : Map[Set[String], Set[LogicFormula]] = new HashMap
+	
 	
 	def addSupportFormula(form : LogicFormula) =
 	{
 		supportFormulas = supportFormulas + form
+		
+		dropSupportFormulasIndex()
 	}
 	
 	def getSupportFormulas() : Set[LogicFormula] =
@@ -46,6 +59,238 @@ class DefaultPredicateSemanticsModel extends PredicateSemanticsModel
 		return supportFormulas
 	}
 	
+	def getRelevantSupportFormulas(forms : Set[LogicFormula]) : Set[LogicFormula] = synchronized
+	{
+		if ( ! Configuration.relevantSupportFormulasOnly ) return supportFormulas
+		
+		if (symbol2supportForms == null) buildSupportFormulasIndex()
+		
+		var seedSymbols = Set[String]()
+		
+		for (form <- forms) seedSymbols = seedSymbols ++ extractSymbols(form)
+		
+		val cachedFormsOpt = cacheSymbols2RelevantSupportForms.get(seedSymbols)
+		
+		if (cachedFormsOpt != None) return cachedFormsOpt.get
+		
+		
+		// we follow shared symbols from the given formulas to supporting formulas and from them to other supporting formulas
+		
+		var relevantForms = globalSupportForms
+		
+		var visitedSymbols = seedSymbols
+		
+		var pendingSymbols = seedSymbols.toList
+		
+		while (pendingSymbols.size > 0)
+		{
+			val symbol = pendingSymbols.head
+			pendingSymbols = pendingSymbols.tail
+			
+			for (supForm <- symbol2supportForms.getOrElse(symbol, Set[LogicFormula]()) if ( ! relevantForms.contains(supForm) ))
+			{
+				relevantForms = relevantForms + supForm
+				
+				for (newSymbol <- supportForm2symbols(supForm) if ( ! visitedSymbols.contains(newSymbol) ))
+				{
+					visitedSymbols = visitedSymbols + newSymbol
+					pendingSymbols = newSymbol :: pendingSymbols
+				}
+			}
+		}
+		
+		if (Main.DEBUG) println("[DEBUG DefaultPredicateSemanticsModel.getRelevantSupportFormulas] relevant supporting formulas: " + relevantForms.size + " of " + supportFormulas.size)
+		
+		// the solver can keep the same background for queries about different statements only when it gets the whole set, so we prefer it unless the relevant subset is much smaller
+		if (relevantForms.size * DefaultPredicateSemanticsModel.MIN_SUPPORT_FORMULAS_REDUCTION > supportFormulas.size) relevantForms = supportFormulas
+		
+		cacheSymbols2RelevantSupportForms.put(seedSymbols, relevantForms)
+		
+		return relevantForms
+	}
+	
+	def getInfluencingPredicates(forms : Set[LogicFormula], candidatePreds : Set[AtomicPredicate], connectingForms : Set[LogicFormula]) : Set[AtomicPredicate] = synchronized
+	{
+		if (symbol2supportForms == null) buildSupportFormulasIndex()
+		
+		// logic variables are matched with arbitrary expressions, so formulas that contain them may depend on any predicate
+		if (forms.exists(containsLogicVariable) || connectingForms.exists(containsLogicVariable)) return candidatePreds
+		
+		var influencingPreds = Set[AtomicPredicate]()
+		
+		val symbol2candidates : Map[String, Set[AtomicPredicate]] = new HashMap
+		val candidate2symbols : Map[AtomicPredicate, Set[String]] = new HashMap
+		
+		for (candPred <- candidatePreds)
+		{
+			val symbols = extractDependencySymbols(candPred)
+			
+			candidate2symbols.put(candPred, symbols)
+			
+			if (symbols.size == 0) influencingPreds = influencingPreds + candPred
+			
+			for (symbol <- symbols) symbol2candidates.put(symbol, symbol2candidates.getOrElse(symbol, Set[AtomicPredicate]()) + candPred)
+		}
+		
+		// connecting formulas are followed like supporting formulas
+		
+		val symbol2connectingForms : Map[String, Set[LogicFormula]] = new HashMap
+		val connectingForm2symbols : Map[LogicFormula, Set[String]] = new HashMap
+		
+		for (connForm <- connectingForms)
+		{
+			val symbols = extractDependencySymbols(connForm)
+			
+			connectingForm2symbols.put(connForm, symbols)
+			
+			for (symbol <- symbols) symbol2connectingForms.put(symbol, symbol2connectingForms.getOrElse(symbol, Set[LogicFormula]()) + connForm)
+		}
+		
+		
+		// we follow shared symbols from the given formulas to supporting formulas and candidate predicates, and from them to other symbols
+		
+		var visitedSymbols = Set[String]()
+		
+		for (form <- forms) visitedSymbols = visitedSymbols ++ extractDependencySymbols(form)
+		
+		var pendingSymbols = visitedSymbols.toList
+		
+		var visitedSupportForms = Set[LogicFormula]()
+		
+		while (pendingSymbols.size > 0)
+		{
+			val symbol = pendingSymbols.head
+			pendingSymbols = pendingSymbols.tail
+			
+			var newSymbols = Set[String]()
+			
+			for (supForm <- symbol2supportForms.getOrElse(symbol, Set[LogicFormula]()) if ( ! visitedSupportForms.contains(supForm) ))
+			{
+				if (containsLogicVariable(supForm)) return candidatePreds
+				
+				visitedSupportForms = visitedSupportForms + supForm
+				
+				newSymbols = newSymbols ++ supportForm2symbols(supForm)
+			}
+			
+			for (connForm <- symbol2connectingForms.getOrElse(symbol, Set[LogicFormula]()) if ( ! visitedSupportForms.contains(connForm) ))
+			{
+				visitedSupportForms = visitedSupportForms + connForm
+				
+				newSymbols = newSymbols ++ connectingForm2symbols(connForm)
+			}
+			
+			for (candPred <- symbol2candidates.getOrElse(symbol, Set[AtomicPredicate]()) if ( ! influencingPreds.contains(candPred) ))
+			{
+				if (containsLogicVariable(candPred)) return candidatePreds
+				
+				influencingPreds = influencingPreds + candPred
+				
+				newSymbols = newSymbols ++ candidate2symbols(candPred)
+			}
+			
+			for (newSymbol <- newSymbols if ( ! visitedSymbols.contains(newSymbol) ))
+			{
+				visitedSymbols = visitedSymbols + newSymbol
+				pendingSymbols = newSymbol :: pendingSymbols
+			}
+		}
+		
+		return influencingPreds
+	}
+	
+	def getIndependentGroups(forms : List[LogicFormula], connectingForms : Set[LogicFormula]) : List[Int] =
+	{
+		// logic variables are matched with arbitrary expressions, so formulas that contain them may depend on any other formula
+		if (forms.exists(containsLogicVariable)) return forms.map(form => 0)
+		
+		val symbolSets = new UnionFind[String]()
+		
+		for (form <- forms.toSet ++ connectingForms)
+		{
+			val symbols = extractDependencySymbols(form)
+			
+			if (symbols.size > 1) for (symbol <- symbols.tail) symbolSets.union(symbols.head, symbol)
+		}
+		
+		// groups are numbered in the order of their first formulas
+		
+		val root2group : Map[String, Int] = new HashMap
+		
+		var groups = List[Int]()
+		
+		for (form <- forms)
+		{
+			val symbols = extractDependencySymbols(form)
+			
+			if (symbols.size == 0) groups = groups :+ PredicateSemanticsModel.NO_GROUP
+			else groups = groups :+ root2group.getOrElseUpdate(symbolSets.find(symbols.head), root2group.size)
+		}
+		
+		return groups
+	}
+	
+	protected def buildSupportFormulasIndex() =
+	{
+		symbol2supportForms = new HashMap
+		supportForm2symbols = new HashMap
+		
+		globalSupportForms = Set[LogicFormula]()
+		
+		for (supForm <- supportFormulas)
+		{
+			val symbols = extractSymbols(supForm)
+			
+			supportForm2symbols.put(supForm, symbols)
+			
+			if (symbols.size == 0) globalSupportForms = globalSupportForms + supForm
+			
+			for (symbol <- symbols) symbol2supportForms.put(symbol, symbol2supportForms.getOrElse(symbol, Set[LogicFormula]()) + supForm)
+		}
+	}
+	
+	protected def dropSupportFormulasIndex() =
+	{
+		symbol2supportForms = null
+		supportForm2symbols = null
+		
+		globalSupportForms = Set[LogicFormula]()
+		
+		cacheSymbols2RelevantSupportForms.clear()
+	}
+	
+	/**
+	 * Reserved names (e.g., built-in functions and constants) are shared by almost all formulas, and therefore they are not considered as symbols here.
+	 */
+	protected def extractSymbols(form : LogicFormula) : Set[String] =
+	{
+		var symbols = Set[String]()
+		
+		for (name <- FormulaUtils.extractVariableNames(form) ++ FormulaUtils.extractFieldNames(form))
+		{
+			if ( ! Configuration.predicatesMngr.isReservedName(name) ) symbols = symbols + name
+		}
+		
+		return symbols
+	}
+	
+	/**
+	 * Symbols that determine dependencies between formulas. Temporary variables are included even if their names are reserved (e.g., variables used by container operations), because they connect predicates with weakest preconditions.
+	 */
+	protected def extractDependencySymbols(form : LogicFormula) : Set[String] =
+	{
+		var symbols = extractSymbols(form)
+		
+		for (name <- FormulaUtils.extractVariableNames(form) if ExpressionUtils.isTemporaryVariable(name)) symbols = symbols + name
+		
+		return symbols
+	}
+	
+	protected def containsLogicVariable(form : LogicFormula) : Boolean =
+	{
+		return FormulaUtils.extractVariableNames(form).exists(name => ExpressionUtils.isLogicVariable(name))
+	}
+	
 	def derivePermanentSupportingFormulas() = 
 	{
 	}
@@ -61,7 +306,7 @@ class DefaultPredicateSemanticsModel extends PredicateSemanticsModel
 	}
 	
 	
-	def getConflictingLiterals(headPred : AtomicPredicate, resdetPredSet : Set[AtomicPredicate], weakPrecond : LogicFormula, curClassOrigName : String, curMethodName : String) : Set[Set[LogicFormula]] =
+	def getConflictingLiterals(headPred : AtomicPredicate, resdetPredSet : Set[AtomicPredicate], curClassOrigName : String, curMethodName : String) : Set[Set[LogicFormula]] =
 	{
 		var conflictingTuples = Set[Set[LogicFormula]]()
 		
@@ -358,5 +603,13 @@ class DefaultPredicateSemanticsModel extends PredicateSemanticsModel
 	def clearAll() =
 	{
 		supportFormulas = Set[LogicFormula]()
+		
+		dropSupportFormulasIndex()
 	}
 }
+
+object DefaultPredicateSemanticsModel
+{
+	// the subset of relevant supporting formulas is used only if the whole set is at least this many times larger
+	val MIN_SUPPORT_FORMULAS_REDUCTION = 2
+}
@@ -30,6 +30,7 @@ import common.ExpressionUtils
 import common.FormulaUtils
 
 import util.StringUtils
+import util.BoundedCache
 
 
 class DefaultPredicatesManager extends PredicatesManager
@@ -41,8 +42,8 @@ class DefaultPredicatesManager extends PredicatesManager
 	// map from (full method name, predicate) to tuples (start bytecode index, end bytecode index)
 	protected var mthpred2bcindexes : Map[(String, AtomicPredicate), List[(Int,Int)]] = new HashMap
 	
-	protected val cacheCMExprStr2Pred : Map[String, Set[AtomicPredicate]] = new HashMap
-	protected val cacheCMOperand2Pred : Map[String, Set[AtomicPredicate]] = new HashMap
+	protected val cacheCMExprStr2Pred = new BoundedCache[String, Set[AtomicPredicate]]("exprStr2Preds", Configuration.predicatesCacheMaxEntries)
+	protected val cacheCMOperand2Pred = new BoundedCache[String, Set[AtomicPredicate]]("operand2Preds", Configuration.predicatesCacheMaxEntries)
 	protected var cacheAliasingPreds : Set[AtomicPredicate] = null 
 	
 	protected var missingPredicates = Set[AtomicPredicate]()
@@ -550,17 +551,17 @@ class DefaultPredicatesManager extends PredicatesManager
 		return false
 	}
 	
-	def recordMissingPredicate(pred : AtomicPredicate) =
+	def recordMissingPredicate(pred : AtomicPredicate) = synchronized
 	{
 		missingPredicates = missingPredicates + pred
 	}
 	
-	def getMissingPredicates() : Set[AtomicPredicate] =
+	def getMissingPredicates() : Set[AtomicPredicate] = synchronized
 	{
 		return missingPredicates	
 	}
 	
-	def clearMissingPredicates() =
+	def clearMissingPredicates() = synchronized
 	{
 		missingPredicates = Set[AtomicPredicate]()	
 	}
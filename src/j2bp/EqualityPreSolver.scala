@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import scala.collection.immutable.List
+import scala.collection.mutable.Map
+import scala.collection.mutable.HashMap
+import scala.collection.mutable.ArrayBuffer
+import scala.collection.mutable.ListBuffer
+
+import common.LogicFormula
+import common.BinaryPredicate
+import common.Negation
+import common.Conjunction
+import common.Disjunction
+import common.Expression
+import common.FunctionExpression
+import common.ArithmeticExpression
+import common.Constants
+import common.ExpressionUtils
+
+
+/**
+ * Decides simple validity queries without the external solver.
+ * Literals "e1 = e2" and "e1 != e2" are processed by congruence closure over terms, where fields and other functions are uninterpreted and different numeric constants have different values.
+ * Other formulas are ignored. Therefore the procedure can prove validity of any query, but it says that a query is not valid only when all formulas are conjunctions of such literals over terms without arithmetic and without boolean values.
+ */
+class EqualityPreSolver
+{
+	/**
+	 * Returns Some(true) if the formula "(forms[1] and ... and forms[N]) => weakPrecond" is valid, Some(false) if it is not valid, and None if the procedure cannot decide.
+	 */
+	def checkValidity(weakPrecond : LogicFormula, forms : Set[LogicFormula]) : Option[Boolean] =
+	{
+		// the negated weakest precondition in the form of a disjunction of alternatives (each alternative is a conjunction of literals)
+
+		var negWPAlternatives = List[List[(Boolean, BinaryPredicate)]]()
+
+		if (isLiteral(weakPrecond))
+		{
+			negWPAlternatives = List(List(negateLiteral(toLiteral(weakPrecond))))
+		}
+		else if (weakPrecond.isInstanceOf[Conjunction] && weakPrecond.asInstanceOf[Conjunction].clauses.forall(isLiteral))
+		{
+			for (cl <- weakPrecond.asInstanceOf[Conjunction].clauses) negWPAlternatives = negWPAlternatives :+ List(negateLiteral(toLiteral(cl)))
+		}
+		else if (weakPrecond.isInstanceOf[Disjunction] && weakPrecond.asInstanceOf[Disjunction].clauses.forall(isLiteral))
+		{
+			negWPAlternatives = List(weakPrecond.asInstanceOf[Disjunction].clauses.map(cl => negateLiteral(toLiteral(cl))))
+		}
+		else
+		{
+			return None
+		}
+
+		val literals = new ListBuffer[(Boolean, BinaryPredicate)]()
+
+		var allFormsUsed = true
+
+		for (form <- forms)
+		{
+			if ( ! collectLiterals(form, literals) ) allFormsUsed = false
+		}
+
+		val boolFunctions = getBooleanFunctionNames()
+
+		var undecided = false
+
+		for (alt <- negWPAlternatives)
+		{
+			val closure = new CongruenceClosure(boolFunctions)
+
+			if (closure.isSatisfiable(literals.toList ++ alt))
+			{
+				// we found a model of the literals, which is a model of the whole negated implication only if nothing was ignored
+				if (allFormsUsed && ( ! closure.hasInterpretedTerms )) return Some(false)
+
+				undecided = true
+			}
+		}
+
+		if (undecided) return None
+
+		return Some(true)
+	}
+
+
+	/**
+	 * Reserved functions with boolean values (their applications have only two possible values, so that disequalities between them may be unsatisfiable).
+	 * Reserved variables and all program variables are integers in the input for the SMT solver.
+	 */
+	private def getBooleanFunctionNames() : Set[String] =
+	{
+		if (Configuration.predicatesMngr == null) return Set[String]()
+
+		return Configuration.predicatesMngr.getReservedFunctionSignatures().filter(_._3 == "bool").map(_._1).toSet
+	}
+
+	/**
+	 * Adds literals of the formula into the list and returns false if some part of the formula was ignored.
+	 */
+	private def collectLiterals(form : LogicFormula, literals : ListBuffer[(Boolean, BinaryPredicate)]) : Boolean =
+	{
+		if (isLiteral(form))
+		{
+			literals += toLiteral(form)
+
+			return true
+		}
+
+		if (form.isInstanceOf[Conjunction])
+		{
+			var complete = true
+
+			for (cl <- form.asInstanceOf[Conjunction].clauses)
+			{
+				if ( ! collectLiterals(cl, literals) ) complete = false
+			}
+
+			return complete
+		}
+
+		return false
+	}
+
+	private def isLiteral(form : LogicFormula) : Boolean =
+	{
+		if (form.isInstanceOf[BinaryPredicate])
+		{
+			val binPred = form.asInstanceOf[BinaryPredicate]
+
+			return (binPred.op == "=") || (binPred.op == "!=")
+		}
+
+		if (form.isInstanceOf[Negation]) return isLiteral(form.asInstanceOf[Negation].clause)
+
+		return false
+	}
+
+	/**
+	 * Returns the literal as a pair (positive, predicate), where the predicate has the operator "=" and "positive" is false for disequalities.
+	 */
+	private def toLiteral(form : LogicFormula) : (Boolean, BinaryPredicate) =
+	{
+		if (form.isInstanceOf[Negation]) return negateLiteral(toLiteral(form.asInstanceOf[Negation].clause))
+
+		val binPred = form.asInstanceOf[BinaryPredicate]
+
+		return (binPred.op == "=", binPred)
+	}
+
+	private def negateLiteral(lit : (Boolean, BinaryPredicate)) : (Boolean, BinaryPredicate) =
+	{
+		return ( ! lit._1, lit._2)
+	}
+
+
+	/**
+	 * Terms are identified in the same way as in the input for the SMT solver.
+	 */
+	private class CongruenceClosure (boolFunctions : Set[String])
+	{
+		// function symbol (empty for constants and variables) and arguments of each term
+		private val termSymbols = new ArrayBuffer[String]()
+		private val termArgs = new ArrayBuffer[List[Int]]()
+
+		private val parents = new ArrayBuffer[Int]()
+
+		private val name2term : Map[String, Int] = new HashMap
+		private val app2term : Map[(String, List[Int]), Int] = new HashMap
+
+		// numeric constants and their terms
+		private val term2number : Map[Int, String] = new HashMap
+
+		// some term contains arithmetic operators or function updates (they are treated as uninterpreted functions here), or it has a boolean value (it is treated as a value of an infinite domain)
+		var hasInterpretedTerms = false
+
+
+		def isSatisfiable(literals : List[(Boolean, BinaryPredicate)]) : Boolean =
+		{
+			var disequalities = List[(Int, Int)]()
+
+			for ( (positive, binPred) <- literals )
+			{
+				val leftTerm = createTerm(binPred.left)
+				val rightTerm = createTerm(binPred.right)
+
+				if (positive) union(leftTerm, rightTerm)
+				else disequalities = (leftTerm, rightTerm) :: disequalities
+			}
+
+			closeUnderCongruence()
+
+			for ( (t1, t2) <- disequalities )
+			{
+				if (find(t1) == find(t2)) return false
+			}
+
+			// different numbers cannot be equal
+
+			val rep2number : Map[Int, String] = new HashMap
+
+			for ( (t, num) <- term2number )
+			{
+				val repNum = rep2number.getOrElseUpdate(find(t), num)
+
+				if (repNum != num) return false
+			}
+
+			return true
+		}
+
+		private def createTerm(expr : Expression) : Int =
+		{
+			if (expr.isInstanceOf[FunctionExpression])
+			{
+				val funcExpr = expr.asInstanceOf[FunctionExpression]
+
+				if ((funcExpr.name == Constants.ARRAY_UPDATE_OPER) || funcExpr.args(0).isInstanceOf[FunctionExpression] || ExpressionUtils.isFieldAccessPath(funcExpr.args(0)))
+				{
+					// the function symbol is not a plain name (e.g., function update), so the whole term is kept opaque
+					hasInterpretedTerms = true
+
+					return createApplication(funcExpr.toString(), List[Int]())
+				}
+
+				val symbol = convertName(funcExpr.args(0).toString())
+
+				// applications of boolean functions cannot be handled as values of an infinite domain
+				if (boolFunctions.contains(symbol)) hasInterpretedTerms = true
+
+				return createApplication(symbol, funcExpr.args.toList.tail.map(createTerm))
+			}
+			else if (expr.isInstanceOf[ArithmeticExpression])
+			{
+				val arExpr = expr.asInstanceOf[ArithmeticExpression]
+
+				hasInterpretedTerms = true
+
+				return createApplication(arExpr.op, List(createTerm(arExpr.left), createTerm(arExpr.right)))
+			}
+			else if (ExpressionUtils.isFieldAccessPath(expr))
+			{
+				var term = createTerm(ExpressionUtils.extractTargetObjExprFromFieldAccessPath(expr))
+
+				for (fname <- ExpressionUtils.extractFieldNamesFromFieldAccessPath(expr)) term = createApplication(fname, List(term))
+
+				return term
+			}
+
+			val name = convertName(expr.toString())
+
+			// boolean constants cannot be handled as values of an infinite domain
+			if ((name == "true") || (name == "false")) hasInterpretedTerms = true
+
+			val termOpt = name2term.get(name)
+
+			if (termOpt != None) return termOpt.get
+
+			val term = addTerm("", List[Int]())
+
+			name2term.put(name, term)
+
+			if (EqualityPreSolver.numberRE.pattern.matcher(name).matches()) term2number.put(term, BigInt(name).toString())
+
+			return term
+		}
+
+		private def createApplication(symbol : String, args : List[Int]) : Int =
+		{
+			val termOpt = app2term.get( (symbol, args) )
+
+			if (termOpt != None) return termOpt.get
+
+			val term = addTerm(symbol, args)
+
+			app2term.put( (symbol, args), term )
+
+			return term
+		}
+
+		private def addTerm(symbol : String, args : List[Int]) : Int =
+		{
+			termSymbols += symbol
+			termArgs += args
+
+			parents += parents.size
+
+			return parents.size - 1
+		}
+
+		private def find(term : Int) : Int =
+		{
+			var root = term
+
+			while (parents(root) != root) root = parents(root)
+
+			// path compression
+
+			var cur = term
+
+			while (parents(cur) != root)
+			{
+				val next = parents(cur)
+				parents(cur) = root
+				cur = next
+			}
+
+			return root
+		}
+
+		private def union(t1 : Int, t2 : Int) : Boolean =
+		{
+			val r1 = find(t1)
+			val r2 = find(t2)
+
+			if (r1 == r2) return false
+
+			parents(r1) = r2
+
+			return true
+		}
+
+		/**
+		 * Applications of the same function to equal arguments are merged until nothing changes.
+		 */
+		private def closeUnderCongruence() =
+		{
+			var changed = true
+
+			while (changed)
+			{
+				changed = false
+
+				val signature2term : Map[(String, List[Int]), Int] = new HashMap
+
+				for (term <- 0 until termSymbols.size if (termArgs(term).size > 0))
+				{
+					val signature = (termSymbols(term), termArgs(term).map(find))
+
+					val otherTermOpt = signature2term.get(signature)
+
+					if (otherTermOpt == None) signature2term.put(signature, term)
+					else if (union(term, otherTermOpt.get)) changed = true
+				}
+			}
+		}
+
+		private def convertName(name : String) : String =
+		{
+			return name.replace('.', '_').replace('[', '_').replace(']', '_')
+		}
+	}
+}
+
+object EqualityPreSolver
+{
+	val numberRE = "^\\-?[0-9]+$".r
+}
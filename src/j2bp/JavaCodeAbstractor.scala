@@ -223,6 +223,8 @@ object JavaCodeAbstractor extends ExecutionVisitor with StatementResolver
 	{
 		val mv = arg.asInstanceOf[MethodVisitor]
 		
+		ctx.setCurInsnIndex(insnIndex)
+		
 		val newLocalVarNames = WALAUtils.printLocalVariableNames(ctx.getCurClassOrigName(), ctx.getCurMethodName(), insnIndex, ctx.getMonitorVarCount())
 			
 		if (ctx.getOrigLocalVarNames() != newLocalVarNames)
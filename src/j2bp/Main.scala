@@ -64,6 +64,9 @@ object Main
 	val INFO = Configuration.printInfoMsgs
 	val DEBUG = Configuration.printDebugMsgs
 	
+	// file in the output directory with results of SMT queries from previous runs
+	val QUERY_CACHE_FILE_NAME = "smt_query_cache.bin"
+	
 	
 	/**
 	 * command-line arguments:
@@ -95,6 +98,18 @@ object Main
 		// true -> support for containers		
 		Configuration.init(true)
 
+		if (Configuration.persistentQueryCache)
+		{
+			Configuration.queryResultsStore = new util.PersistentResultCache(outputDirName + "/" + Main.QUERY_CACHE_FILE_NAME, Configuration.persistentQueryCacheMaxEntries)
+			
+			if (INFO) println("[INFO] results of SMT queries from previous runs: " + Configuration.queryResultsStore.size())
+		}
+		
+		if (Configuration.logSMTQueries)
+		{
+			Configuration.smtQueryLog = new SMTQueryLog(outputDirName + "/" + mainClassName.replace('.', '_') + "_smtqueries.log.gz")
+		}
+		
 		// maximal possible container size
 		BasicContainerModel.maxSize = java.lang.Integer.parseInt(maxContainerSizeStr)
 		
@@ -134,10 +149,35 @@ object Main
 		
 		var backtrackCodeLocations = List[(String,Int)]()
 		
+		var cartesianMethods = List[String]()
+		
+		var smtSolverCommand : String = null
+		var smtSolverCapsStr = ""
+		
 		if (settingsFileName != "none")
 		{
 			for (line <- fromFile(settingsFileName).getLines())
 			{
+				if (line.startsWith("smtsolver="))
+				{
+					smtSolverCommand = line.substring(10).trim()
+				}
+				
+				if (line.startsWith("smtsolvercaps="))
+				{
+					smtSolverCapsStr = line.substring(14).trim()
+				}
+				
+				if (line.startsWith("cartesian="))
+				{
+					for (fullMethodName <- line.substring(10).split(";") if (fullMethodName.trim().length() > 0))
+					{
+						cartesianMethods = cartesianMethods :+ fullMethodName.trim()
+						
+						if (INFO) println("[INFO] Cartesian abstraction for method: " + fullMethodName.trim())
+					}
+				}
+				
 				if (line.startsWith("forcebacktr"))
 				{
 					val codeLocsStr = line.substring(12)
@@ -157,6 +197,17 @@ object Main
 				}				
 			}			
 		}
+		
+		if ((smtSolverCommand != null) && (smtSolverCommand.length() > 0))
+		{
+			val solverConfig = SMTSolverConfig.parse(smtSolverCommand, smtSolverCapsStr)
+			
+			Configuration.smtProvider.shutdown()
+			
+			Configuration.smtProvider = Configuration.createSMTProvider(solverConfig)
+			
+			if (INFO) println("[INFO] external SMT solver: " + solverConfig)
+		}
 
 		
 		// initialize class hierarchy, compute call graph, etc
@@ -208,10 +259,13 @@ object Main
 			
 			mainCtx.setForcedBacktrackLocations(backtrackCodeLocations)
 			
+			mainCtx.setCartesianAbstractionMethods(cartesianMethods)
+			
 			
 			// reset data structures
 			Configuration.predicatesMngr.clearAll()
 			Configuration.predicateSemModel.clearAll()
+			StatementResolver.clearPredicateRelations()
 
 			
 			println("[J2BP] generating abstraction " + propID + " for the property " + prop.toString())
@@ -326,6 +380,9 @@ object Main
 		
 			// we do not want cached records with dropped predicates
 			Configuration.predicatesMngr.invalidateCaches()
+			Configuration.smtProvider.invalidateCaches()
+			StatementResolver.clearPredicateRelations()
+			StatementResolver.clearDecisionTables()
 			
 			Configuration.predicatesMngr.clearMissingPredicates()
 
@@ -471,6 +528,13 @@ object Main
 			printCurrentTime("[J2BP] finished generating abstraction for property " + propID)
 			
 			println("[J2BP] total number of SMT solver calls = " + Configuration.smtProvider.getCountersValue())
+			
+			if (Configuration.collectSMTStatistics && (Configuration.cartesianAbstraction || (cartesianMethods.size > 0)))
+			{
+				val solverRunsByMode = Configuration.smtProvider.getStatistics().getSolverRunsByMode()
+				
+				println("[J2BP] number of SMT solver runs for statements resolved in the Cartesian mode = " + solverRunsByMode._1 + ", in the full mode = " + solverRunsByMode._2)
+			}
 						
 			if (Configuration.collectMissingPredicates)
 			{
@@ -479,6 +543,23 @@ object Main
 		}
 		
 		suffixFile.close()
+		
+		if (Configuration.collectSMTStatistics) Configuration.smtProvider.getStatistics().writeToFile(outputDirName + "/" + mainClassName.replace('.', '_') + "_smtstats.json")
+		
+		if (INFO)
+		{
+			for ( (cacheName, counters) <- util.BoundedCache.getAllCounters() ) println("[INFO] cache " + cacheName + ": hits = " + counters.hits.get() + ", misses = " + counters.misses.get() + ", evictions = " + counters.evictions.get())
+		}
+		
+		// threads that compute decision tables and evaluate cubes are stopped before the solver processes (and workers of the pool) they use
+		StatementResolver.shutdown()
+		ParallelCubeEvaluator.shutdown()
+		
+		Configuration.smtProvider.shutdown()
+		
+		if (Configuration.queryResultsStore != null) Configuration.queryResultsStore.close()
+		
+		if (Configuration.smtQueryLog != null) Configuration.smtQueryLog.close()
 	}
 
 	def initNewContext(progClasses : List[String]) : AbstractionContext =
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+
+import scala.collection.mutable.Queue
+
+import common.LogicFormula
+
+
+/**
+ * Returns the same cubes as the given iterator (in the same order), while the following cubes are already evaluated in the background.
+ * Cubes pruned by minimal cubes that were registered in the meantime are skipped, so the caller sees exactly the cubes it would see without the background evaluation.
+ * Speculation is limited by the subsumption frontier: the evaluation of a cube ahead may check the cube itself, but it searches for minimal sub-cubes only when all previous cubes are processed (see "ParallelCubeEvaluator.Ticket"), and the number of cubes ahead drops to one whenever some cube yields new minimal cubes.
+ * Methods must be called from a single thread (only the evaluation runs in other threads), and "cancelAll" must be called when the caller stops using the evaluator.
+ */
+class ParallelCubeEvaluator (cubeIter : CubeIterator, maxPending : Int, evaluate : (Set[LogicFormula], ParallelCubeEvaluator.Ticket) => StatementResolver.CubeEvaluation) extends Iterator[Set[LogicFormula]]
+{
+	// cubes whose evaluation was started, in the order of the iterator
+	private val pendingCubes = new Queue[(Set[LogicFormula], Future[StatementResolver.CubeEvaluation], ParallelCubeEvaluator.Ticket)]()
+	
+	// evaluation of the cube returned last
+	private var curEvaluation : Future[StatementResolver.CubeEvaluation] = null
+	
+	// current number of cubes that can be evaluated ahead
+	private var window = 1
+	
+	
+	def hasNext() : Boolean =
+	{
+		// pending cubes pruned by recently found minimal cubes are dropped (their evaluation does not start if it is still waiting, and it stops at the next query otherwise)
+		for ( (cube, evaluation, ticket) <- pendingCubes.dequeueAll(pc => cubeIter.isPruned(pc._1)) ) drop(evaluation, ticket)
+		
+		while ((pendingCubes.size < window) && cubeIter.hasNext())
+		{
+			val cube = cubeIter.next()
+			
+			val ticket = new ParallelCubeEvaluator.Ticket()
+			
+			pendingCubes.enqueue( (cube, ParallelCubeEvaluator.submit(cube, ticket, evaluate), ticket) )
+		}
+		
+		return (pendingCubes.size > 0)
+	}
+	
+	def next() : Set[LogicFormula] =
+	{
+		if ( ! hasNext() ) throw new NoSuchElementException()
+		
+		val (cube, evaluation, ticket) = pendingCubes.dequeue()
+		
+		// all previous cubes are processed, so the cube cannot be pruned anymore
+		ticket.release()
+		
+		curEvaluation = evaluation
+		
+		return cube
+	}
+	
+	/**
+	 * Waits for the evaluation of the cube returned by the last call of "next".
+	 */
+	def getCurrentEvaluation() : StatementResolver.CubeEvaluation =
+	{
+		try
+		{
+			val cubeEval = curEvaluation.get()
+			
+			if (cubeEval.minimalCubes != null) window = 1
+			else window = math.min(window + 1, maxPending)
+			
+			return cubeEval
+		}
+		catch
+		{
+			case ex : ExecutionException => throw ex.getCause()
+		}
+	}
+	
+	/**
+	 * Drops all pending cubes.
+	 */
+	def cancelAll() =
+	{
+		for ( (cube, evaluation, ticket) <- pendingCubes ) drop(evaluation, ticket)
+		
+		pendingCubes.clear()
+	}
+	
+	
+	private def drop(evaluation : Future[StatementResolver.CubeEvaluation], ticket : ParallelCubeEvaluator.Ticket) =
+	{
+		ticket.markDropped()
+		
+		evaluation.cancel(false)
+	}
+}
+
+object ParallelCubeEvaluator
+{
+	/**
+	 * State of a cube evaluated in the background, which is shared by the evaluator and the thread that evaluates the cube.
+	 * The cube is released when all previous cubes are processed (then it cannot be pruned anymore), or when it is dropped (then its result is not used).
+	 */
+	class Ticket
+	{
+		@volatile private var dropped = false
+		
+		private val turn = new CountDownLatch(1)
+		
+		
+		def isDropped() : Boolean =
+		{
+			return dropped
+		}
+		
+		/**
+		 * Waits until the cube is released and returns false if it was dropped.
+		 */
+		def awaitTurn() : Boolean =
+		{
+			turn.await()
+			
+			return ( ! dropped )
+		}
+		
+		private[ParallelCubeEvaluator] def release() =
+		{
+			turn.countDown()
+		}
+		
+		private[ParallelCubeEvaluator] def markDropped() =
+		{
+			dropped = true
+			
+			turn.countDown()
+		}
+	}
+	
+	
+	// shared by all evaluators (created when needed)
+	private var executor : ExecutorService = null
+	
+	
+	/**
+	 * Stops threads that evaluate cubes. The pool is created again when another cube is submitted.
+	 */
+	def shutdown() = synchronized
+	{
+		if (executor != null) executor.shutdownNow()
+		
+		executor = null
+	}
+	
+	
+	private def submit(cube : Set[LogicFormula], ticket : Ticket, evaluate : (Set[LogicFormula], Ticket) => StatementResolver.CubeEvaluation) : Future[StatementResolver.CubeEvaluation] =
+	{
+		// queries about the cube are attributed to the location of the caller
+		val location = Configuration.smtProvider.getStatistics().getCurrentLocation()
+		
+		return getExecutor().submit(new Callable[StatementResolver.CubeEvaluation]
+		{
+			def call() : StatementResolver.CubeEvaluation = Configuration.smtProvider.getStatistics().runInLocation(location, () => evaluate(cube, ticket))
+		})
+	}
+	
+	private def getExecutor() : ExecutorService = synchronized
+	{
+		if (executor == null)
+		{
+			executor = Executors.newFixedThreadPool(Configuration.cubeResolutionThreads, new ThreadFactory()
+			{
+				def newThread(r : Runnable) : Thread =
+				{
+					val t = new Thread(r, "cube-evaluator")
+					t.setDaemon(true)
+					return t
+				}
+			})
+		}
+		
+		return executor
+	}
+}
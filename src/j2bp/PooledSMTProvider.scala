@@ -0,0 +1,429 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+
+import common.LogicFormula
+import common.AtomicPredicate
+
+import util.BoundedCache
+
+
+/**
+ * Distributes validity queries among several workers (instances of another provider, each with its own solver process).
+ * Asynchronous queries are processed concurrently by a fixed pool of threads.
+ */
+class PooledSMTProvider (val numWorkers : Int, createWorker : () => SMTProvider) extends SMTProvider
+{
+	private class Worker (val provider : SMTProvider)
+	{
+		// background formulas of the query context currently open in the provider
+		var background : Set[LogicFormula] = null
+	}
+	
+	
+	private val allWorkers : List[Worker] = List.fill(numWorkers)(new Worker(createWorker()))
+	
+	// workers that do not process any query at the moment
+	private val idleWorkers = new LinkedBlockingQueue[Worker]()
+	
+	for (w <- allWorkers) idleWorkers.put(w)
+	
+	// workers record their queries into the statistics of the pool
+	for (w <- allWorkers) w.provider.setStatistics(statistics)
+	
+	private val executor : ExecutorService = Executors.newFixedThreadPool(numWorkers, new ThreadFactory()
+	{
+		def newThread(r : Runnable) : Thread =
+		{
+			val t = new Thread(r, "smt-worker")
+			t.setDaemon(true)
+			return t
+		}
+	})
+	
+	// results shared by all workers (keys are digests of canonical forms of queries, see "createQueryKey")
+	private val cacheValidityQuery2Result = new BoundedCache[String, Boolean]("poolValidityQuery2Result", Configuration.smtValidityCacheMaxEntries)
+	
+	// results of queries that some worker is checking at the moment (keys are the same as in the cache), so that callers with the same query wait for the result instead of running the solver again
+	private val inFlightQueries = new ConcurrentHashMap[String, CompletableFuture[Boolean]]()
+	
+	// background formulas of the current query context (each calling thread has its own context)
+	private val ctxBackgroundForms = new ThreadLocal[Set[LogicFormula]]()
+	
+	
+	def checkValidity(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Boolean =
+	{
+		return processQuery(ctx, weakPrecond, resdetCube, null, true)
+	}
+	
+	def openQueryContext(ctx : AbstractionContext, backgroundForms : Set[LogicFormula]) =
+	{
+		// workers open the context lazily when they get some query from it
+		ctxBackgroundForms.set(backgroundForms)
+	}
+	
+	def checkValidityInContext(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Boolean =
+	{
+		return processQuery(ctx, weakPrecond, resdetCube, ctxBackgroundForms.get(), true)
+	}
+	
+	def closeQueryContext() =
+	{
+		ctxBackgroundForms.remove()
+	}
+	
+	/**
+	 * Queries in the batch that are not cached are split into chunks (at most one for each worker) and every worker receives its chunk as a batch.
+	 */
+	override def checkValidityBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])]) : List[Boolean] =
+	{
+		return processBatch(ctx, queries, null)
+	}
+	
+	override def checkValidityInContextBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])]) : List[Boolean] =
+	{
+		return processBatch(ctx, queries, ctxBackgroundForms.get())
+	}
+	
+	override def findImplyingSubset(ctx : AbstractionContext, weakPrecond : LogicFormula, fixedForms : Set[LogicFormula], namedForms : Set[LogicFormula]) : Set[LogicFormula] =
+	{
+		val worker = acquireWorker(ctx, ctxBackgroundForms.get())
+		
+		try
+		{
+			return worker.provider.findImplyingSubset(ctx, weakPrecond, fixedForms, namedForms)
+		}
+		finally
+		{
+			idleWorkers.put(worker)
+		}
+	}
+	
+	def findSatisfyingCube(ctx : AbstractionContext, forms : Set[LogicFormula], preds : List[AtomicPredicate]) : Set[LogicFormula] =
+	{
+		val worker = acquireWorker(ctx, ctxBackgroundForms.get())
+		
+		try
+		{
+			return worker.provider.findSatisfyingCube(ctx, forms, preds)
+		}
+		finally
+		{
+			idleWorkers.put(worker)
+		}
+	}
+	
+	override def checkValidityAsync(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Future[Boolean] =
+	{
+		return submitQuery(ctx, weakPrecond, resdetCube, null)
+	}
+	
+	override def checkValidityInContextAsync(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Future[Boolean] =
+	{
+		return submitQuery(ctx, weakPrecond, resdetCube, ctxBackgroundForms.get())
+	}
+	
+	override def supportsConcurrentCallers() : Boolean =
+	{
+		return true
+	}
+	
+	override def invalidateCaches() =
+	{
+		for (w <- allWorkers) w.provider.invalidateCaches()
+	}
+	
+	def resetCounters() =
+	{
+		for (w <- allWorkers) w.provider.resetCounters()
+	}
+	
+	def getCountersValue() : Long =
+	{
+		var total : Long = 0
+		
+		for (w <- allWorkers) total += w.provider.getCountersValue()
+		
+		return total
+	}
+	
+	def shutdown() =
+	{
+		executor.shutdownNow()
+		
+		for (w <- allWorkers) w.provider.shutdown()
+	}
+	
+	
+	private def submitQuery(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula], background : Set[LogicFormula]) : Future[Boolean] =
+	{
+		// the query is attributed to the location of the caller
+		val location = statistics.getCurrentLocation()
+		
+		return executor.submit(new Callable[Boolean]
+		{
+			// threads of the pool never wait for queries of other callers, because those may be waiting for a free thread of the pool
+			def call() : Boolean = statistics.runInLocation(location, () => processQuery(ctx, weakPrecond, resdetCube, background, false))
+		})
+	}
+	
+	/**
+	 * The query is processed by the first idle worker in the given context (null means no context).
+	 * When the same query is being checked for another caller, the result of that check is used if "waitForRunning" is true.
+	 */
+	private def processQuery(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula], background : Set[LogicFormula], waitForRunning : Boolean) : Boolean =
+	{
+		val cacheKey = createQueryKey(weakPrecond, resdetCube, background)
+		
+		val cachedResultOpt = cacheValidityQuery2Result.get(cacheKey)
+		
+		if (cachedResultOpt != None)
+		{
+			statistics.recordValidityQuery(true)
+			
+			return cachedResultOpt.get
+		}
+		
+		
+		val resultPromise = new CompletableFuture[Boolean]()
+		
+		val runningQuery = if (waitForRunning) inFlightQueries.putIfAbsent(cacheKey, resultPromise) else null
+		
+		if (runningQuery != null)
+		{
+			statistics.recordValidityQuery(true)
+			
+			return waitForResult(runningQuery)
+		}
+		
+		try
+		{
+			val worker = acquireWorker(ctx, background)
+			
+			try
+			{
+				var queryResult = false
+				
+				if (background != null) queryResult = worker.provider.checkValidityInContext(ctx, weakPrecond, resdetCube)
+				else queryResult = worker.provider.checkValidity(ctx, weakPrecond, resdetCube)
+				
+				cacheValidityQuery2Result.put(cacheKey, queryResult)
+				
+				resultPromise.complete(queryResult)
+				
+				return queryResult
+			}
+			finally
+			{
+				idleWorkers.put(worker)
+			}
+		}
+		catch
+		{
+			case ex : Throwable =>
+			{
+				resultPromise.completeExceptionally(ex)
+				throw ex
+			}
+		}
+		finally
+		{
+			inFlightQueries.remove(cacheKey, resultPromise)
+		}
+	}
+	
+	/**
+	 * Queries are processed in the given context (null means no context).
+	 */
+	private def processBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])], background : Set[LogicFormula]) : List[Boolean] =
+	{
+		val queryResults = new Array[Boolean](queries.size)
+		
+		// indexes of queries that must be sent to workers and their cache keys
+		var pendingQueries = List[(Int, String)]()
+		
+		// indexes of queries that other callers are checking at the moment and their future results
+		var runningQueries = List[(Int, CompletableFuture[Boolean])]()
+		
+		// future results of pending queries (other callers may wait for them)
+		var resultPromises = List[CompletableFuture[Boolean]]()
+		
+		for (i <- 0 until queries.size)
+		{
+			val cacheKey = createQueryKey(queries(i)._1, queries(i)._2, background)
+			
+			val cachedResultOpt = cacheValidityQuery2Result.get(cacheKey)
+			
+			if (cachedResultOpt != None)
+			{
+				statistics.recordValidityQuery(true)
+				
+				queryResults(i) = cachedResultOpt.get
+			}
+			else
+			{
+				val resultPromise = new CompletableFuture[Boolean]()
+				
+				val runningQuery = inFlightQueries.putIfAbsent(cacheKey, resultPromise)
+				
+				if (runningQuery != null)
+				{
+					statistics.recordValidityQuery(true)
+					
+					runningQueries = runningQueries :+ (i, runningQuery)
+				}
+				else
+				{
+					pendingQueries = pendingQueries :+ (i, cacheKey)
+					resultPromises = resultPromises :+ resultPromise
+				}
+			}
+		}
+		
+		try
+		{
+			if (pendingQueries.size > 0) processPendingBatch(ctx, queries, background, pendingQueries, resultPromises, queryResults)
+		}
+		finally
+		{
+			for ( ((idx, cacheKey), resultPromise) <- pendingQueries.zip(resultPromises) ) inFlightQueries.remove(cacheKey, resultPromise)
+		}
+		
+		for ( (idx, runningQuery) <- runningQueries ) queryResults(idx) = waitForResult(runningQuery)
+		
+		return queryResults.toList
+	}
+	
+	/**
+	 * Sends pending queries of the batch to workers and completes their future results (results are stored into the given array too).
+	 */
+	private def processPendingBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])], background : Set[LogicFormula], pendingQueries : List[(Int, String)], resultPromises : List[CompletableFuture[Boolean]], queryResults : Array[Boolean]) =
+	{
+		try
+		{
+			val chunkSize = math.max((pendingQueries.size + numWorkers - 1) / numWorkers, Configuration.smtPoolMinChunkSize)
+			
+			var chunkFutures = List[(List[((Int, String), CompletableFuture[Boolean])], Future[List[Boolean]])]()
+			
+			val location = statistics.getCurrentLocation()
+			
+			for (chunk <- pendingQueries.zip(resultPromises).grouped(chunkSize))
+			{
+				val chunkQueries = chunk.map(pq => queries(pq._1._1))
+				
+				val chunkFuture = executor.submit(new Callable[List[Boolean]]
+				{
+					def call() : List[Boolean] = statistics.runInLocation(location, () => checkChunk(ctx, chunkQueries, background))
+				})
+				
+				chunkFutures = chunkFutures :+ (chunk, chunkFuture)
+			}
+			
+			for ( (chunk, chunkFuture) <- chunkFutures )
+			{
+				for ( (((idx, cacheKey), resultPromise), queryResult) <- chunk.zip(chunkFuture.get()) )
+				{
+					queryResults(idx) = queryResult
+					
+					cacheValidityQuery2Result.put(cacheKey, queryResult)
+					
+					resultPromise.complete(queryResult)
+				}
+			}
+		}
+		catch
+		{
+			case ex : Throwable =>
+			{
+				// callers waiting for some of these queries get the same failure
+				for (rp <- resultPromises) rp.completeExceptionally(ex)
+				throw ex
+			}
+		}
+	}
+	
+	private def checkChunk(ctx : AbstractionContext, chunkQueries : List[(LogicFormula, Set[LogicFormula])], background : Set[LogicFormula]) : List[Boolean] =
+	{
+		val worker = acquireWorker(ctx, background)
+		
+		try
+		{
+			if (background != null) return worker.provider.checkValidityInContextBatch(ctx, chunkQueries)
+			else return worker.provider.checkValidityBatch(ctx, chunkQueries)
+		}
+		finally
+		{
+			idleWorkers.put(worker)
+		}
+	}
+	
+	private def waitForResult(runningQuery : CompletableFuture[Boolean]) : Boolean =
+	{
+		try
+		{
+			return runningQuery.get()
+		}
+		catch
+		{
+			case ex : ExecutionException => throw ex.getCause()
+		}
+	}
+	
+	/**
+	 * Returns the digest of the query text with formulas sorted, so that the cache does not keep whole formulas in memory.
+	 */
+	private def createQueryKey(weakPrecond : LogicFormula, resdetCube : Set[LogicFormula], background : Set[LogicFormula]) : String =
+	{
+		val allForms = if (background != null) resdetCube ++ background else resdetCube
+		
+		val queryText = new StringBuilder()
+		
+		queryText.append(weakPrecond.toString())
+		
+		for (formStr <- allForms.toList.map(_.toString()).sorted) queryText.append(" ; ").append(formStr)
+		
+		return BoundedCache.digestKey(queryText.toString())
+	}
+	
+	/**
+	 * Waits for an idle worker and opens the given context in it (null means no context).
+	 */
+	private def acquireWorker(ctx : AbstractionContext, background : Set[LogicFormula]) : Worker =
+	{
+		val worker = idleWorkers.take()
+		
+		if ( ! (worker.background eq background) )
+		{
+			if (worker.background != null) worker.provider.closeQueryContext()
+			
+			if (background != null) worker.provider.openQueryContext(ctx, background)
+			
+			worker.background = background
+		}
+		
+		return worker
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import scala.collection.immutable.List
+import scala.collection.mutable.Map
+import scala.collection.mutable.HashMap
+import scala.collection.mutable.HashSet
+
+import common.LogicFormula
+import common.AtomicPredicate
+import common.FormulaUtils
+
+
+/**
+ * Pairwise relations between literals over predicates of one method, which are shared by all statements in the method.
+ * Tuples of conflicting literals returned by the predicate semantics model are derived from the head predicate and a single other predicate of the set (see "PredicateSemanticsModel.getConflictingLiterals"), so the model is asked about each pair only once and tuples for a set of predicates are joined from the pairs.
+ * The graph also records pairs of literals that the solver found infeasible under the supporting formulas. An implication "l1 => l2" is the infeasible pair {l1, not l2}, so pairs that follow from chains of implications are derived without asking the solver.
+ * All methods can be called from multiple threads.
+ */
+class PredicateRelationGraph (curClassOrigName : String, curMethodName : String)
+{
+	// (head predicate, other predicate) -> tuples of literals conflicting with the head predicate
+	private val pair2conflicts : Map[(AtomicPredicate, AtomicPredicate), Set[Set[LogicFormula]]] = new HashMap
+
+	// literal -> literals that cannot hold together with it (edges of the graph)
+	private val lit2conflicts : Map[LogicFormula, Set[LogicFormula]] = new HashMap
+	
+	// pairs of literals whose relation is already known (infeasible or not)
+	private val knownPairs = new HashSet[Set[LogicFormula]]()
+	
+	// number of pairs of literals checked by the solver
+	private var queriedPairsCount = 0
+
+
+	/**
+	 * Returns the same tuples of literals conflicting with "headPred" as "PredicateSemanticsModel.getConflictingLiterals" for the whole set.
+	 */
+	def getConflictingLiterals(headPred : AtomicPredicate, resdetPredSet : Set[AtomicPredicate]) : Set[Set[LogicFormula]] = synchronized
+	{
+		var conflictTuples = Set[Set[LogicFormula]]()
+
+		for (otherPred <- resdetPredSet if (otherPred != headPred))
+		{
+			val pairConflicts = pair2conflicts.getOrElseUpdate( (headPred, otherPred), Configuration.predicateSemModel.getConflictingLiterals(headPred, Set(otherPred), curClassOrigName, curMethodName) )
+
+			conflictTuples = conflictTuples ++ pairConflicts
+		}
+
+		return conflictTuples
+	}
+
+	/**
+	 * Records a pair of literals that is known to be infeasible (e.g., identified syntactically by the predicate semantics model), so the solver is not asked about it.
+	 */
+	def addConflictingPair(lit1 : LogicFormula, lit2 : LogicFormula) = synchronized
+	{
+		recordRelation(lit1, lit2, true)
+	}
+	
+	/**
+	 * Returns all infeasible pairs of literals over the given predicates.
+	 * Relations of pairs that were not examined yet are derived through chains of implications when possible, and the remaining pairs of predicates from the same independent group are checked by the solver in one batch.
+	 * Relations are kept for the method, so each pair is examined only once.
+	 */
+	def getInfeasiblePairs(ctx : AbstractionContext, predList : List[AtomicPredicate]) : Set[Set[LogicFormula]] =
+	{
+		// predicates from different groups cannot form an infeasible pair unless one of them is unsatisfiable
+		val predGroups = Configuration.predicateSemModel.getIndependentGroups(predList, Configuration.predicateSemModel.getRelevantSupportFormulas(predList.toSet[LogicFormula]))
+		
+		var pendingPairs = List[(LogicFormula, LogicFormula)]()
+		
+		synchronized
+		{
+			for (i <- 0 until predList.size ; j <- (i + 1) until predList.size if (predGroups(i) != PredicateSemanticsModel.NO_GROUP) && (predGroups(i) == predGroups(j)))
+			{
+				for (lit1 <- getLiterals(predList(i)) ; lit2 <- getLiterals(predList(j)) if ( ! knownPairs.contains(Set[LogicFormula](lit1, lit2)) ))
+				{
+					if (isDerivedConflict(lit1, lit2)) recordRelation(lit1, lit2, true)
+					else pendingPairs = pendingPairs :+ ( (lit1, lit2) )
+				}
+			}
+		}
+		
+		if (pendingPairs.size > 0)
+		{
+			// "lit1" and "lit2" cannot hold together if "lit1" implies the negation of "lit2"
+			
+			val queries = pendingPairs.map(litPair => (FormulaUtils.negate(litPair._2), Set[LogicFormula](litPair._1) ++ Configuration.predicateSemModel.getRelevantSupportFormulas(Set[LogicFormula](litPair._1, litPair._2))))
+			
+			val results = Configuration.smtProvider.checkValidityBatch(ctx, queries)
+			
+			synchronized
+			{
+				queriedPairsCount += pendingPairs.size
+				
+				for ( (litPair, valid) <- pendingPairs.zip(results) ) recordRelation(litPair._1, litPair._2, valid)
+			}
+		}
+		
+		var infeasiblePairs = Set[Set[LogicFormula]]()
+		
+		synchronized
+		{
+			val predSet = predList.toSet
+			
+			for (pred <- predList ; lit1 <- getLiterals(pred) ; lit2 <- lit2conflicts.getOrElse(lit1, Set[LogicFormula]()))
+			{
+				if (predSet.contains(FormulaUtils.extractAtomicPredicates(lit2).head)) infeasiblePairs = infeasiblePairs + Set[LogicFormula](lit1, lit2)
+			}
+		}
+		
+		return infeasiblePairs
+	}
+	
+	/**
+	 * Returns the number of pairs of literals that were checked by the solver.
+	 */
+	def getQueriedPairsCount() : Int = synchronized
+	{
+		return queriedPairsCount
+	}
+	
+	/**
+	 * Returns the number of pairs of predicates whose conflicting literals are known.
+	 */
+	def getPairsCount() : Int = synchronized
+	{
+		return pair2conflicts.size
+	}
+	
+	
+	private def getLiterals(pred : AtomicPredicate) : List[LogicFormula] =
+	{
+		return List[LogicFormula](pred, FormulaUtils.negate(pred))
+	}
+	
+	/**
+	 * The pair {lit1, lit2} is infeasible if "not lit2" is reachable from "lit1" through implications, where each edge {l, m} of the graph gives the implication "l => not m".
+	 */
+	private def isDerivedConflict(lit1 : LogicFormula, lit2 : LogicFormula) : Boolean =
+	{
+		val targetLit = FormulaUtils.negate(lit2)
+		
+		val visitedLits = new HashSet[LogicFormula]()
+		
+		var curLits = List[LogicFormula](lit1)
+		
+		visitedLits.add(lit1)
+		
+		while (curLits.size > 0)
+		{
+			var nextLits = List[LogicFormula]()
+			
+			for (curLit <- curLits ; cfLit <- lit2conflicts.getOrElse(curLit, Set[LogicFormula]()))
+			{
+				val impliedLit = FormulaUtils.negate(cfLit)
+				
+				if (impliedLit == targetLit) return true
+				
+				if (visitedLits.add(impliedLit)) nextLits = impliedLit :: nextLits
+			}
+			
+			curLits = nextLits
+		}
+		
+		return false
+	}
+	
+	private def recordRelation(lit1 : LogicFormula, lit2 : LogicFormula, infeasible : Boolean) =
+	{
+		knownPairs.add(Set[LogicFormula](lit1, lit2))
+		
+		if (infeasible)
+		{
+			lit2conflicts.put(lit1, lit2conflicts.getOrElse(lit1, Set[LogicFormula]()) + lit2)
+			lit2conflicts.put(lit2, lit2conflicts.getOrElse(lit2, Set[LogicFormula]()) + lit1)
+		}
+	}
+}
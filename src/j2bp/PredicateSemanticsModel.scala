@@ -30,6 +30,26 @@ abstract class PredicateSemanticsModel
 	
 	def getSupportFormulas() : Set[LogicFormula]
 	
+	/**
+	 * Returns supporting formulas that are connected with the given formulas through shared symbols (names of variables and fields), directly or via other supporting formulas.
+	 * Supporting formulas that do not contain any symbol are always returned.
+	 */
+	def getRelevantSupportFormulas(forms : Set[LogicFormula]) : Set[LogicFormula]
+	
+	/**
+	 * Returns the candidate predicates that are connected with the given formulas through shared symbols, directly or via supporting formulas, connecting formulas (e.g., temporary supporting formulas), and other returned predicates (cone of influence).
+	 * Candidate predicates that do not contain any symbol are always returned.
+	 * All candidate predicates are returned when some connected formula contains a logic variable, which can be matched with any expression.
+	 */
+	def getInfluencingPredicates(forms : Set[LogicFormula], candidatePreds : Set[AtomicPredicate], connectingForms : Set[LogicFormula]) : Set[AtomicPredicate]
+	
+	/**
+	 * Splits the given formulas into groups that do not share any symbol, where each connecting formula (e.g., a supporting formula) joins all its symbols.
+	 * Returns the group identifier for each formula, where groups are numbered from 0 in the order of their first formulas. Formulas that do not contain any symbol get the identifier "PredicateSemanticsModel.NO_GROUP", because they do not depend on any group.
+	 * All formulas belong to the group 0 when some of them contains a logic variable, which can be matched with any expression.
+	 */
+	def getIndependentGroups(forms : List[LogicFormula], connectingForms : Set[LogicFormula]) : List[Int]
+	
 	def derivePermanentSupportingFormulas()
 	
 	def getTemporarySupportingFormulasResultSet(updatedPred : AtomicPredicate, predWP : LogicFormula, resdetPreds : Set[AtomicPredicate], curClassOrigName : String, curMethodName : String) : Set[LogicFormula]
@@ -41,8 +61,10 @@ abstract class PredicateSemanticsModel
 	
 	/**
 	 * Returns tuples of literals conflicting with "headPred".
+	 * They do not depend on the updated predicate, so that all predicates updated by a statement can share them.
+	 * Each tuple must be derived from "headPred" and a single other predicate of the set, because tuples for a set are joined from tuples for pairs (see "PredicateRelationGraph").
 	 */
-	def getConflictingLiterals(headPred : AtomicPredicate, resdetPredSet : Set[AtomicPredicate], weakPrecond : LogicFormula, curClassOrigName : String, curMethodName : String) : Set[Set[LogicFormula]]
+	def getConflictingLiterals(headPred : AtomicPredicate, resdetPredSet : Set[AtomicPredicate], curClassOrigName : String, curMethodName : String) : Set[Set[LogicFormula]]
 	
 	def isAmbiguousCube(resdetCube : Set[LogicFormula], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]]) : Boolean
 
@@ -64,3 +86,9 @@ abstract class PredicateSemanticsModel
 	
 	def clearAll()
 }
+
+object PredicateSemanticsModel
+{
+	// group identifier of formulas that do not contain any symbol (see "getIndependentGroups")
+	val NO_GROUP = -1
+}
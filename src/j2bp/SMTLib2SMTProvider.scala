@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import scala.collection.immutable.List
+import scala.collection.mutable.Map
+import scala.collection.mutable.HashMap
+
+import common._
+
+import util.BoundedCache
+
+
+/**
+ * Generic adapter for external solvers that read the SMT-LIB2 language (see "SMTSolverConfig").
+ * Queries are processed by the common machinery of script-based providers (caches, sessions, query contexts, batches), only the language differs and features that the solver does not support are not used.
+ */
+class SMTLib2SMTProvider (val solverConfig : SMTSolverConfig) extends ScriptSMTProvider
+{
+	override protected def getSolverCommand() : String =
+	{
+		return solverConfig.command
+	}
+
+	override protected def createScriptWriter(out : java.lang.Appendable) : SMTScriptWriter =
+	{
+		return new SMTLib2ScriptWriter(out)
+	}
+
+	override protected def createSolverPreamble() : String =
+	{
+		val smtScript = new SMTLib2ScriptWriter()
+
+		smtScript.setOption(":produce-models", "true")
+
+		if (solverConfig.unsatCores) smtScript.setOption(":produce-unsat-cores", "true")
+
+		if ((solverConfig.timeoutOption != null) && (Configuration.smtQueryTimeoutMS > 0)) smtScript.setOption(solverConfig.timeoutOption, String.valueOf(Configuration.smtQueryTimeoutMS))
+
+		smtScript.setLogic(SMTLib2SMTProvider.LOGIC)
+
+		return smtScript.toString()
+	}
+
+	override protected def isIncremental() : Boolean =
+	{
+		return solverConfig.incremental
+	}
+
+	/**
+	 * A solver with its own time limit answers "unknown" when the limit is reached, so its process is killed only when it does not answer much later.
+	 */
+	override protected def getWatchdogTimeoutMS() : Long =
+	{
+		if ((solverConfig.timeoutOption == null) || (Configuration.smtQueryTimeoutMS == 0)) return Configuration.smtQueryTimeoutMS
+
+		return 2 * Configuration.smtQueryTimeoutMS + SMTLib2SMTProvider.WATCHDOG_GRACE_MS
+	}
+
+	override protected def convertExistentialToSMT(quantVarName : String, clauseSMT : String) : String =
+	{
+		return "(exists ((" + quantVarName + " Int)) " + clauseSMT + ")"
+	}
+
+	/**
+	 * Numerals are non-negative in SMT-LIB2, so negative constants are written as "(- n)".
+	 */
+	override protected def convertNameToSMT(vname : String) : String =
+	{
+		if (SMTLib2SMTProvider.negativeNumberRE.pattern.matcher(vname).matches()) return "(- " + vname.substring(1) + ")"
+
+		return super.convertNameToSMT(vname)
+	}
+
+	override protected def getOperatorString(op : String) : String =
+	{
+		// all values are integers
+		if (op == "/") return "div"
+
+		return super.getOperatorString(op)
+	}
+
+	/**
+	 * SMT-LIB2 does not have function updates, so the application of an updated function "(update f (i1 .. iN) v)" to the arguments "a1 .. aN" is expanded into "(ite (and (= a1 i1) .. (= aN iN)) v (f a1 .. aN))".
+	 * Updated functions that are not applied (e.g., compared as a whole) cannot be expressed and the solver reports an error for them.
+	 */
+	override protected def convertApplicationToSMT(funcExpr : FunctionExpression) : String =
+	{
+		return convertApplicationToSMT(funcExpr.args(0), funcExpr.args.toList.tail.map(convertExprToSMT))
+	}
+
+	private def convertApplicationToSMT(func : Expression, argsSMT : List[String]) : String =
+	{
+		if (func.isInstanceOf[FunctionExpression] && (func.asInstanceOf[FunctionExpression].name == Constants.ARRAY_UPDATE_OPER))
+		{
+			val updateExpr = func.asInstanceOf[FunctionExpression]
+
+			val indexesSMT = updateExpr.args.toList.slice(1, updateExpr.args.length - 1).map(convertExprToSMT)
+
+			if (indexesSMT.size == argsSMT.size)
+			{
+				val equalitiesSMT = argsSMT.zip(indexesSMT).map(p => "(= " + p._1 + " " + p._2 + ")")
+
+				val condSMT = if (equalitiesSMT.size == 1) equalitiesSMT.head else "(and " + equalitiesSMT.mkString(" ") + ")"
+
+				return "(ite " + condSMT + " " + convertExprToSMT(updateExpr.args(updateExpr.args.length - 1)) + " " + convertApplicationToSMT(updateExpr.args(0), argsSMT) + ")"
+			}
+		}
+
+		return "(" + convertExprToSMT(func) + argsSMT.map(" " + _).mkString + ")"
+	}
+
+	/**
+	 * Named formulas are asserted with the attribute ":named" and the unsat core is requested explicitly.
+	 */
+	override def findImplyingSubset(ctx : AbstractionContext, weakPrecond : LogicFormula, fixedForms : Set[LogicFormula], namedForms : Set[LogicFormula]) : Set[LogicFormula] =
+	{
+		if ( ! solverConfig.unsatCores )
+		{
+			if (checkValidity(ctx, weakPrecond, fixedForms ++ namedForms)) return namedForms
+			else return null
+		}
+
+		val namedFormsList = namedForms.toList
+
+		val smtCommands = new SMTLib2ScriptWriter()
+
+		for (form <- namedFormsList) smtCommands.assertNamedFormula(convertFormulaToSMT(form))
+
+		smtCommands.assertFormula("(not " + convertFormulaToSMT(weakPrecond) + ")")
+
+		smtCommands.check()
+		smtCommands.getUnsatCore()
+
+		val smtOut = runAssertionScript(fixedForms, namedForms + weakPrecond, smtCommands.toString(), "findImplyingSubset")
+
+		if (smtOut == null)
+		{
+			if (checkValidity(ctx, weakPrecond, fixedForms ++ namedForms)) return namedForms
+			else return null
+		}
+
+
+		val smtOutLines = smtOut.split("\n").filter(_.trim().length() > 0)
+
+		val queryResult = (smtOutLines.length > 0) && (smtOutLines(0).trim() == "unsat")
+
+		cacheValidityQuery2Result.put(BoundedCache.digestKey(createCanonicalQuery(weakPrecond, fixedForms ++ namedForms)), queryResult)
+
+		if ( ! queryResult ) return null
+
+		// names of formulas in the core (the core may span several lines)
+
+		var coreForms = Set[LogicFormula]()
+
+		var coreFound = false
+
+		for (m <- SMTLib2SMTProvider.namedFormulaRE.findAllMatchIn(smtOutLines.drop(1).mkString(" ")))
+		{
+			val idx = java.lang.Integer.parseInt(m.group(1))
+
+			if (idx >= namedFormsList.size) return namedForms
+
+			coreForms = coreForms + namedFormsList(idx)
+
+			coreFound = true
+		}
+
+		// the solver did not report the core (e.g., because of an error), or the core is empty because the fixed formulas alone imply the weakest precondition
+		if (( ! coreFound ) && ( ! smtOutLines.drop(1).exists(_.trim() == "()") )) return namedForms
+
+		return coreForms
+	}
+
+	/**
+	 * Values of the boolean variables that mirror truth values of the predicates are requested explicitly.
+	 */
+	override def findSatisfyingCube(ctx : AbstractionContext, forms : Set[LogicFormula], preds : List[AtomicPredicate]) : Set[LogicFormula] =
+	{
+		val smtCommands = new SMTLib2ScriptWriter()
+
+		var predVarNames = List[String]()
+
+		for (i <- 0 until preds.size)
+		{
+			val predVarName = ScriptSMTProvider.PRED_VALUE_VAR_PREFIX + i
+
+			smtCommands.defineVariable(predVarName, "bool")
+			smtCommands.assertFormula("(= " + predVarName + " " + convertFormulaToSMT(preds(i)) + ")")
+
+			predVarNames = predVarNames :+ predVarName
+		}
+
+		smtCommands.check()
+
+		if (predVarNames.size > 0) smtCommands.getValues(predVarNames)
+
+		val smtOut = runAssertionScript(forms, preds.toSet[LogicFormula], smtCommands.toString(), "findSatisfyingCube")
+
+		if (smtOut == null) return null
+
+		val smtOutLines = smtOut.split("\n").filter(_.trim().length() > 0)
+
+		if ((smtOutLines.length == 0) || (smtOutLines(0).trim() != "sat")) return null
+
+
+		val predIdx2value : Map[Int, Boolean] = new HashMap
+
+		for (m <- SMTLib2SMTProvider.predValueRE.findAllMatchIn(smtOutLines.drop(1).mkString(" ")))
+		{
+			predIdx2value.put(java.lang.Integer.parseInt(m.group(1)), (m.group(2) == "true"))
+		}
+
+		return createCubeFromPredicateValues(preds, predIdx2value)
+	}
+}
+
+object SMTLib2SMTProvider
+{
+	// quantifiers, uninterpreted functions, and integer arithmetic are needed
+	val LOGIC = "ALL"
+
+	// additional time (in milliseconds) for a solver with its own time limit to answer
+	val WATCHDOG_GRACE_MS : Long = 1000
+
+	val negativeNumberRE = "^\\-[0-9]+$".r
+
+	val namedFormulaRE = ("\\b" + SMTLib2ScriptWriter.NAMED_FORMULA_PREFIX + "([0-9]+)\\b").r
+
+	val predValueRE = ("\\(\\s*" + ScriptSMTProvider.PRED_VALUE_VAR_PREFIX + "([0-9]+)\\s+(true|false)\\s*\\)").r
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+
+/**
+ * Emits commands of the SMT-LIB2 language.
+ * Named formulas get the names "nf0", "nf1", etc. in the order of assertion.
+ */
+class SMTLib2ScriptWriter (out : java.lang.Appendable) extends SMTScriptWriter(out)
+{
+	def this() = this(new java.lang.StringBuilder())
+
+
+	private var namedFormulasCount = 0
+
+
+	def defineVariable(name : String, typeName : String) =
+	{
+		out.append("(declare-fun ").append(name).append(" () ").append(SMTLib2ScriptWriter.convertTypeName(typeName)).append(")\n")
+	}
+
+	def defineFunction(name : String, argTypes : String, resultType : String) =
+	{
+		out.append("(declare-fun ").append(name).append(" (")
+
+		var first = true
+
+		for (argType <- argTypes.split(" ") if (argType.length() > 0))
+		{
+			if ( ! first ) out.append(" ")
+
+			out.append(SMTLib2ScriptWriter.convertTypeName(argType))
+
+			first = false
+		}
+
+		out.append(") ").append(SMTLib2ScriptWriter.convertTypeName(resultType)).append(")\n")
+	}
+
+	def defineConstant(name : String, typeName : String, value : String) =
+	{
+		out.append("(define-fun ").append(name).append(" () ").append(SMTLib2ScriptWriter.convertTypeName(typeName)).append(" (").append(value).append("))\n")
+	}
+
+	def assertNamedFormula(formSMT : String) =
+	{
+		out.append("(assert (! ").append(formSMT).append(" :named ").append(SMTLib2ScriptWriter.NAMED_FORMULA_PREFIX).append(String.valueOf(namedFormulasCount)).append("))\n")
+
+		namedFormulasCount += 1
+	}
+
+	def push() =
+	{
+		out.append("(push 1)\n")
+	}
+
+	def pop() =
+	{
+		out.append("(pop 1)\n")
+	}
+
+	def check() =
+	{
+		out.append("(check-sat)\n")
+	}
+
+	/**
+	 * Models and unsat cores must be requested explicitly (see "getValues" and "getUnsatCore").
+	 */
+	def checkWithEvidence() =
+	{
+		check()
+	}
+
+	def getUnsatCore() =
+	{
+		out.append("(get-unsat-core)\n")
+	}
+
+	def getValues(names : Iterable[String]) =
+	{
+		out.append("(get-value (")
+
+		var first = true
+
+		for (name <- names)
+		{
+			if ( ! first ) out.append(" ")
+
+			out.append(name)
+
+			first = false
+		}
+
+		out.append("))\n")
+	}
+
+	/**
+	 * The language does not have verbosity levels that would affect answers, so nothing is emitted.
+	 */
+	def setVerbosity(level : Int) =
+	{
+	}
+
+	def setOption(name : String, value : String) =
+	{
+		out.append("(set-option ").append(name).append(" ").append(value).append(")\n")
+	}
+
+	def setLogic(logic : String) =
+	{
+		out.append("(set-logic ").append(logic).append(")\n")
+	}
+
+	def echo(text : String) =
+	{
+		out.append("(echo \"").append(text).append("\")\n")
+	}
+}
+
+object SMTLib2ScriptWriter
+{
+	val NAMED_FORMULA_PREFIX = "nf"
+
+
+	def convertTypeName(typeName : String) : String =
+	{
+		if (typeName == "int") return "Int"
+		if (typeName == "bool") return "Bool"
+		if (typeName == "real") return "Real"
+
+		return typeName
+	}
+}
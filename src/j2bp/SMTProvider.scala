@@ -20,16 +20,155 @@ import scala.collection.mutable.Map
 import scala.collection.mutable.HashMap
 import scala.util.matching.Regex
 
+import java.util.concurrent.Callable
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
+
 import common.LogicFormula
+import common.AtomicPredicate
 
 
 abstract class SMTProvider
 {
+	// metrics of solver usage (providers that cooperate on the same queries share them)
+	protected var statistics = new SMTStatistics()
+	
+	// decides simple queries without running the solver
+	private val preSolver = new EqualityPreSolver()
+	
+	
 	/**
 	 * This method checks validity of the formula "(resdetFormulas[1] and ... and resdetFormulas[N]) => weakPrecond".
 	 */
 	def checkValidity(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Boolean
 
+	/**
+	 * This method opens a context for a sequence of validity queries that share the given background formulas.
+	 * Providers may send the background to the solver only once and reuse it for all queries in the context.
+	 * Providers that accept concurrent callers keep a separate context for each calling thread.
+	 */
+	def openQueryContext(ctx : AbstractionContext, backgroundForms : Set[LogicFormula])
+	
+	/**
+	 * This method checks validity of the formula "(background formulas and resdetFormulas[1] and ... and resdetFormulas[N]) => weakPrecond" in the current context.
+	 */
+	def checkValidityInContext(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Boolean
+	
+	def closeQueryContext()
+	
+	/**
+	 * This method checks validity of the formula "(resdetFormulas[1] and ... and resdetFormulas[N]) => weakPrecond" for each pair of weakest precondition and cube in the list.
+	 * Results are returned in the same order. Providers may send all queries to the solver at once.
+	 */
+	def checkValidityBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])]) : List[Boolean] =
+	{
+		var results = List[Boolean]()
+		
+		for ( (weakPrecond, resdetCube) <- queries ) results = results :+ checkValidity(ctx, weakPrecond, resdetCube)
+		
+		return results
+	}
+	
+	/**
+	 * Variant of "checkValidityBatch" for the current context.
+	 */
+	def checkValidityInContextBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])]) : List[Boolean] =
+	{
+		var results = List[Boolean]()
+		
+		for ( (weakPrecond, resdetCube) <- queries ) results = results :+ checkValidityInContext(ctx, weakPrecond, resdetCube)
+		
+		return results
+	}
+	
+	/**
+	 * This method checks validity of the formula "(fixedForms and namedForms) => weakPrecond".
+	 * It returns a subset of named formulas that is sufficient for validity (unsat core of the negation), or null when the formula is not valid.
+	 * Providers that do not support unsat cores return all named formulas.
+	 */
+	def findImplyingSubset(ctx : AbstractionContext, weakPrecond : LogicFormula, fixedForms : Set[LogicFormula], namedForms : Set[LogicFormula]) : Set[LogicFormula] =
+	{
+		if (checkValidity(ctx, weakPrecond, fixedForms ++ namedForms)) return namedForms
+		else return null
+	}
+	
+	/**
+	 * This method returns a cube over the given predicates (one literal for each predicate) that is consistent with a model of the given formulas, or null if the formulas are not satisfiable.
+	 * Literals of predicates whose truth value is not determined by the model may be missing.
+	 */
+	def findSatisfyingCube(ctx : AbstractionContext, forms : Set[LogicFormula], preds : List[AtomicPredicate]) : Set[LogicFormula]
+	
+	/**
+	 * This method starts checking validity of the formula "(resdetFormulas[1] and ... and resdetFormulas[N]) => weakPrecond" and returns the future result.
+	 * Providers that cannot process queries concurrently compute the result before returning.
+	 */
+	def checkValidityAsync(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Future[Boolean] =
+	{
+		val task = new FutureTask[Boolean](new Callable[Boolean] 
+		{
+			def call() : Boolean = checkValidity(ctx, weakPrecond, resdetCube)
+		})
+		
+		task.run()
+		
+		return task
+	}
+	
+	/**
+	 * Asynchronous variant of "checkValidityInContext" (the query belongs to the context that is open at the time of the call).
+	 */
+	def checkValidityInContextAsync(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Future[Boolean] =
+	{
+		val task = new FutureTask[Boolean](new Callable[Boolean] 
+		{
+			def call() : Boolean = checkValidityInContext(ctx, weakPrecond, resdetCube)
+		})
+		
+		task.run()
+		
+		return task
+	}
+	
+	/**
+	 * This method tries to decide validity of the formula "(forms[1] and ... and forms[N]) => weakPrecond" without the solver.
+	 * It returns None when the query must be sent to the solver.
+	 */
+	protected def checkValidityWithoutSolver(weakPrecond : LogicFormula, forms : Set[LogicFormula]) : Option[Boolean] =
+	{
+		if ( ! Configuration.equalityPreSolver ) return None
+		
+		val res = preSolver.checkValidity(weakPrecond, forms)
+		
+		if (res != None) statistics.recordPreSolverAnswer()
+		
+		return res
+	}
+	
+	/**
+	 * Returns true if methods of the provider can be called from multiple threads at the same time.
+	 */
+	def supportsConcurrentCallers() : Boolean =
+	{
+		return false
+	}
+	
+	def getStatistics() : SMTStatistics =
+	{
+		return statistics
+	}
+	
+	def setStatistics(stats : SMTStatistics) =
+	{
+		statistics = stats
+	}
+	
+	/**
+	 * Drops all data derived from the current set of predicates (e.g., declarations of reserved symbols).
+	 * It is called whenever the predicates manager invalidates its caches.
+	 */
+	def invalidateCaches() =
+	{
+	}
 	
 	def resetCounters()
 
@@ -37,4 +176,9 @@ abstract class SMTProvider
 	 * This method can return a tuple if multiple counters are needed.
 	 */
 	def getCountersValue() : Long	
+	
+	/**
+	 * Releases external resources (e.g., solver processes) held by the provider.
+	 */
+	def shutdown()
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import java.io.BufferedReader
+import java.io.BufferedWriter
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.InputStreamReader
+import java.io.OutputStreamWriter
+import java.io.IOException
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+
+/**
+ * Compressed log of validity queries sent to the solver.
+ * Each record consists of a header line with tab-separated fields (tag, class, method, bytecode index, result, latency in microseconds, length of the script) that is followed by the standalone solver script of the query.
+ * All methods can be called from multiple threads.
+ */
+class SMTQueryLog (val fileName : String)
+{
+	private var out : BufferedWriter = null
+
+	try
+	{
+		out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(fileName)), "UTF-8"))
+	}
+	catch
+	{
+		case ex : IOException => println("[WARNING] cannot create the SMT query log " + fileName + ": " + ex.getMessage())
+	}
+
+
+	/**
+	 * The result is one of "valid", "invalid", and "unknown".
+	 */
+	def record(location : (String, String, Int, String), result : String, latencyNS : Long, smtScript : String) = synchronized
+	{
+		if (out != null)
+		{
+			try
+			{
+				out.write(SMTQueryLog.RECORD_TAG + "\t" + location._1 + "\t" + location._2 + "\t" + location._3 + "\t" + result + "\t" + (latencyNS / 1000) + "\t" + smtScript.length() + "\n")
+				out.write(smtScript)
+			}
+			catch
+			{
+				case ex : IOException =>
+				{
+					println("[WARNING] cannot write to the SMT query log " + fileName + ": " + ex.getMessage())
+					closeFile()
+				}
+			}
+		}
+	}
+
+	def close() = synchronized
+	{
+		closeFile()
+	}
+
+
+	private def closeFile() =
+	{
+		if (out != null)
+		{
+			try
+			{
+				out.close()
+			}
+			catch
+			{
+				case ex : IOException => ()
+			}
+
+			out = null
+		}
+	}
+}
+
+object SMTQueryLog
+{
+	val RECORD_TAG = "query"
+
+	val RESULT_VALID = "valid"
+	val RESULT_INVALID = "invalid"
+	val RESULT_UNKNOWN = "unknown"
+
+
+	class Record (val className : String, val methodName : String, val bcIndex : Int, val result : String, val latencyUS : Long, val smtScript : String)
+
+
+	/**
+	 * Returns the result of a validity query for the given solver output.
+	 */
+	def getResultForOutput(smtOut : String) : String =
+	{
+		if (smtOut.startsWith("unsat")) return RESULT_VALID
+
+		if (smtOut.startsWith("unknown")) return RESULT_UNKNOWN
+
+		return RESULT_INVALID
+	}
+
+	/**
+	 * Reads all records from the log file. An incomplete record at the end (written by an interrupted run) is ignored.
+	 */
+	def load(fileName : String) : List[Record] =
+	{
+		var records = List[Record]()
+
+		val in = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(fileName)), "UTF-8"))
+
+		try
+		{
+			var header = in.readLine()
+
+			while (header != null)
+			{
+				val fields = header.split("\t", -1)
+
+				if ((fields.length != 7) || (fields(0) != RECORD_TAG)) throw new IOException("malformed record header: " + header)
+
+				val script = new Array[Char](java.lang.Integer.parseInt(fields(6)))
+
+				var count = 0
+
+				while (count < script.length)
+				{
+					val n = in.read(script, count, script.length - count)
+
+					if (n < 0) return records.reverse
+
+					count += n
+				}
+
+				records = new Record(fields(1), fields(2), java.lang.Integer.parseInt(fields(3)), fields(4), java.lang.Long.parseLong(fields(5)), new String(script)) :: records
+
+				header = in.readLine()
+			}
+		}
+		catch
+		{
+			// end of a truncated file
+			case ex : java.io.EOFException => ()
+		}
+		finally
+		{
+			in.close()
+		}
+
+		return records.reverse
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+
+/**
+ * Replays a log of validity queries (see "SMTQueryLog") against the solver and reports throughput and latencies, so that solver settings can be compared without running the whole abstraction.
+ */
+object SMTQueryReplay
+{
+	/**
+	 * command-line arguments:
+	 * 1) file with the query log
+	 * 2) number of concurrent solver processes (optional, 1 by default)
+	 * 3) "session" for one long-running solver process per worker, or "process" for a new solver process per query (optional, "session" by default)
+	 * 4) command of an external SMT-LIB2 solver and 5) its capabilities (see "SMTSolverConfig") that must be the same as in the run that recorded the log, because scripts in the log are written in the language of that solver (optional, Yices by default)
+	 */
+	def main(args : Array[String]) =
+	{
+		if (args.length < 1)
+		{
+			println("[ERROR] usage: SMTQueryReplay <query log> [<number of workers> [session|process [<solver command> <solver capabilities>]]]")
+			System.exit(1)
+		}
+
+		val logFileName = args(0)
+		val numWorkers = if (args.length > 1) java.lang.Integer.parseInt(args(1)) else 1
+		val sessionMode = if (args.length > 2) (args(2) == "session") else true
+		val solverConfig = if (args.length > 3) SMTSolverConfig.parse(args(3), if (args.length > 4) args(4) else "") else null
+
+		val records = SMTQueryLog.load(logFileName).toArray
+
+		println("[REPLAY] queries = " + records.length + ", workers = " + numWorkers + ", mode = " + (if (sessionMode) "session" else "process") + ", solver = " + (if (solverConfig != null) solverConfig else YicesSMTProvider.SOLVER_COMMAND))
+
+		val latenciesNS = new Array[Long](records.length)
+		val results = new Array[String](records.length)
+
+		// each worker thread uses its own provider (and its solver session), which runs the solver with the same command, preamble, and session input as the run that recorded the log
+		val threadProvider = new ThreadLocal[ScriptSMTProvider]()
+		val allProviders = new ConcurrentLinkedQueue[ScriptSMTProvider]()
+
+		val executor = Executors.newFixedThreadPool(numWorkers)
+
+		val startTime = System.nanoTime()
+
+		var futures = List[Future[Unit]]()
+
+		for (i <- 0 until records.length)
+		{
+			futures = executor.submit(new Callable[Unit]
+			{
+				def call() : Unit =
+				{
+					val queryStartTime = System.nanoTime()
+
+					val smtOut = getProvider(solverConfig, threadProvider, allProviders).runQueryScript(records(i).smtScript, sessionMode)
+
+					latenciesNS(i) = System.nanoTime() - queryStartTime
+
+					results(i) = SMTQueryLog.getResultForOutput(smtOut)
+				}
+			}) :: futures
+		}
+
+		for (f <- futures) f.get()
+
+		val totalTimeNS = System.nanoTime() - startTime
+
+		executor.shutdown()
+
+		val it = allProviders.iterator()
+		while (it.hasNext()) it.next().shutdown()
+
+
+		var differentResults = 0
+		var unknownResults = 0
+
+		for (i <- 0 until records.length)
+		{
+			if (results(i) == SMTQueryLog.RESULT_UNKNOWN) unknownResults += 1
+			else if ((records(i).result != SMTQueryLog.RESULT_UNKNOWN) && (results(i) != records(i).result)) differentResults += 1
+		}
+
+		println("[REPLAY] total time = " + (totalTimeNS / 1000000) + " ms, throughput = " + "%.1f".format(records.length * 1000000000.0 / math.max(totalTimeNS, 1)) + " queries/s")
+
+		println("[REPLAY] latency (ms): " + formatPercentiles(latenciesNS.map(_ / 1000.0)))
+
+		println("[REPLAY] recorded latency (ms): " + formatPercentiles(records.map(_.latencyUS.toDouble)))
+
+		println("[REPLAY] unknown results = " + unknownResults + ", results different from the log = " + differentResults)
+	}
+
+
+	private def getProvider(solverConfig : SMTSolverConfig, threadProvider : ThreadLocal[ScriptSMTProvider], allProviders : ConcurrentLinkedQueue[ScriptSMTProvider]) : ScriptSMTProvider =
+	{
+		var provider = threadProvider.get()
+
+		if (provider == null)
+		{
+			provider = if (solverConfig != null) new SMTLib2SMTProvider(solverConfig) else new YicesSMTProvider
+
+			threadProvider.set(provider)
+			allProviders.add(provider)
+		}
+
+		return provider
+	}
+
+	/**
+	 * Values are given in microseconds and printed in milliseconds.
+	 */
+	private def formatPercentiles(valuesUS : Array[Double]) : String =
+	{
+		if (valuesUS.length == 0) return "no queries"
+
+		val sorted = valuesUS.sorted
+
+		var str = ""
+
+		for (p <- List(50, 90, 99))
+		{
+			val idx = math.min(sorted.length - 1, math.max(0, math.ceil(p * sorted.length / 100.0).toInt - 1))
+
+			str = str + "p" + p + " = " + "%.2f".format(sorted(idx) / 1000.0) + ", "
+		}
+
+		str = str + "max = " + "%.2f".format(sorted(sorted.length - 1) / 1000.0) + ", mean = " + "%.2f".format(sorted.sum / sorted.length / 1000.0)
+
+		return str
+	}
+}
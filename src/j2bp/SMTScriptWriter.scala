@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+
+/**
+ * Emits commands of some solver input language into the given output (e.g., a string builder or a writer connected to the solver process).
+ * Each command is appended to the output directly, so that scripts are never built by repeated concatenation of strings.
+ * Types are given in the notation of Yices ("int", "bool", argument types separated by spaces) and each subclass translates them into its own language.
+ */
+abstract class SMTScriptWriter (val out : java.lang.Appendable)
+{
+	def defineVariable(name : String, typeName : String)
+
+	def defineFunction(name : String, argTypes : String, resultType : String)
+
+	def defineConstant(name : String, typeName : String, value : String)
+
+	def assertFormula(formSMT : String) =
+	{
+		out.append("(assert ").append(formSMT).append(")\n")
+	}
+
+	/**
+	 * The solver can report formulas asserted in this way in unsat cores.
+	 */
+	def assertNamedFormula(formSMT : String)
+
+	/**
+	 * Asserts the formula "not (cube => weakPrecond)".
+	 */
+	def assertNegatedImplication(cubeSMT : Iterable[String], weakPrecondSMT : String) =
+	{
+		out.append("(assert (not (=> ")
+
+		if (cubeSMT.size > 1)
+		{
+			out.append("(and")
+
+			for (cubeElemSMT <- cubeSMT) out.append(" ").append(cubeElemSMT)
+
+			out.append(")")
+		}
+		else if (cubeSMT.size == 1)
+		{
+			out.append(cubeSMT.head)
+		}
+		else
+		{
+			out.append("true")
+		}
+
+		out.append(" ").append(weakPrecondSMT).append(" ) ) )\n")
+	}
+
+	def push()
+
+	def pop()
+
+	def check()
+
+	/**
+	 * The solver prints the model for satisfiable formulas and the unsat core for unsatisfiable formulas (if the language supports that).
+	 */
+	def checkWithEvidence()
+
+	def setVerbosity(level : Int)
+
+	/**
+	 * The solver prints the given text on a separate line.
+	 */
+	def echo(text : String)
+
+	/**
+	 * Appends commands that were already rendered.
+	 */
+	def append(commands : CharSequence) =
+	{
+		out.append(commands)
+	}
+
+	override def toString() : String =
+	{
+		return out.toString()
+	}
+}
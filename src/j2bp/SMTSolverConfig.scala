@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+
+/**
+ * External solver that reads SMT-LIB2 scripts from its standard input and prints answers to its standard output.
+ * Capabilities say whether the solver accepts incremental scripts (push/pop, several checks in one run), whether it reports unsat cores, and which option (if any) sets its own time limit for a query in milliseconds.
+ */
+class SMTSolverConfig (val command : String, val incremental : Boolean, val unsatCores : Boolean, val timeoutOption : String)
+{
+	override def toString() : String =
+	{
+		return command + " (incremental = " + incremental + ", unsat cores = " + unsatCores + ", timeout option = " + timeoutOption + ")"
+	}
+}
+
+object SMTSolverConfig
+{
+	/**
+	 * Capabilities are given as a comma-separated list of the items "incremental", "unsatcores", and "timeout=<option>" (e.g., "timeout=:timeout").
+	 */
+	def parse(command : String, capabilitiesStr : String) : SMTSolverConfig =
+	{
+		var incremental = false
+		var unsatCores = false
+		var timeoutOption : String = null
+
+		for (capStr <- capabilitiesStr.split(","))
+		{
+			val cap = capStr.trim()
+
+			if (cap == "incremental") incremental = true
+			else if (cap == "unsatcores") unsatCores = true
+			else if (cap.startsWith("timeout=")) timeoutOption = cap.substring("timeout=".length())
+			else if (cap.length() > 0) println("[WARNING] unknown capability of the SMT solver: " + cap)
+		}
+
+		return new SMTSolverConfig(command, incremental, unsatCores, timeoutOption)
+	}
+}
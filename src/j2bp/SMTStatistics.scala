@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import java.io.FileWriter
+
+import scala.collection.mutable.Map
+import scala.collection.mutable.HashMap
+
+import util.BoundedCache
+
+
+/**
+ * Metrics of solver usage (validity queries, cache hits and misses, sizes of solver inputs, latencies of solver runs).
+ * Metrics are collected separately for each code location (class, method, bytecode index) and updated predicate.
+ * All methods are synchronized because queries may be processed by several threads.
+ * The current location is kept separately for each thread, so tasks computed by other threads must be run in the location of the submitting thread (see "runInLocation").
+ */
+class SMTStatistics
+{
+	class Metrics
+	{
+		var validityCacheHits : Long = 0
+		var validityCacheMisses : Long = 0
+
+		// queries decided without the solver
+		var preSolverAnswers : Long = 0
+
+		var form2SMTCacheHits : Long = 0
+		var form2SMTCacheMisses : Long = 0
+
+		var expr2SMTCacheHits : Long = 0
+		var expr2SMTCacheMisses : Long = 0
+
+		var solverRuns : Long = 0
+		var solverInputBytes : Long = 0
+		var solverTimeNS : Long = 0
+
+		// the last bucket counts runs longer than all bounds
+		val latencyHistogram = new Array[Long](SMTStatistics.LATENCY_BOUNDS_MS.length + 1)
+
+		// result-determining predicates given to the statement resolver and those dropped by slicing
+		var resdetPredicates : Long = 0
+		var slicedPredicates : Long = 0
+
+		// new truth values of updated predicates were computed in the Cartesian mode
+		var cartesianMode = false
+	}
+
+
+	// class, method, bytecode index, and updated predicate (for each thread)
+	private val curLocation = new ThreadLocal[(String, String, Int, String)]()
+	{
+		override def initialValue() : (String, String, Int, String) = SMTStatistics.UNKNOWN_LOCATION
+	}
+
+	private val location2metrics : Map[(String, String, Int, String), Metrics] = new HashMap
+
+	private var totals = new Metrics()
+
+
+	/**
+	 * All following queries of the calling thread are attributed to the given location (until it is changed or cleared).
+	 */
+	def setCurrentLocation(className : String, methodName : String, bcIndex : Int, updatedPred : String) : Unit =
+	{
+		setCurrentLocation( (className, methodName, bcIndex, updatedPred) )
+	}
+
+	def setCurrentLocation(location : (String, String, Int, String)) : Unit =
+	{
+		curLocation.set(location)
+	}
+
+	def clearCurrentLocation() =
+	{
+		curLocation.set(SMTStatistics.UNKNOWN_LOCATION)
+	}
+
+	def getCurrentLocation() : (String, String, Int, String) =
+	{
+		return curLocation.get()
+	}
+
+	/**
+	 * Runs the task with the given current location, and restores the previous location of the calling thread afterwards.
+	 */
+	def runInLocation[T](location : (String, String, Int, String), task : () => T) : T =
+	{
+		val prevLocation = curLocation.get()
+
+		curLocation.set(location)
+
+		try
+		{
+			return task()
+		}
+		finally
+		{
+			curLocation.set(prevLocation)
+		}
+	}
+
+	def recordValidityQuery(cacheHit : Boolean) = synchronized
+	{
+		if (Configuration.collectSMTStatistics)
+		{
+			for (m <- List(totals, getCurrentMetrics()))
+			{
+				if (cacheHit) m.validityCacheHits += 1
+				else m.validityCacheMisses += 1
+			}
+		}
+	}
+
+	def recordPreSolverAnswer() = synchronized
+	{
+		if (Configuration.collectSMTStatistics)
+		{
+			for (m <- List(totals, getCurrentMetrics())) m.preSolverAnswers += 1
+		}
+	}
+
+	def recordForm2SMTLookup(cacheHit : Boolean) = synchronized
+	{
+		if (Configuration.collectSMTStatistics)
+		{
+			for (m <- List(totals, getCurrentMetrics()))
+			{
+				if (cacheHit) m.form2SMTCacheHits += 1
+				else m.form2SMTCacheMisses += 1
+			}
+		}
+	}
+
+	def recordExpr2SMTLookup(cacheHit : Boolean) = synchronized
+	{
+		if (Configuration.collectSMTStatistics)
+		{
+			for (m <- List(totals, getCurrentMetrics()))
+			{
+				if (cacheHit) m.expr2SMTCacheHits += 1
+				else m.expr2SMTCacheMisses += 1
+			}
+		}
+	}
+
+	/**
+	 * Records one run of the solver on an input of the given size that took the given time (in nanoseconds).
+	 */
+	def recordSolverRun(inputBytes : Long, timeNS : Long) = synchronized
+	{
+		if (Configuration.collectSMTStatistics)
+		{
+			val timeMS = timeNS / 1000000
+
+			var bucket = 0
+			while ((bucket < SMTStatistics.LATENCY_BOUNDS_MS.length) && (timeMS > SMTStatistics.LATENCY_BOUNDS_MS(bucket))) bucket += 1
+
+			for (m <- List(totals, getCurrentMetrics()))
+			{
+				m.solverRuns += 1
+				m.solverInputBytes += inputBytes
+				m.solverTimeNS += timeNS
+
+				m.latencyHistogram(bucket) += 1
+			}
+		}
+	}
+
+	/**
+	 * Records the result of slicing of result-determining predicates for a statement (the location is given explicitly, because slicing precedes all queries about the statement).
+	 */
+	def recordSlicedPredicates(className : String, methodName : String, bcIndex : Int, updatedPred : String, predCount : Int, slicedCount : Int) = synchronized
+	{
+		if (Configuration.collectSMTStatistics)
+		{
+			for (m <- List(totals, location2metrics.getOrElseUpdate((className, methodName, bcIndex, updatedPred), new Metrics())))
+			{
+				m.resdetPredicates += predCount
+				m.slicedPredicates += slicedCount
+			}
+		}
+	}
+
+	def markCurrentLocationCartesian() = synchronized
+	{
+		if (Configuration.collectSMTStatistics) getCurrentMetrics().cartesianMode = true
+	}
+
+	/**
+	 * Returns the number of solver runs for locations resolved in the Cartesian mode and for other locations (including queries made outside of any statement).
+	 */
+	def getSolverRunsByMode() : (Long, Long) = synchronized
+	{
+		var cartesianRuns : Long = 0
+
+		for ( (loc, m) <- location2metrics if m.cartesianMode ) cartesianRuns += m.solverRuns
+
+		return (cartesianRuns, totals.solverRuns - cartesianRuns)
+	}
+
+	def reset() = synchronized
+	{
+		location2metrics.clear()
+
+		totals = new Metrics()
+	}
+
+	/**
+	 * Writes all metrics into the given file in the JSON format.
+	 * Locations are sorted by the total time spent in the solver (the most expensive first).
+	 */
+	def writeToFile(fileName : String) = synchronized
+	{
+		val out = new FileWriter(fileName)
+
+		out.write("{\n")
+
+		out.write("\t\"totals\": " + metricsToJSON(totals) + ",\n")
+
+		// counters of in-memory caches (for the whole run)
+
+		out.write("\t\"caches\": {")
+
+		var firstCache = true
+
+		for ( (cacheName, counters) <- BoundedCache.getAllCounters() )
+		{
+			if ( ! firstCache ) out.write(",")
+
+			out.write("\n\t\t" + SMTStatistics.quote(cacheName) + ": {\"hits\": " + counters.hits.get() + ", \"misses\": " + counters.misses.get() + ", \"evictions\": " + counters.evictions.get() + "}")
+
+			firstCache = false
+		}
+
+		out.write("\n\t},\n")
+
+		out.write("\t\"locations\": [")
+
+		val sortedLocations = location2metrics.toList.sortWith( (l1, l2) => (l1._2.solverTimeNS > l2._2.solverTimeNS) || ((l1._2.solverTimeNS == l2._2.solverTimeNS) && (l1._1.toString() < l2._1.toString())) )
+
+		var first = true
+
+		for ( ((className, methodName, bcIndex, updatedPred), m) <- sortedLocations )
+		{
+			if ( ! first ) out.write(",")
+
+			out.write("\n\t\t{\"class\": " + SMTStatistics.quote(className) + ", \"method\": " + SMTStatistics.quote(methodName) + ", \"bcIndex\": " + bcIndex + ", \"updatedPredicate\": " + SMTStatistics.quote(updatedPred) + ", \"cartesianMode\": " + m.cartesianMode + ", \"metrics\": " + metricsToJSON(m) + "}")
+
+			first = false
+		}
+
+		out.write("\n\t]\n")
+
+		out.write("}\n")
+
+		out.close()
+	}
+
+
+	private def getCurrentMetrics() : Metrics =
+	{
+		return location2metrics.getOrElseUpdate(curLocation.get(), new Metrics())
+	}
+
+	private def metricsToJSON(m : Metrics) : String =
+	{
+		var histogramStr = ""
+
+		for (i <- 0 until m.latencyHistogram.length)
+		{
+			if (i > 0) histogramStr = histogramStr + ", "
+
+			if (i < SMTStatistics.LATENCY_BOUNDS_MS.length) histogramStr = histogramStr + "\"<=" + SMTStatistics.LATENCY_BOUNDS_MS(i) + "\": " + m.latencyHistogram(i)
+			else histogramStr = histogramStr + "\">" + SMTStatistics.LATENCY_BOUNDS_MS(i - 1) + "\": " + m.latencyHistogram(i)
+		}
+
+		return "{\"queries\": " + (m.validityCacheHits + m.validityCacheMisses + m.preSolverAnswers) +
+			", \"validityCacheHits\": " + m.validityCacheHits + ", \"validityCacheMisses\": " + m.validityCacheMisses + ", \"preSolverAnswers\": " + m.preSolverAnswers +
+			", \"form2SMTCacheHits\": " + m.form2SMTCacheHits + ", \"form2SMTCacheMisses\": " + m.form2SMTCacheMisses +
+			", \"expr2SMTCacheHits\": " + m.expr2SMTCacheHits + ", \"expr2SMTCacheMisses\": " + m.expr2SMTCacheMisses +
+			", \"solverRuns\": " + m.solverRuns + ", \"solverInputBytes\": " + m.solverInputBytes + ", \"solverTimeMS\": " + (m.solverTimeNS / 1000000) +
+			", \"resdetPredicates\": " + m.resdetPredicates + ", \"slicedPredicates\": " + m.slicedPredicates +
+			", \"latencyHistogramMS\": {" + histogramStr + "}}"
+	}
+}
+
+object SMTStatistics
+{
+	// queries made outside of any statement (e.g., during initialization)
+	val UNKNOWN_LOCATION = ("", "", -1, "")
+
+	// upper bounds of buckets in the histogram of solver latencies (in milliseconds)
+	val LATENCY_BOUNDS_MS = Array[Long](1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000)
+
+
+	def quote(str : String) : String =
+	{
+		val sb = new StringBuilder("\"")
+
+		for (c <- str)
+		{
+			if ((c == '"') || (c == '\\')) sb.append('\\').append(c)
+			else if (c < ' ') sb.append("\\u%04x".format(c.toInt))
+			else sb.append(c)
+		}
+
+		sb.append("\"")
+
+		return sb.toString()
+	}
+}
@@ -0,0 +1,1313 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+import java.io.Writer
+import java.io.OutputStreamWriter
+
+import scala.collection.immutable.List
+import scala.collection.mutable.Map
+import scala.collection.mutable.HashMap
+import scala.util.matching.Regex
+
+import common._
+
+import util.StringUtils
+import util.BoundedCache
+
+
+/**
+ * Base of providers that run an external solver process and send it queries as textual scripts (see "SMTScriptWriter").
+ * It handles caches, solver sessions, query contexts, and batches, while subclasses give the solver command, the input language, and the parts of the translation and of the output parsing that depend on the solver.
+ */
+abstract class ScriptSMTProvider extends SMTProvider
+{
+	// keys are digests of the textual forms (see "BoundedCache.digestKey")
+	protected val cacheForm2SMT = new BoundedCache[String, String]("form2SMT", Configuration.smtTranslationCacheMaxEntries)
+	protected val cacheExpr2SMT = new BoundedCache[String, String]("expr2SMT", Configuration.smtTranslationCacheMaxEntries)
+	
+	// keys are digests of canonical forms of queries (see "createCanonicalQuery")
+	protected val cacheValidityQuery2Result = new BoundedCache[String, Boolean]("validityQuery2Result", Configuration.smtValidityCacheMaxEntries)
+	
+	protected var numSolverCalls : Long = 0
+	
+	// long-running solver process used in the session mode
+	protected var solverSession : util.InteractiveProcess = null
+	
+	protected var sessionRestarts : Int = 0
+	
+	// background formulas of the current query context and names declared for them
+	protected var ctxBackgroundForms : Set[LogicFormula] = null
+	protected var ctxDeclaredVars = Set[String]()
+	protected var ctxDeclaredFunctions = Set[String]()
+	
+	// the background was sent to the solver session (it is in a separate scope)
+	protected var ctxPushed = false
+	
+	// the current context cannot be used (no session, inconsistent background) and queries are checked in the usual way
+	protected var ctxFailed = false
+	
+	// declarations of reserved variables, functions, and constants that are shared by all scripts (null if they must be rendered again)
+	private var reservedDeclarations : String = null
+	private var reservedVarNames = Set[String]()
+	private var reservedFunctionNames = Set[String]()
+	
+	// all reserved symbols in the textual form (it is a part of keys in the persistent cache)
+	private var reservedSymbolsKey : String = null
+	
+	
+	/**
+	 * This method checks validity of the formula "(resdetFormulas[1] and ... and resdetFormulas[N]) => weakPrecond".
+	 */
+	def checkValidity(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Boolean =
+	{
+		val queryKey = createCanonicalQuery(weakPrecond, resdetCube)
+		
+		val cacheKey = BoundedCache.digestKey(queryKey)
+		
+		var queryResultOpt = cacheValidityQuery2Result.get(cacheKey)
+		
+		if (queryResultOpt != None)
+		{
+			statistics.recordValidityQuery(true)
+			
+			return queryResultOpt.get
+		}
+		
+		queryResultOpt = checkValidityWithoutSolver(weakPrecond, resdetCube)
+		
+		if (queryResultOpt != None)
+		{
+			cacheValidityQuery2Result.put(cacheKey, queryResultOpt.get)
+			
+			return queryResultOpt.get
+		}
+		
+		// results from previous runs
+		
+		val storeKey = createPersistentQueryKey(queryKey)
+		
+		if (storeKey != null)
+		{
+			queryResultOpt = Configuration.queryResultsStore.get(storeKey)
+			
+			if (queryResultOpt != None)
+			{
+				statistics.recordValidityQuery(true)
+				
+				cacheValidityQuery2Result.put(cacheKey, queryResultOpt.get)
+				
+				return queryResultOpt.get
+			}
+		}
+		
+		
+		val smtInput = createValidityQueryScript(weakPrecond, resdetCube)
+		
+		val startTime = System.nanoTime()
+		
+		val smtResult : (Int, String, String) = runSolver(smtInput)
+		
+		val latencyNS = System.nanoTime() - startTime
+		
+		numSolverCalls += 1
+		
+		statistics.recordValidityQuery(false)
+		
+		if (Main.DEBUG) printSolverInputOutput("[DEBUG ScriptSMTProvider.checkValidity]", smtInput, smtResult._1, smtResult._2)
+			
+		// some error occurred
+		if (smtResult._1 != 0) 
+		{
+			println("[ERROR] solver failed, error message = " + smtResult._3)
+			
+			println("[ERROR] input for the SMT solver:")
+			val smtInputLines : Array[String] = smtInput.split("\n")
+			for (line <- smtInputLines) println("\t" + line)
+			
+			return false
+		}
+		
+		val smtOut = smtResult._2
+
+		
+		// the formula is valid only if the solver proved it (the answer "unknown" is given also when the solver runs out of time)
+		val queryResult = smtOut.startsWith("unsat")
+		
+		logQuery(weakPrecond, resdetCube, smtOut, latencyNS)
+		
+		cacheValidityQuery2Result.put(cacheKey, queryResult)
+		
+		// unknown results are not stored, so that the next run can try again
+		if ((storeKey != null) && ( ! smtOut.startsWith("unknown") )) Configuration.queryResultsStore.put(storeKey, queryResult)
+		
+		return queryResult
+	}
+	
+	/**
+	 * Creates the complete input script for the solver (declarations, the negated implication, and the check command).
+	 */
+	protected def createValidityQueryScript(weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : String =
+	{
+		val smtScript = createScriptWriter()
+		
+		if (Main.DEBUG) println("[DEBUG ScriptSMTProvider.checkValidity] weakest precondition: " + weakPrecond.toString())
+
+		// write type declarations
+		writeDeclarations(smtScript, resdetCube + weakPrecond, Set[String](), Set[String](), true)
+		
+		writeNegatedImplication(smtScript, weakPrecond, resdetCube)
+		
+		// run the satisfiability check
+		smtScript.check()
+		
+		return smtScript.toString()
+	}
+	
+	/**
+	 * Records the query into the query log (if it is enabled), where the query is represented by a standalone script.
+	 */
+	private def logQuery(weakPrecond : LogicFormula, forms : Set[LogicFormula], smtOut : String, latencyNS : Long) =
+	{
+		if (Configuration.smtQueryLog != null) Configuration.smtQueryLog.record(statistics.getCurrentLocation(), SMTQueryLog.getResultForOutput(smtOut), latencyNS, createValidityQueryScript(weakPrecond, forms))
+	}
+	
+	/**
+	 * Writes declarations of variables and fields used in the given formulas that are not declared yet (i.e., they are not in the given sets), and returns the updated sets of declared names.
+	 * Reserved variables, functions, and constants are declared only if "withReserved" is true.
+	 */
+	protected def writeDeclarations(smtScript : SMTScriptWriter, forms : Set[LogicFormula], alreadyDeclaredVars : Set[String], alreadyDeclaredFunctions : Set[String], withReserved : Boolean) : (Set[String], Set[String]) =
+	{
+		var formVarNames = Set[String]()
+		var formFieldNames = Set[String]()
+		
+		
+		// extract variable names and field names from the cube and weakest precondition
+		
+		for (formElem <- forms)
+		{
+			for (vname <- FormulaUtils.extractVariableNames(formElem))
+			{
+				if ( ! Configuration.predicatesMngr.isReservedName(vname) ) 
+				{
+					formVarNames = formVarNames + vname
+				}
+			}
+			
+			formFieldNames = formFieldNames ++ FormulaUtils.extractFieldNames(formElem)
+		}
+			
+		if (Main.DEBUG) StringUtils.printStringSet("[DEBUG ScriptSMTProvider.checkValidity] variable names from the whole formula: ", formVarNames)
+		
+		if (Main.DEBUG) StringUtils.printStringSet("[DEBUG ScriptSMTProvider.checkValidity] field names from the whole formula: ", formFieldNames)
+
+		
+		var declaredVars = alreadyDeclaredVars
+		
+		for (vname <- formVarNames)
+		{
+			if ( ! declaredVars.contains(vname) )
+			{
+				smtScript.defineVariable(convertNameToSMT(vname), "int")
+				declaredVars = declaredVars + vname
+			}
+		}
+
+		var declaredFunctions = alreadyDeclaredFunctions
+		
+		for (fieldName <- formFieldNames)
+		{
+			if ( ! declaredFunctions.contains(fieldName) )
+			{
+				smtScript.defineFunction(convertNameToSMT(fieldName), "int", "int")
+				declaredFunctions = declaredFunctions + fieldName
+			}
+		}
+
+		
+		// built-in variables and functions
+		
+		if (withReserved)
+		{
+			prepareReservedDeclarations()
+			
+			if ( (declaredVars & reservedVarNames).isEmpty && (declaredFunctions & reservedFunctionNames).isEmpty )
+			{
+				// the usual case (no reserved name is already declared)
+				
+				smtScript.append(reservedDeclarations)
+				
+				declaredVars = declaredVars ++ reservedVarNames
+				declaredFunctions = declaredFunctions ++ reservedFunctionNames
+			}
+			else
+			{
+				for (rvar <- Configuration.predicatesMngr.getReservedVariableNames())
+				{
+					if ( ! declaredVars.contains(rvar) )
+					{
+						smtScript.defineVariable(rvar, "int")
+						declaredVars = declaredVars + rvar
+					}
+				}			
+				
+				for (rfunc <- Configuration.predicatesMngr.getReservedFunctionSignatures())
+				{
+					if ( ! declaredFunctions.contains(rfunc._1) )
+					{
+						smtScript.defineFunction(rfunc._1, rfunc._2, rfunc._3)
+						declaredFunctions = declaredFunctions + rfunc._1
+					}
+				}
+				
+				for (rconst <- Configuration.predicatesMngr.getReservedConstants())
+				{
+					smtScript.defineConstant(rconst._1, "int", rconst._2)
+				}
+			}
+		}
+		
+		return (declaredVars, declaredFunctions)
+	}
+	
+	/**
+	 * Renders declarations of all reserved variables, functions, and constants, unless they are already available.
+	 * They do not change until the set of predicates changes (see "invalidateCaches").
+	 */
+	private def prepareReservedDeclarations() =
+	{
+		if (reservedDeclarations == null)
+		{
+			val smtScript = createScriptWriter()
+			
+			reservedVarNames = Set[String]()
+			
+			for (rvar <- Configuration.predicatesMngr.getReservedVariableNames())
+			{
+				if ( ! reservedVarNames.contains(rvar) )
+				{
+					smtScript.defineVariable(rvar, "int")
+					reservedVarNames = reservedVarNames + rvar
+				}
+			}
+			
+			reservedFunctionNames = Set[String]()
+			
+			for (rfunc <- Configuration.predicatesMngr.getReservedFunctionSignatures())
+			{
+				if ( ! reservedFunctionNames.contains(rfunc._1) )
+				{
+					smtScript.defineFunction(rfunc._1, rfunc._2, rfunc._3)
+					reservedFunctionNames = reservedFunctionNames + rfunc._1
+				}
+			}
+			
+			for (rconst <- Configuration.predicatesMngr.getReservedConstants())
+			{
+				smtScript.defineConstant(rconst._1, "int", rconst._2)
+			}
+			
+			reservedSymbolsKey = Configuration.predicatesMngr.getReservedVariableNames().mkString(" ") + "\n" + Configuration.predicatesMngr.getReservedFunctionSignatures().mkString(" ") + "\n" + Configuration.predicatesMngr.getReservedConstants().mkString(" ")
+			
+			reservedDeclarations = smtScript.toString()
+		}
+	}
+	
+	override def invalidateCaches() =
+	{
+		reservedDeclarations = null
+		reservedSymbolsKey = null
+		
+		reservedVarNames = Set[String]()
+		reservedFunctionNames = Set[String]()
+	}
+	
+	/**
+	 * Returns the key for the persistent cache of results, or null if there is no persistent cache.
+	 * Declarations of variables and fields follow from the formulas, so only the reserved symbols are added to the canonical query.
+	 */
+	protected def createPersistentQueryKey(canonicalQuery : String) : String =
+	{
+		if (Configuration.queryResultsStore == null) return null
+		
+		prepareReservedDeclarations()
+		
+		return reservedSymbolsKey + "\n" + canonicalQuery
+	}
+	
+	/**
+	 * Returns the textual form of the query, where variables (program, temporary, logic) are renamed to positional names and formulas of the cube are sorted.
+	 * Queries that differ only in names of variables and in the order of formulas have the same canonical form, and therefore also the same result.
+	 */
+	protected def createCanonicalQuery(weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : String =
+	{
+		// SMT names of all variables that can be renamed
+		
+		var varNamesSMT = Set[String]()
+		
+		for (form <- resdetCube + weakPrecond)
+		{
+			for (vname <- FormulaUtils.extractVariableNames(form))
+			{
+				if ( ! Configuration.predicatesMngr.isReservedName(vname) ) varNamesSMT = varNamesSMT + convertNameToSMT(vname)
+			}
+		}
+		
+		// formulas are ordered by their shape (i.e., with all variable names masked) and then by their text, so that positions of variables depend on names as little as possible
+		
+		var shapeAndFormsSMT = List[(String, String)]()
+		
+		for (cubeElem <- resdetCube)
+		{
+			val cubeElemSMT = convertFormulaToSMT(cubeElem)
+			
+			shapeAndFormsSMT = (renameVariables(cubeElemSMT, varNamesSMT, null), cubeElemSMT) :: shapeAndFormsSMT
+		}
+		
+		shapeAndFormsSMT = shapeAndFormsSMT.sorted
+		
+		// variables get positional names in the order of their first occurrence (in the weakest precondition and then in the sorted cube)
+		
+		val var2posname : Map[String, String] = new HashMap
+		
+		val canonWP = renameVariables(convertFormulaToSMT(weakPrecond), varNamesSMT, var2posname)
+		
+		var canonCube = List[String]()
+		
+		for ( (shape, cubeElemSMT) <- shapeAndFormsSMT ) canonCube = renameVariables(cubeElemSMT, varNamesSMT, var2posname) :: canonCube
+		
+		return canonCube.sorted.mkString("\n") + "\n=> " + canonWP
+	}
+	
+	/**
+	 * Replaces each variable name in the given SMT formula with its positional name (new positional names are recorded in the map).
+	 * All variable names are replaced with the same mask when the map is null.
+	 */
+	private def renameVariables(formSMT : String, varNamesSMT : Set[String], var2posname : Map[String, String]) : String =
+	{
+		val canonFormSMT = new StringBuilder()
+		
+		var i = 0
+		
+		while (i < formSMT.length())
+		{
+			if (ScriptSMTProvider.isTokenDelimiter(formSMT.charAt(i)))
+			{
+				canonFormSMT.append(formSMT.charAt(i))
+				i += 1
+			}
+			else
+			{
+				var j = i
+				
+				while ((j < formSMT.length()) && ( ! ScriptSMTProvider.isTokenDelimiter(formSMT.charAt(j)) )) j += 1
+				
+				val token = formSMT.substring(i, j)
+				
+				if ( ! varNamesSMT.contains(token) ) canonFormSMT.append(token)
+				else if (var2posname == null) canonFormSMT.append("?")
+				else canonFormSMT.append(var2posname.getOrElseUpdate(token, "?" + var2posname.size))
+				
+				i = j
+			}
+		}
+		
+		return canonFormSMT.toString()
+	}
+	
+	/**
+	 * We check validity of the formula "cube => weakPrecond" by checking satisfiability of its negation.
+	 */
+	protected def writeNegatedImplication(smtScript : SMTScriptWriter, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) =
+	{
+		smtScript.assertNegatedImplication(resdetCube.toList.map(convertFormulaToSMT), convertFormulaToSMT(weakPrecond))
+	}
+	
+	
+	def openQueryContext(ctx : AbstractionContext, backgroundForms : Set[LogicFormula]) =
+	{
+		closeQueryContext()
+		
+		ctxBackgroundForms = backgroundForms
+		
+		// the background formulas are sent to the solver lazily (with the first query that is not cached)
+		ctxPushed = false
+		
+		// incremental contexts are supported only in the session mode
+		ctxFailed = ! isSessionMode()
+	}
+	
+	/**
+	 * This method checks validity of the formula "(background formulas and resdetFormulas[1] and ... and resdetFormulas[N]) => weakPrecond" in the current context.
+	 * Only the formulas of the cube that are not in the background are sent to the solver.
+	 */
+	def checkValidityInContext(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Boolean =
+	{
+		if (ctxBackgroundForms == null) return checkValidity(ctx, weakPrecond, resdetCube)
+		
+		val allForms = resdetCube ++ ctxBackgroundForms
+		
+		val queryKey = createCanonicalQuery(weakPrecond, allForms)
+		
+		val cacheKey = BoundedCache.digestKey(queryKey)
+		
+		var queryResultOpt = cacheValidityQuery2Result.get(cacheKey)
+		
+		if (queryResultOpt != None)
+		{
+			statistics.recordValidityQuery(true)
+			
+			return queryResultOpt.get
+		}
+		
+		queryResultOpt = checkValidityWithoutSolver(weakPrecond, allForms)
+		
+		if (queryResultOpt != None)
+		{
+			cacheValidityQuery2Result.put(cacheKey, queryResultOpt.get)
+			
+			return queryResultOpt.get
+		}
+		
+		val storeKey = createPersistentQueryKey(queryKey)
+		
+		if (storeKey != null)
+		{
+			queryResultOpt = Configuration.queryResultsStore.get(storeKey)
+			
+			if (queryResultOpt != None)
+			{
+				statistics.recordValidityQuery(true)
+				
+				cacheValidityQuery2Result.put(cacheKey, queryResultOpt.get)
+				
+				return queryResultOpt.get
+			}
+		}
+		
+		
+		if (( ! ctxFailed ) && ( ! ctxPushed )) pushQueryContext()
+		
+		// we cannot use the context -> the whole formula is checked in the usual way
+		if (ctxFailed) return checkValidity(ctx, weakPrecond, allForms)
+		
+		
+		if (Main.DEBUG) println("[DEBUG ScriptSMTProvider.checkValidityInContext] weakest precondition: " + weakPrecond.toString())
+		
+		val queryForms = resdetCube -- ctxBackgroundForms
+		
+		// names declared in the query scope are dropped at "pop" together with the assertion
+		
+		val smtScript = createScriptWriter()
+		
+		writeDeclarations(smtScript, queryForms + weakPrecond, ctxDeclaredVars, ctxDeclaredFunctions, false)
+		
+		writeNegatedImplication(smtScript, weakPrecond, queryForms)
+		
+		smtScript.check()
+		
+		val smtInput = smtScript.toString()
+		
+		val startTime = System.nanoTime()
+		
+		val sessionOut = exchangeInSession(createScopedSessionInput(smtInput))
+		
+		if (sessionOut == null) return checkValidity(ctx, weakPrecond, allForms)
+		
+		val latencyNS = System.nanoTime() - startTime
+		
+		numSolverCalls += 1
+		
+		statistics.recordValidityQuery(false)
+		
+		if (Main.DEBUG) printSolverInputOutput("[DEBUG ScriptSMTProvider.checkValidityInContext]", smtInput, 0, sessionOut)
+		
+		
+		val queryResult = sessionOut.startsWith("unsat")
+		
+		logQuery(weakPrecond, allForms, sessionOut, latencyNS)
+		
+		cacheValidityQuery2Result.put(cacheKey, queryResult)
+		
+		if ((storeKey != null) && ( ! sessionOut.startsWith("unknown") )) Configuration.queryResultsStore.put(storeKey, queryResult)
+		
+		return queryResult
+	}
+	
+	/**
+	 * All queries are sent to the solver in one script, where each query is checked in a separate scope (push/pop) and the declarations are shared.
+	 */
+	override def checkValidityBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])]) : List[Boolean] =
+	{
+		return checkValidityBatch(ctx, queries, false)
+	}
+	
+	override def checkValidityInContextBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])]) : List[Boolean] =
+	{
+		return checkValidityBatch(ctx, queries, (ctxBackgroundForms != null))
+	}
+	
+	private def checkValidityBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])], inContext : Boolean) : List[Boolean] =
+	{
+		val queryResults = new Array[Boolean](queries.size)
+		
+		// indexes of queries that must be sent to the solver, their formulas and keys
+		var pendingQueries = List[(Int, LogicFormula, Set[LogicFormula], String)]()
+		
+		for (i <- 0 until queries.size)
+		{
+			val weakPrecond = queries(i)._1
+			
+			val allForms = if (inContext) queries(i)._2 ++ ctxBackgroundForms else queries(i)._2
+			
+			val queryKey = createCanonicalQuery(weakPrecond, allForms)
+			
+			val cacheKey = BoundedCache.digestKey(queryKey)
+			
+			var queryResultOpt = cacheValidityQuery2Result.get(cacheKey)
+			
+			if (queryResultOpt != None)
+			{
+				statistics.recordValidityQuery(true)
+			}
+			else
+			{
+				queryResultOpt = checkValidityWithoutSolver(weakPrecond, allForms)
+				
+				if (queryResultOpt == None)
+				{
+					val storeKey = createPersistentQueryKey(queryKey)
+					
+					if (storeKey != null) queryResultOpt = Configuration.queryResultsStore.get(storeKey)
+					
+					if (queryResultOpt != None) statistics.recordValidityQuery(true)
+				}
+			}
+			
+			if (queryResultOpt != None) 
+			{
+				queryResults(i) = queryResultOpt.get
+				
+				cacheValidityQuery2Result.put(cacheKey, queryResultOpt.get)
+			}
+			else
+			{
+				pendingQueries = pendingQueries :+ (i, weakPrecond, allForms, queryKey)
+			}
+		}
+		
+		if (pendingQueries.size == 0) return queryResults.toList
+		
+		
+		if (inContext && ( ! ctxFailed ) && ( ! ctxPushed )) pushQueryContext()
+		
+		val useContext = inContext && ctxPushed
+		
+		var batchOut : String = null
+		
+		val batchStartTime = System.nanoTime()
+		
+		if ((pendingQueries.size > 1) && isIncremental())
+		{
+			var queryFormsList = List[(LogicFormula, Set[LogicFormula])]()
+			
+			var allQueryForms = Set[LogicFormula]()
+			
+			for ( (i, weakPrecond, allForms, queryKey) <- pendingQueries )
+			{
+				// formulas in the background of the context are not sent again
+				val queryForms = if (useContext) allForms -- ctxBackgroundForms else allForms
+				
+				queryFormsList = queryFormsList :+ (weakPrecond, queryForms)
+				
+				allQueryForms = allQueryForms ++ queryForms + weakPrecond
+			}
+			
+			val smtScript = createScriptWriter()
+			
+			if (useContext) writeDeclarations(smtScript, allQueryForms, ctxDeclaredVars, ctxDeclaredFunctions, false)
+			else writeDeclarations(smtScript, allQueryForms, Set[String](), Set[String](), true)
+			
+			for ( (weakPrecond, queryForms) <- queryFormsList )
+			{
+				smtScript.push()
+				writeNegatedImplication(smtScript, weakPrecond, queryForms)
+				smtScript.check()
+				smtScript.pop()
+			}
+			
+			batchOut = runBatchScript(smtScript.toString(), useContext)
+		}
+		
+		// each check prints one answer (the solver may print also models and other messages)
+		
+		var answers = List[String]()
+		
+		if (batchOut != null)
+		{
+			for (line <- batchOut.split("\n"))
+			{
+				if ((line == "sat") || (line == "unsat") || (line == "unknown")) answers = answers :+ line
+			}
+		}
+		
+		if (batchOut eq ScriptSMTProvider.TIMEOUT_OUTPUT)
+		{
+			// the solver ran out of time somewhere in the batch and we do not know which queries were answered, so the results of all of them are unknown
+			
+			answers = pendingQueries.map(q => "unknown").toList
+		}
+		
+		if (answers.size != pendingQueries.size)
+		{
+			// the batch was not processed (e.g., there was just one query or the solver failed), so we check the queries one by one
+			
+			for ( (i, weakPrecond, allForms, queryKey) <- pendingQueries )
+			{
+				if (useContext && ( ! ctxFailed )) queryResults(i) = checkValidityInContext(ctx, weakPrecond, allForms)
+				else queryResults(i) = checkValidity(ctx, weakPrecond, allForms)
+			}
+			
+			return queryResults.toList
+		}
+		
+		numSolverCalls += pendingQueries.size
+		
+		// the time of the whole batch is divided evenly among its queries
+		val batchLatencyNS = (System.nanoTime() - batchStartTime) / pendingQueries.size
+		
+		for (k <- 0 until pendingQueries.size)
+		{
+			val (i, weakPrecond, allForms, queryKey) = pendingQueries(k)
+			
+			val queryResult = (answers(k) == "unsat")
+			
+			statistics.recordValidityQuery(false)
+			
+			logQuery(weakPrecond, allForms, answers(k), batchLatencyNS)
+			
+			queryResults(i) = queryResult
+			
+			cacheValidityQuery2Result.put(BoundedCache.digestKey(queryKey), queryResult)
+			
+			val storeKey = createPersistentQueryKey(queryKey)
+			
+			if ((storeKey != null) && (answers(k) != "unknown")) Configuration.queryResultsStore.put(storeKey, queryResult)
+		}
+		
+		return queryResults.toList
+	}
+	
+	/**
+	 * Returns the solver output for the script, or null if the solver failed.
+	 */
+	private def runBatchScript(smtInput : String, useContext : Boolean) : String =
+	{
+		var smtOut : String = null
+		
+		if (useContext)
+		{
+			smtOut = exchangeInSession(createScopedSessionInput(smtInput))
+		}
+		else
+		{
+			val smtResult : (Int, String, String) = runSolver(smtInput)
+			
+			if (smtResult._1 != 0) println("[ERROR] solver failed, error message = " + smtResult._3)
+			else smtOut = smtResult._2
+		}
+		
+		if (Main.DEBUG && (smtOut != null)) printSolverInputOutput("[DEBUG ScriptSMTProvider.checkValidityBatch]", smtInput, 0, smtOut)
+		
+		return smtOut
+	}
+	
+	/**
+	 * Literals are added in the order of predicates (like when cubes are generated).
+	 * Literals of predicates whose value is not in the model are not included in the cube.
+	 */
+	protected def createCubeFromPredicateValues(preds : List[AtomicPredicate], predIdx2value : Map[Int, Boolean]) : Set[LogicFormula] =
+	{
+		var cube = Set[LogicFormula]()
+		
+		for (i <- 0 until preds.size)
+		{
+			val valueOpt = predIdx2value.get(i)
+			
+			if (valueOpt != None)
+			{
+				if (valueOpt.get) cube = cube + preds(i)
+				else cube = cube + new Negation(preds(i))
+			}
+		}
+		
+		return cube
+	}
+	
+	/**
+	 * Asserts the given formulas, declares also names used in other formulas, and runs the given commands.
+	 * The script is processed in the current context if all its background formulas are among the asserted formulas.
+	 * Returns the output of the solver, or null if the solver failed.
+	 */
+	protected def runAssertionScript(assertedForms : Set[LogicFormula], otherForms : Set[LogicFormula], smtCommands : String, origin : String) : String =
+	{
+		val inContext = ctxPushed && ctxBackgroundForms.subsetOf(assertedForms)
+		
+		var plainForms = assertedForms
+		
+		val smtScript = createScriptWriter()
+		
+		if (inContext)
+		{
+			plainForms = assertedForms -- ctxBackgroundForms
+			
+			writeDeclarations(smtScript, plainForms ++ otherForms, ctxDeclaredVars, ctxDeclaredFunctions, false)
+		}
+		else
+		{
+			writeDeclarations(smtScript, plainForms ++ otherForms, Set[String](), Set[String](), true)
+		}
+		
+		for (form <- plainForms) smtScript.assertFormula(convertFormulaToSMT(form))
+		
+		smtScript.append(smtCommands)
+		
+		val smtInput = smtScript.toString()
+		
+		
+		var smtOut : String = null
+		
+		if (inContext)
+		{
+			smtOut = exchangeInSession(createScopedSessionInput(smtInput))
+			
+			if (smtOut == null) return null
+		}
+		else
+		{
+			val smtResult : (Int, String, String) = runSolver(smtInput)
+			
+			if (smtResult._1 != 0) 
+			{
+				println("[ERROR] solver failed, error message = " + smtResult._3)
+				
+				return null
+			}
+			
+			smtOut = smtResult._2
+		}
+		
+		numSolverCalls += 1
+		
+		if (Main.DEBUG) printSolverInputOutput("[DEBUG ScriptSMTProvider." + origin + "]", smtInput, 0, smtOut)
+		
+		return smtOut
+	}
+	
+	def closeQueryContext() =
+	{
+		if (ctxPushed && solverSession.isAlive())
+		{
+			exchangeInSession(createPopSessionInput())
+		}
+		
+		ctxBackgroundForms = null
+		
+		ctxDeclaredVars = Set[String]()
+		ctxDeclaredFunctions = Set[String]()
+		
+		ctxPushed = false
+		ctxFailed = false
+	}
+	
+	private def pushQueryContext() =
+	{
+		if ( ! startSessionIfNecessary() )
+		{
+			ctxFailed = true
+		}
+		else
+		{
+			val ctxScript = createScriptWriter()
+			
+			ctxScript.push()
+			
+			val declInfo = writeDeclarations(ctxScript, ctxBackgroundForms, Set[String](), Set[String](), true)
+			
+			for (bgForm <- ctxBackgroundForms) ctxScript.assertFormula(convertFormulaToSMT(bgForm))
+			
+			ctxScript.echo(ScriptSMTProvider.SESSION_END_MARKER)
+			
+			val sessionOut = exchangeInSession(ctxScript.toString())
+			
+			if ((sessionOut == null) || (sessionOut eq ScriptSMTProvider.TIMEOUT_OUTPUT))
+			{
+				ctxFailed = true
+			}
+			else if (sessionOut.trim().length() > 0)
+			{
+				// the solver (e.g., Yices) prints "unsat" right away when the background formulas are inconsistent, and it may not accept new scopes in that case
+				
+				exchangeInSession(createPopSessionInput())
+				
+				ctxFailed = true
+			}
+			else
+			{
+				ctxDeclaredVars = declInfo._1
+				ctxDeclaredFunctions = declInfo._2
+				
+				ctxPushed = true
+			}
+		}
+	}
+	
+	/**
+	 * Runs the solver on the given script and returns its exit status, standard output, and error output.
+	 * In the session mode, the script is evaluated by the long-running solver process inside a separate scope, and we fall back to a new solver process if the session is not usable.
+	 */
+	protected def runSolver(smtInput : String) : (Int, String, String) =
+	{
+		// the session cannot be used for standalone queries while some query context is pushed (names would be defined twice)
+		if (isSessionMode() && ( ! ctxPushed ))
+		{
+			val sessionOut = runSolverInSession(smtInput)
+			
+			if (sessionOut != null) return (0, sessionOut, "")
+		}
+		
+		return runSolverProcess(smtInput)
+	}
+	
+	/**
+	 * Runs the standalone script of one query (e.g., a query from the log that is replayed by "SMTQueryReplay") and returns the solver output, which is "unknown" when the solver ran out of time.
+	 * The script is evaluated by the solver session if "inSession" is true and the solver supports it, and by a new solver process otherwise.
+	 */
+	def runQueryScript(smtInput : String, inSession : Boolean) : String =
+	{
+		if (inSession && isIncremental())
+		{
+			val sessionOut = runSolverInSession(smtInput)
+			
+			if (sessionOut != null) return sessionOut
+		}
+		
+		val smtResult = runSolverProcess(smtInput)
+		
+		if (smtResult._1 != 0) println("[WARNING] solver failed, error message = " + smtResult._3)
+		
+		return smtResult._2
+	}
+	
+	private def runSolverProcess(smtInput : String) : (Int, String, String) =
+	{
+		// the solver reads the script from stdin and prints to stdout (and errors go to stderr)
+		
+		val startTime = System.nanoTime()
+		
+		val smtResult = util.Process.runCmdWithStrOutputs(getSolverCommand(), util.Process.string2outstream(createSolverPreamble() + smtInput), getWatchdogTimeoutMS())
+		
+		statistics.recordSolverRun(smtInput.length(), System.nanoTime() - startTime)
+		
+		if (smtResult._1 == util.Process.TIMEOUT_STATUS)
+		{
+			println("[WARNING] SMT query did not finish within " + Configuration.smtQueryTimeoutMS + " ms, its result is unknown")
+			
+			return (0, ScriptSMTProvider.TIMEOUT_OUTPUT, "")
+		}
+		
+		return smtResult
+	}
+	
+	private def runSolverInSession(smtInput : String) : String =
+	{
+		if ( ! startSessionIfNecessary() ) return null
+		
+		// all definitions and assertions made by the query are dropped at "pop", so that the next query starts with an empty logical context
+		
+		return exchangeInSession(createScopedSessionInput(smtInput))
+	}
+	
+	/**
+	 * Sends the input to the solver session and returns its answer.
+	 * When the solver does not answer in time, the session is killed and the output "unknown" is returned. 
+	 * Returns null if the session died for some other reason.
+	 * The query context is lost in both cases.
+	 */
+	private def exchangeInSession(sessionInput : String) : String =
+	{
+		val startTime = System.nanoTime()
+		
+		val sessionOut = solverSession.exchange(sessionInput, ScriptSMTProvider.SESSION_END_MARKER, getWatchdogTimeoutMS())
+		
+		statistics.recordSolverRun(sessionInput.length(), System.nanoTime() - startTime)
+		
+		if (sessionOut != null) return sessionOut
+		
+		ctxPushed = false
+		ctxFailed = true
+		
+		if (solverSession.hasTimedOut())
+		{
+			println("[WARNING] SMT query did not finish within " + Configuration.smtQueryTimeoutMS + " ms, its result is unknown")
+			
+			solverSession.stop()
+			
+			// the session is started again on demand, and timeouts do not count as restarts because of errors
+			solverSession = null
+			
+			return ScriptSMTProvider.TIMEOUT_OUTPUT
+		}
+		
+		println("[WARNING] SMT solver session died, error message = " + solverSession.getErrorOutput())
+		
+		solverSession.stop()
+		
+		return null
+	}
+	
+	/**
+	 * Returns false if the session cannot be used anymore (it was restarted too many times).
+	 */
+	private def startSessionIfNecessary() : Boolean =
+	{
+		if (sessionRestarts > ScriptSMTProvider.MAX_SESSION_RESTARTS) return false
+		
+		if ((solverSession == null) || ( ! solverSession.isAlive() ))
+		{
+			if (solverSession != null) sessionRestarts += 1
+			
+			if (sessionRestarts > ScriptSMTProvider.MAX_SESSION_RESTARTS) 
+			{
+				println("[WARNING] SMT solver session restarted too many times, using a new solver process for each query")
+				return false
+			}
+			
+			solverSession = new util.InteractiveProcess(getSolverCommand())
+			
+			val preamble = createSolverPreamble()
+			
+			// options of the solver are set once for the whole session
+			if ((preamble.length() > 0) && (solverSession.exchange(preamble + createEndMarkerCommand(), ScriptSMTProvider.SESSION_END_MARKER, getWatchdogTimeoutMS()) == null)) return false
+		}
+		
+		return true
+	}
+	
+	/**
+	 * The script is evaluated in a separate scope and the end marker is printed after it.
+	 */
+	private def createScopedSessionInput(smtInput : String) : String =
+	{
+		val sessionScript = createScriptWriter(new java.lang.StringBuilder(smtInput.length() + 64))
+		
+		sessionScript.push()
+		sessionScript.append(smtInput)
+		sessionScript.pop()
+		sessionScript.echo(ScriptSMTProvider.SESSION_END_MARKER)
+		
+		return sessionScript.toString()
+	}
+	
+	private def createPopSessionInput() : String =
+	{
+		val sessionScript = createScriptWriter()
+		
+		sessionScript.pop()
+		sessionScript.echo(ScriptSMTProvider.SESSION_END_MARKER)
+		
+		return sessionScript.toString()
+	}
+	
+	/**
+	 * The "echo" command marks the end of the solver output for the preceding commands.
+	 */
+	private def createEndMarkerCommand() : String =
+	{
+		val sessionScript = createScriptWriter()
+		
+		sessionScript.echo(ScriptSMTProvider.SESSION_END_MARKER)
+		
+		return sessionScript.toString()
+	}
+	
+	private def printSolverInputOutput(prefix : String, smtInput : String, smtStatus : Int, smtOutput : String) =
+	{
+		println(prefix + " input for the SMT solver:")
+		val smtInputLines : Array[String] = smtInput.split("\n")
+		for (line <- smtInputLines) 
+		{
+			if ( ! line.startsWith("(define") ) println("\t" + line)
+		}
+
+		println(prefix + " smt result: status = " + smtStatus + ", output = ")			
+		val smtOutputLines : Array[String] = smtOutput.split("\n")
+		for (line <- smtOutputLines) println("\t" + line)
+	}
+	
+	protected def getSolverCommand() : String
+	
+	protected def createScriptWriter(out : java.lang.Appendable = new java.lang.StringBuilder()) : SMTScriptWriter
+	
+	/**
+	 * Converts the application of the function given as the first argument to the remaining arguments.
+	 */
+	protected def convertApplicationToSMT(funcExpr : FunctionExpression) : String
+	
+	protected def convertExistentialToSMT(quantVarName : String, clauseSMT : String) : String
+	
+	/**
+	 * Commands sent to the solver before any query (once for the whole session, or at the start of each script otherwise).
+	 */
+	protected def createSolverPreamble() : String =
+	{
+		return ""
+	}
+	
+	/**
+	 * Returns true if the solver accepts scopes (push/pop) and several checks in one run, which is required for sessions, query contexts, and batches.
+	 */
+	protected def isIncremental() : Boolean =
+	{
+		return true
+	}
+	
+	protected def isSessionMode() : Boolean =
+	{
+		return Configuration.smtSessionMode && isIncremental()
+	}
+	
+	/**
+	 * Returns the time (in milliseconds) after which the solver process is killed when it does not answer.
+	 */
+	protected def getWatchdogTimeoutMS() : Long =
+	{
+		return Configuration.smtQueryTimeoutMS
+	}
+	
+	def shutdown() =
+	{
+		closeQueryContext()
+		
+		if (solverSession != null) solverSession.stop()
+		
+		solverSession = null
+	}
+	
+	
+	def resetCounters() =
+	{
+		numSolverCalls = 0	
+	}
+	
+	def getCountersValue() : Long =
+	{
+		return numSolverCalls
+	}
+	
+	
+	protected def convertFormulaToSMT(form : LogicFormula) : String =
+	{
+		val formKey = BoundedCache.digestKey(form.toString())
+		
+		var formSMTOpt = cacheForm2SMT.get(formKey)
+		
+		statistics.recordForm2SMTLookup(formSMTOpt != None)
+		
+		if (formSMTOpt != None) return formSMTOpt.get
+		
+		
+		var formSMT = ""
+		
+		if (form.isInstanceOf[BinaryPredicate])
+		{
+			val binPred = form.asInstanceOf[BinaryPredicate]
+			
+			if (binPred.op == "!=") formSMT = "(not (= " + convertExprToSMT(binPred.left) + " " + convertExprToSMT(binPred.right) + "))"
+			else formSMT = "(" + binPred.op + " " + convertExprToSMT(binPred.left) + " " + convertExprToSMT(binPred.right) + ")"
+		}
+		else if (form.isInstanceOf[UnaryPredicate])
+		{
+			val unPred = form.asInstanceOf[UnaryPredicate]
+
+			if (unPred.op == "") formSMT = convertExprToSMT(unPred.arg)
+			else formSMT = "(" + unPred.op + " " + convertExprToSMT(unPred.arg) + ")"
+		}
+		else if (form.isInstanceOf[Negation])
+		{
+			val negForm = form.asInstanceOf[Negation]
+			
+			formSMT = "(not " + convertFormulaToSMT(negForm.clause) + ")"
+		}
+		else if (form.isInstanceOf[Conjunction])
+		{
+			val conjForm = form.asInstanceOf[Conjunction]
+
+			var conjFormStr = "(and" 
+
+			for (cl <- conjForm.clauses)
+			{
+				conjFormStr = conjFormStr + (" " + convertFormulaToSMT(cl))
+			}
+
+			conjFormStr = conjFormStr + ")"
+		
+			formSMT = conjFormStr
+		}
+		else if (form.isInstanceOf[Disjunction])
+		{
+			val disjForm = form.asInstanceOf[Disjunction]
+
+			var disjFormStr = "(or" 
+
+			for (cl <- disjForm.clauses)
+			{
+				disjFormStr = disjFormStr + (" " + convertFormulaToSMT(cl))
+			}
+
+			disjFormStr = disjFormStr + ")"
+		
+			formSMT = disjFormStr
+		}
+		else if (form.isInstanceOf[Implication])
+		{
+			val implyForm = form.asInstanceOf[Implication]
+			
+			formSMT = "(=> " + convertFormulaToSMT(implyForm.ante) + " " + convertFormulaToSMT(implyForm.cons) + ")"
+		}
+		else if (form.isInstanceOf[ExistentialQuantification])
+		{
+			val existForm = form.asInstanceOf[ExistentialQuantification]
+			
+			formSMT = convertExistentialToSMT(existForm.quantVarName, convertFormulaToSMT(existForm.clause))
+		}
+		else
+		{
+			// default -> should not happen
+			formSMT = convertNameToSMT(form.toString())
+		}
+		
+		cacheForm2SMT.put(formKey, formSMT)
+
+		return formSMT
+	}
+	
+	protected def convertExprToSMT(expr : Expression) : String =
+	{
+		val exprKey = BoundedCache.digestKey(expr.toString())
+		
+		var exprSMTOpt = cacheExpr2SMT.get(exprKey)
+		
+		statistics.recordExpr2SMTLookup(exprSMTOpt != None)
+		
+		if (exprSMTOpt != None) return exprSMTOpt.get
+
+		// translate function symbols into the standard theory of function updates
+
+		var exprSMT = ""
+
+		if (expr.isInstanceOf[FunctionExpression])
+		{
+			val funcExpr = expr.asInstanceOf[FunctionExpression]
+			
+			if (funcExpr.name == Constants.ARRAY_UPDATE_OPER)
+			{
+				// convert function expression "update(f,args,e)" to "(update f (args) e)"
+
+				exprSMT = "(" + Constants.ARRAY_UPDATE_OPER + " " + funcExpr.args(0)
+				
+				exprSMT += " ("
+				
+				for (i <- 1 to (funcExpr.args.length - 2))
+				{
+					if (i > 1) exprSMT += " "
+					
+					exprSMT = exprSMT + convertExprToSMT(funcExpr.args(i))
+				}
+				
+				exprSMT += ") "
+				
+				exprSMT = exprSMT + convertExprToSMT(funcExpr.args(funcExpr.args.length - 1))
+				
+				exprSMT = exprSMT + ")"
+			}
+			else
+			{
+				exprSMT = convertApplicationToSMT(funcExpr)
+			}
+		}
+		else if (expr.isInstanceOf[ArithmeticExpression])
+		{
+			val arExpr = expr.asInstanceOf[ArithmeticExpression]
+			
+			exprSMT = "(" + getOperatorString(arExpr.op) + " " + convertExprToSMT(arExpr.left) + " " + convertExprToSMT(arExpr.right) + ")"			
+		}
+		else if (ExpressionUtils.isFieldAccessPath(expr)) 
+		{
+			val fapTgtObjExpr = ExpressionUtils.extractTargetObjExprFromFieldAccessPath(expr)
+		
+			val fieldNames = ExpressionUtils.extractFieldNamesFromFieldAccessPath(expr)
+
+			exprSMT = convertExprToSMT(fapTgtObjExpr)
+			
+			for (fname <- fieldNames)
+			{
+				exprSMT = "(" + fname + " " + exprSMT + ")"
+			}
+		}
+		else
+		{
+			exprSMT = convertNameToSMT(expr.toString())
+		}
+
+		cacheExpr2SMT.put(exprKey, exprSMT)
+
+		return exprSMT
+	}
+	
+	protected def convertNameToSMT(vname : String) : String =
+	{
+		return vname.replace('.', '_').replace('[', '_').replace(']', '_')	
+	}
+	
+	protected def getOperatorString(op : String) : String =
+	{
+		if (op == "%") return "mod"
+		
+		return op
+	}
+}
+
+
+object ScriptSMTProvider
+{
+	val SESSION_END_MARKER = "[j2bp-query-end]"
+	
+	val MAX_SESSION_RESTARTS = 10
+	
+	// output reported for queries that ran out of time (it is never printed by the solver itself)
+	val TIMEOUT_OUTPUT = new String("unknown\n")
+	
+	// boolean variables with truth values of predicates in models
+	val PRED_VALUE_VAR_PREFIX = "predval_"
+	
+	
+	def isTokenDelimiter(c : Char) : Boolean =
+	{
+		// the colon separates the name of a quantified variable from its type
+		return (c == ' ') || (c == '(') || (c == ')') || (c == ':')
+	}
+}
@@ -19,8 +19,16 @@ import scala.math._
 import scala.collection.immutable.List
 import scala.collection.mutable.Map
 import scala.collection.mutable.HashMap
+import scala.collection.mutable.HashSet
 import scala.collection.JavaConversions._
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+
 import org.objectweb.asm.MethodVisitor
 import org.objectweb.asm.Opcodes
 import org.objectweb.asm.Label
@@ -32,9 +40,13 @@ import common.AtomicPredicate
 import common.UnaryPredicate
 import common.BinaryPredicate
 import common.Negation
+import common.Conjunction
+import common.Disjunction
 import common.FormulaUtils
 import common.ExpressionUtils
 
+import util.BoundedCache
+
 
 trait StatementResolver
 {
@@ -43,11 +55,29 @@ trait StatementResolver
 	 * If the parameter "writeToVariables" is true then computed boolean values are stored into respective variables, otherwise they are only added to the stack (so that they can serve as arguments for the subsequent method call).
 	 */
 	def resolve(ctx : AbstractionContext, mv : MethodVisitor, targetVarExpr : Expression, updatedPredSet : Set[AtomicPredicate], resdetPredSet : Set[AtomicPredicate], updatedPred2PosWP : Map[AtomicPredicate, LogicFormula], updatedPred2NegWP : Map[AtomicPredicate, LogicFormula], writeToVariables : Boolean) =
+	{
+		val resolution = computeResolution(ctx, targetVarExpr, updatedPredSet, resdetPredSet, updatedPred2PosWP, updatedPred2NegWP)
+		
+		emitResolution(ctx, mv, resolution, writeToVariables)
+	}
+	
+	/**
+	 * Computes new truth values of the updated predicates for cubes over the result-determining predicates (the first phase of "resolve").
+	 * It does not generate any code, so that resolutions for several predicates updated by a method call can be computed concurrently when the provider accepts concurrent queries.
+	 * Queries are attributed to the location of the statement in the statistics of the provider (the location is set for the calling thread).
+	 */
+	def computeResolution(ctx : AbstractionContext, targetVarExpr : Expression, updatedPredSet : Set[AtomicPredicate], inputResdetPredSet : Set[AtomicPredicate], updatedPred2PosWP : Map[AtomicPredicate, LogicFormula], updatedPred2NegWP : Map[AtomicPredicate, LogicFormula]) : StatementResolver.Resolution =
 	{
 		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] resolve start")
 		
 		var updatedPredList : List[AtomicPredicate] = updatedPredSet.toList
-		var resdetPredList : List[AtomicPredicate] = resdetPredSet.toList
+		
+		var resdetPredList : List[AtomicPredicate] = inputResdetPredSet.toList
+		
+		// predicates that cannot influence the results would only double the number of cubes (the set is derived from the list, so that the order of predicates is kept)
+		if (Configuration.sliceResultDeterminingPredicates) resdetPredList = sliceResultDeterminingPredicates(ctx, updatedPredList, resdetPredList, updatedPred2PosWP, updatedPred2NegWP)
+		
+		val resdetPredSet = if (resdetPredList.size < inputResdetPredSet.size) resdetPredList.toSet else inputResdetPredSet
 		
 		
 		// get equality predicates about temporary variables
@@ -133,13 +163,174 @@ trait StatementResolver
 		}
 					
 		
-		// load new values on the stack
-		for (updatedPred <- updatedPredList)
+		// permanent supporting formulas that are not connected with result determining predicates and weakest preconditions through some symbol cannot help
+		// the set is common for all updated predicates, so that queries about all of them can use the same background in the solver
+		
+		var stmtForms = resdetPredSet.toSet[LogicFormula]
+		
+		for (updatedPred <- updatedPredList) stmtForms = stmtForms + updatedPred2PosWP.getOrElse(updatedPred, updatedPred) + updatedPred2NegWP.getOrElse(updatedPred, FormulaUtils.negate(updatedPred))
+		
+		// time after which the solver is not asked anymore about the statement (0 means no limit)
+		val deadline = if (Configuration.smtStatementTimeoutMS > 0) (System.currentTimeMillis() + Configuration.smtStatementTimeoutMS) else 0
+		
+		val cartesianMode = Configuration.cartesianAbstraction || ctx.isCartesianAbstractionMethod(ctx.getCurClassOrigName() + "." + ctx.getCurMethodName())
+		
+		
+		// use the original to-be-updated predicate if the weakest precondition is not available
+		
+		val updatedPred2WPs : Map[AtomicPredicate, (LogicFormula, LogicFormula)] = new HashMap
+		
+		for (updatedPred <- updatedPredList) updatedPred2WPs.put(updatedPred, (updatedPred2PosWP.getOrElse(updatedPred, updatedPred), updatedPred2NegWP.getOrElse(updatedPred, FormulaUtils.negate(updatedPred))))
+		
+		
+		// check for missing input predicates and record them
+		if (Configuration.collectMissingPredicates)
 		{
-			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] new updated predicate")
-			
-			if (Main.DEBUG) println("[DEBUG StatementResolver.resolve] updated predicate = '" + updatedPred + "'")
+			for (updatedPred <- updatedPredList) recordMissingPredicates(ctx, updatedPred2WPs(updatedPred)._1, updatedPred2WPs(updatedPred)._2)
+		}
+		
+		
+		// identify tuples of conflicting literals (they do not depend on the updated predicate, so all updated predicates share them)
+		
+		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] started identification of conflicting literals")
+		
+		val resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]] = new HashMap
+		
+		// conflicts between pairs of predicates are identified only once for each method
+		val relations = if (Configuration.predicateRelationGraph) StatementResolver.getPredicateRelations(ctx.getCurClassOrigName(), ctx.getCurMethodName()) else null
 
+		for (rdPred <- resdetPredSet)
+		{
+			// get tuples of literals conflicting with "rdPred"
+			val predConflictTuples = if (relations != null) relations.getConflictingLiterals(rdPred, resdetPredSet) else Configuration.predicateSemModel.getConflictingLiterals(rdPred, resdetPredSet, ctx.getCurClassOrigName(), ctx.getCurMethodName())
+			
+			if (Main.DEBUG) 
+			{
+				println("[DEBUG StatementResolver.resolve] conflicting literals for the predicate '" + rdPred + "':")
+				
+				var tupleCount = 0
+				
+				for (cfLitTuple <- predConflictTuples) 
+				{
+					tupleCount += 1
+					
+					FormulaUtils.printFormSet(cfLitTuple, "[DEBUG StatementResolver.resolve] tuple " + tupleCount + ":")
+				}
+			}
+			
+			if (predConflictTuples.size > 0) resdetpred2conflicts.put(rdPred, predConflictTuples)
+		}
+		
+		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] finished identification of conflicting literals")
+		
+		
+		// pairs of literals that cannot hold together under the supporting formulas (cubes with them are not evaluated)
+		// they are found when cubes are enumerated for the first time, so the solver is not asked when all tables of the statement are in the cache
+		
+		var findInfeasiblePairs = () => Set[Set[LogicFormula]]()
+		
+		if ((relations != null) && ( ! cartesianMode ) && (resdetPredList.size > 1))
+		{
+			findInfeasiblePairs = () =>
+			{
+				// pairs identified by the predicate semantics model are not checked by the solver
+				for ( (rdPred, conflictTuples) <- resdetpred2conflicts ; cfLitTuple <- conflictTuples if (cfLitTuple.size == 1) ) relations.addConflictingPair(rdPred, cfLitTuple.head)
+				
+				val infeasibleLitPairs = relations.getInfeasiblePairs(ctx, resdetPredList)
+				
+				if (Main.INFO && (infeasibleLitPairs.size > 0)) println("[INFO] found " + infeasibleLitPairs.size + " infeasible pairs of literals over result determining predicates")
+				
+				infeasibleLitPairs
+			}
+		}
+		
+		val scope = new StatementResolver.StatementScope(Configuration.predicateSemModel.getRelevantSupportFormulas(stmtForms), findInfeasiblePairs, deadline, cartesianMode)
+		
+		
+		// compute decision tables (precise results for cubes) for all updated predicates
+		// tables of different predicates are independent, so they can be computed concurrently if the provider accepts concurrent queries
+		
+		var updatedPredTables = List[StatementResolver.DecisionTable]()
+		
+		if (Configuration.concurrentDecisionTables && (updatedPredList.size > 1) && Configuration.smtProvider.supportsConcurrentCallers())
+		{
+			updatedPredTables = StatementResolver.computeConcurrently(updatedPredList.map(updatedPred => () => 
+			{
+				// each task records queries for its own updated predicate (the location is kept for each thread)
+				Configuration.smtProvider.getStatistics().setCurrentLocation(ctx.getCurClassOrigName(), ctx.getCurMethodName(), ctx.getCurInsnIndex(), updatedPred.toString())
+				
+				computeDecisionTable(ctx, scope, updatedPred, updatedPred2WPs(updatedPred)._1, updatedPred2WPs(updatedPred)._2, resdetPredSet, resdetPredList, resdetpred2conflicts, tempvar2eqlpreds, alias2relevantpreds)
+			}))
+		}
+		else
+		{
+			for (updatedPred <- updatedPredList)
+			{
+				Configuration.smtProvider.getStatistics().setCurrentLocation(ctx.getCurClassOrigName(), ctx.getCurMethodName(), ctx.getCurInsnIndex(), updatedPred.toString())
+				
+				updatedPredTables = updatedPredTables :+ computeDecisionTable(ctx, scope, updatedPred, updatedPred2WPs(updatedPred)._1, updatedPred2WPs(updatedPred)._2, resdetPredSet, resdetPredList, resdetpred2conflicts, tempvar2eqlpreds, alias2relevantpreds)
+			}
+		}
+		
+		return new StatementResolver.Resolution(updatedPredList, resdetPredSet, tempvar2eqlpreds, alias2relevantpreds, resdetpred2conflicts, updatedPredTables)
+	}
+	
+	/**
+	 * Returns the result-determining predicates that are connected with weakest preconditions of the updated predicates through shared symbols (see "PredicateSemanticsModel.getInfluencingPredicates"), in the original order.
+	 * Truth values of other predicates cannot change the results, because the solver considers them independently of the weakest preconditions.
+	 */
+	private def sliceResultDeterminingPredicates(ctx : AbstractionContext, updatedPredList : List[AtomicPredicate], resdetPredList : List[AtomicPredicate], updatedPred2PosWP : Map[AtomicPredicate, LogicFormula], updatedPred2NegWP : Map[AtomicPredicate, LogicFormula]) : List[AtomicPredicate] =
+	{
+		val resdetPredSet = resdetPredList.toSet
+		
+		var wpForms = Set[LogicFormula]()
+		
+		// temporary supporting formulas are a part of the queries too, so they may connect other predicates with the weakest preconditions
+		var tempSupForms = Set[LogicFormula]()
+		
+		for (updatedPred <- updatedPredList) 
+		{
+			val posWP = updatedPred2PosWP.getOrElse(updatedPred, updatedPred)
+			
+			wpForms = wpForms + posWP + updatedPred2NegWP.getOrElse(updatedPred, FormulaUtils.negate(updatedPred))
+			
+			tempSupForms = tempSupForms ++ Configuration.predicateSemModel.getTemporarySupportingFormulasResultSet(updatedPred, posWP, resdetPredSet, ctx.getCurClassOrigName(), ctx.getCurMethodName())
+		}
+		
+		val influencingPreds = Configuration.predicateSemModel.getInfluencingPredicates(wpForms, resdetPredSet, tempSupForms)
+		
+		// the original order of predicates is kept (it determines the order of cubes and of the generated code)
+		val slicedPredList = resdetPredList.filter(rdPred => influencingPreds.contains(rdPred))
+		
+		val slicedAwayCount = resdetPredList.size - slicedPredList.size
+		
+		if (slicedAwayCount > 0)
+		{
+			if (Main.INFO) println("[INFO] result determining predicates sliced away: " + slicedAwayCount + " of " + resdetPredList.size)
+			
+			if (Main.DEBUG) FormulaUtils.printAtomPredSet(resdetPredSet -- slicedPredList, "[DEBUG StatementResolver.sliceResultDeterminingPredicates] predicates not connected with weakest preconditions:")
+		}
+		
+		Configuration.smtProvider.getStatistics().recordSlicedPredicates(ctx.getCurClassOrigName(), ctx.getCurMethodName(), ctx.getCurInsnIndex(), updatedPredList.mkString(", "), resdetPredList.size, slicedAwayCount)
+		
+		return slicedPredList
+	}
+	
+	/**
+	 * Generates the code that computes new truth values of the updated predicates according to the resolution (the second phase of "resolve").
+	 */
+	def emitResolution(ctx : AbstractionContext, mv : MethodVisitor, resolution : StatementResolver.Resolution, writeToVariables : Boolean) =
+	{
+		val updatedPredList = resolution.updatedPredList
+		val resdetPredSet = resolution.resdetPredSet
+		val tempvar2eqlpreds = resolution.tempvar2eqlpreds
+		val alias2relevantpreds = resolution.alias2relevantpreds
+		val resdetpred2conflicts = resolution.resdetpred2conflicts
+		
+		// load new values on the stack
+		for ( (updatedPred, table) <- updatedPredList.zip(resolution.updatedPredTables) )
+		{
+			if (Main.DEBUG) println("[DEBUG StatementResolver.emitResolution] generating code for the updated predicate = '" + updatedPred + "'")
 			
 			var updatedPredBoolVar : String = ""
 
@@ -148,124 +339,108 @@ trait StatementResolver
 			if (writeToVariables) updatedPredBoolVar = ctx.getVariableForPredicate(updatedPred).get
 
 			
-			// use the original to-be-updated predicate if the weakest precondition is not available
-			val posWP = updatedPred2PosWP.getOrElse(updatedPred, updatedPred)
+			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] started generating bytecode")
+			
+			var diagram : DecisionDiagram = null
 			
-			// use the original to-be-updated predicate if the weakest precondition is not available
-			val negWP = updatedPred2NegWP.getOrElse(updatedPred, FormulaUtils.negate(updatedPred))
+			if (Configuration.decisionDiagramCodeGen) diagram = createDecisionDiagram(ctx, updatedPred, table, resdetPredSet, resdetpred2conflicts, tempvar2eqlpreds, alias2relevantpreds)
 			
+			if (diagram != null) generateCodeForDecisionDiagram(ctx, mv, updatedPred, diagram)
+			else generateCodeForCubeChain(ctx, mv, updatedPred, updatedPredBoolVar, table, resdetPredSet, resdetpred2conflicts, tempvar2eqlpreds, alias2relevantpreds, writeToVariables)
 			
-			// check for missing input predicates and record them
-			if (Configuration.collectMissingPredicates)
+			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] finished generating bytecode")
+		}
+
+		if (writeToVariables)
+		{		
+			// save new values into variables (they are taken from stack in reversed order)
+			for (updatedPred <- updatedPredList.reverse)
 			{
-				val wpAtomicPreds = FormulaUtils.extractAtomicPredicates(posWP) ++ FormulaUtils.extractAtomicPredicates(negWP)
+				if (Main.DEBUG) println("[DEBUG StatementResolver.resolve] updated predicate = '" + updatedPred + "'")
 				
-				for (wpPred <- wpAtomicPreds)
-				{
-					var candidateMissingPreds = Set[AtomicPredicate]()
-					
-					var containsTempVar = false
-							
-					// replace temporary variables with possible constant values and record every variant
-					for (vname <- FormulaUtils.extractVariableNames(wpPred))
-					{
-						if (ExpressionUtils.isTemporaryVariable(vname) && Configuration.predicatesMngr.isReservedName(vname))
-						{
-							val tmpvarPreds = Configuration.predicatesMngr.getPredicatesOverExpr(ctx.getCurClassOrigName(), ctx.getCurMethodName(), vname, -1)
-							
-							// consider equality predicates over the temporary variable
-							for (tvPred <- tmpvarPreds)
-							{
-								if (tvPred.isInstanceOf[BinaryPredicate] && tvPred.containsOperand(vname) && (tvPred.getOperator() == "="))
-								{
-									val eqValue = FormulaUtils.extractOtherOperandFromBinPred(tvPred.asInstanceOf[BinaryPredicate], vname)
-									
-									// new instance of the given predicate
-									val instPred = FormulaUtils.copyWithReplace(wpPred, vname, eqValue.toString())
-									
-									candidateMissingPreds = candidateMissingPreds + instPred
-								}										
-							}
-						
-							containsTempVar = true
-						}								
-					}
-					
-					if ( ! containsTempVar )
-					{
-						candidateMissingPreds = candidateMissingPreds + wpPred
-					}
-
-					
-					for (cmPred <- candidateMissingPreds)
-					{
-						if ( ! Configuration.predicatesMngr.existsPredicate(ctx.getCurClassOrigName(), ctx.getCurMethodName(), cmPred, -1) ) 
-						{
-							var skipPred = false
-							
-							// ignore predicates with logic variables
-							if (FormulaUtils.containsLogicVariables(cmPred)) skipPred = true
-							
-							if (cmPred.isInstanceOf[BinaryPredicate])
-							{
-								val cmBinPred = cmPred.asInstanceOf[BinaryPredicate]
-								
-								// ignore binary predicates where both operands are the same
-								if (cmBinPred.left == cmBinPred.right) skipPred = true
-								
-								// ignore binary predicates where both operands are constant values
-								if (ExpressionUtils.isConstantValue(cmBinPred.left) && ExpressionUtils.isConstantValue(cmBinPred.right)) skipPred = true
-							}
-							
-							// ignore predicates containing the "update" function somewhere inside
-							val updateExprs = FormulaUtils.extractFunctionExpressionsRecursively(cmPred, Constants.ARRAY_UPDATE_OPER)
-							if (updateExprs.size > 0) skipPred = true
-							
-							if ( ! skipPred )
-							{
-								Configuration.predicatesMngr.recordMissingPredicate(cmPred)
-							}
-						}
-					}
-				}
+				var updatedPredBoolVar = ctx.getVariableForPredicate(updatedPred).get
+				
+				GenUtils.generateStoreInstruction(updatedPredBoolVar, mv, ctx)
 			}
+		}
+		
+		Configuration.smtProvider.getStatistics().clearCurrentLocation()
+
+		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] resolve finish")
+	}
+
+	
+	/**
+	 * Computes precise results of the updated predicate for cubes over the result-determining predicates.
+	 * It does not generate any code, so tables for several updated predicates can be computed concurrently.
+	 * Complete tables are kept in the cache (see "createDecisionTableKey"), so a statement with the same table only needs the code to be generated.
+	 */
+	private def computeDecisionTable(ctx : AbstractionContext, scope : StatementResolver.StatementScope, updatedPred : AtomicPredicate, posWP : LogicFormula, negWP : LogicFormula, resdetPredSet : Set[AtomicPredicate], resdetPredList : List[AtomicPredicate], resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]]) : StatementResolver.DecisionTable =
+	{
+		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] new updated predicate")
+		
+		if (Main.DEBUG) println("[DEBUG StatementResolver.computeDecisionTable] updated predicate = '" + updatedPred + "'")
+		
+		// create temporary supporting formulas for updated predicate, its weakest precondition, and set of result determining predicates
+		val tempSupFormsResultSet = Configuration.predicateSemModel.getTemporarySupportingFormulasResultSet(updatedPred, posWP, resdetPredSet, ctx.getCurClassOrigName(), ctx.getCurMethodName())
+		
+		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] acquired temporary supporting formulas (result set)")
+		
+		// find matching expressions for all variables (program, logic) -> it is used for constructing temporary support formulas 
+		val varnames2matchexprs = Configuration.predicateSemModel.findMatchingExpressions(posWP, resdetPredSet, ctx.getCurClassOrigName(), ctx.getCurMethodName())
+		
+		if (Configuration.cacheDecisionTables)
+		{
+			val tableKey = BoundedCache.digestKey(createDecisionTableKey(scope, updatedPred, posWP, negWP, resdetPredSet, resdetPredList, resdetpred2conflicts, tempvar2eqlpreds, alias2relevantpreds, tempSupFormsResultSet, varnames2matchexprs))
 			
+			val cachedTableOpt = StatementResolver.tableCache.get(tableKey)
 			
-			// identify tuples of conflicting literals
-			
-			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] started identification of conflicting literals")
-			
-			val resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]] = new HashMap
-
-			for (rdPred <- resdetPredSet)
+			if (cachedTableOpt != None)
 			{
-				// get tuples of literals conflicting with "rdPred"
-				val predConflictTuples = Configuration.predicateSemModel.getConflictingLiterals(rdPred, resdetPredSet, posWP, ctx.getCurClassOrigName(), ctx.getCurMethodName())
-				
-				if (Main.DEBUG) 
-				{
-					println("[DEBUG StatementResolver.resolve] conflicting literals for the predicate '" + rdPred + "':")
-					
-					var tupleCount = 0
-					
-					for (cfLitTuple <- predConflictTuples) 
-					{
-						tupleCount += 1
-						
-						FormulaUtils.printFormSet(cfLitTuple, "[DEBUG StatementResolver.resolve] tuple " + tupleCount + ":")
-					}
-				}
+				if (Main.DEBUG) println("[DEBUG StatementResolver.computeDecisionTable] decision table found in the cache")
 				
-				if (predConflictTuples.size > 0) resdetpred2conflicts.put(rdPred, predConflictTuples)
+				return cachedTableOpt.get.createTable(resdetPredList)
 			}
 			
-			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] finished identification of conflicting literals")
+			val table = computeDecisionTableWithoutCache(ctx, scope, updatedPred, posWP, negWP, resdetPredSet, resdetPredList, resdetpred2conflicts, tempvar2eqlpreds, alias2relevantpreds, tempSupFormsResultSet, varnames2matchexprs)
 			
+			// results of queries that were not asked because of the time limit are missing in the table
+			if ( ! scope.hasTimedOut() ) 
+			{
+				val cachedTable = StatementResolver.CachedDecisionTable.create(table, resdetPredList)
+				
+				if (cachedTable != null) StatementResolver.tableCache.put(tableKey, cachedTable)
+			}
 			
-			// create temporary supporting formulas for updated predicate, its weakest precondition, and set of result determining predicates
-			val tempSupFormsResultSet = Configuration.predicateSemModel.getTemporarySupportingFormulasResultSet(updatedPred, posWP, resdetPredSet, ctx.getCurClassOrigName(), ctx.getCurMethodName())
+			return table
+		}
+		
+		return computeDecisionTableWithoutCache(ctx, scope, updatedPred, posWP, negWP, resdetPredSet, resdetPredList, resdetpred2conflicts, tempvar2eqlpreds, alias2relevantpreds, tempSupFormsResultSet, varnames2matchexprs)
+	}
+	
+	private def computeDecisionTableWithoutCache(ctx : AbstractionContext, scope : StatementResolver.StatementScope, updatedPred : AtomicPredicate, posWP : LogicFormula, negWP : LogicFormula, resdetPredSet : Set[AtomicPredicate], resdetPredList : List[AtomicPredicate], resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]], tempSupFormsResultSet : Set[LogicFormula], varnames2matchexprs : Map[Expression, Set[Expression]]) : StatementResolver.DecisionTable =
+	{
+		if (Configuration.partitionIndependentPredicates && (resdetPredList.size > 1))
+		{
+			val partitionedTable = computePartitionedDecisionTable(ctx, scope, updatedPred, posWP, negWP, resdetPredSet, resdetPredList, resdetpred2conflicts, tempvar2eqlpreds, alias2relevantpreds, tempSupFormsResultSet)
 			
-			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] acquired temporary supporting formulas (result set)")
+			if (partitionedTable != null) return partitionedTable
+		}
+		
+		// all queries for the updated predicate share the permanent supporting formulas and the temporary supporting formulas for the result set
+		val ctxBackgroundForms = scope.relevantSupportForms ++ tempSupFormsResultSet
+		
+		Configuration.smtProvider.openQueryContext(ctx, ctxBackgroundForms)
+		
+		// the context is closed also when the computation ends by an exception (a stale context would be used by the next statement of the thread)
+		try
+		{
+			if (scope.cartesianMode)
+			{
+				val cartesianTable = computeCartesianDecisionTable(ctx, scope, updatedPred, posWP, negWP, resdetPredSet, resdetPredList, tempSupFormsResultSet)
+				
+				return cartesianTable
+			}
 			
 			
 			// we remember results for cubes (result determining predicates augmented with truth values) in these sets
@@ -273,221 +448,794 @@ trait StatementResolver
 			var posResultCubes = Set[Set[LogicFormula]]()
 			var negResultCubes = Set[Set[LogicFormula]]()
 
+
+			// cubes are either enumerated as models returned by the solver (one at a time), or all cubes are generated at the beginning
+			// the exhaustive generation cannot be used when there are too many result-determining predicates
+			// models cannot give the empty cube, which is the only cube when all predicates were sliced away
+			val enumerateModels = (resdetPredList.size > 0) && (Configuration.allSatCubeEnumeration || (resdetPredList.size >= StatementResolver.MAX_EXHAUSTIVE_PREDICATES))
 			
-			// put something on the stack so that it is guaranteed in the bytecode that some value is always loaded
-			// this dummy value is popped out if we compute the actual value (see the code below) and assign it to the variable
-			mv.visitInsn(Opcodes.ICONST_0)
+			var cubes : Iterator[Set[LogicFormula]] = null
 			
-
-			// create Label marking the end of the chain of all combinations for given to-be-updated predicate
-			val updatedCombsEndLabel = new Label()
-
-	
-			// generate all cubes of the maximal size from the set of result-determining predicates			
-			// we use empty cube results holder (last argument) to get all cubes of the maximal size that do not contain conflicting predicates			
-			var cubes = generateCubes(resdetPredList, resdetpred2conflicts, tempvar2eqlpreds, alias2relevantpreds)
-
-			// find matching expressions for all variables (program, logic) -> it is used for constructing temporary support formulas 
-			var varnames2matchexprs = Configuration.predicateSemModel.findMatchingExpressions(posWP, resdetPredSet, ctx.getCurClassOrigName(), ctx.getCurMethodName())
+			// lazy enumeration of all cubes that skips super-cubes of minimal cubes (null when models are enumerated)
+			var cubeIter : CubeIterator = null
 			
+			// constraints that exclude conflicting, ambiguous, and irrelevant cubes (null if all cubes are excluded)
+			var cubeConstraints : Set[LogicFormula] = null
 			
-			// process all cubes
+			// cubes whose results are known (their regions are excluded from further models)
+			var blockedCubes = Set[Set[LogicFormula]]()
 			
-			while (cubes.size > 0)
+			if (enumerateModels)
 			{
-				if (Main.DEBUG) println("[DEBUG StatementResolver.resolve] remaining cubes for this predicate set = " + cubes.size)
-
-				val resdetCube = cubes.head
-				
-				cubes = cubes.tail
-				
-				if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] started processing next cube")
+				cubeConstraints = createCubeConstraints(resdetPredList, resdetpred2conflicts, scope.infeasibleLitPairs, tempvar2eqlpreds, alias2relevantpreds)
 				
-				if (Main.DEBUG) FormulaUtils.printFormSet(resdetCube, "[DEBUG StatementResolver.resolve] cube without result:")
-				
-				// create temporary supporting formulas for updated predicate, its weakest precondition (positive and negative), and result determining cube				
-				val tsfrcInfo = Configuration.predicateSemModel.getTemporarySupportingFormulasResultCube(updatedPred, posWP, resdetPredSet, resdetCube, varnames2matchexprs, ctx.getCurClassOrigName(), ctx.getCurMethodName())
-				val tempSupFormsResultCube = tsfrcInfo._1
-				val logicvar2matchexprs = tsfrcInfo._2
-
-				if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] acquired temporary supporting formulas (result cube)")
-				
-				
-				// compute new truth value of the updated predicate for the cube
-				
-				val tempSupForms = tempSupFormsResultSet ++ tempSupFormsResultCube
-				
-				val posResult = computePredicateTruthValue(ctx, updatedPred, resdetPredSet, resdetCube, posWP, tempSupForms)
-				
-				val negResult = computePredicateTruthValue(ctx, updatedPred, resdetPredSet, resdetCube, negWP, tempSupForms)
-				
-				if (Main.DEBUG) println("[DEBUG StatementResolver.resolve] positive result = " + posResult + ", negative result = " + negResult)
-				
-				
-				// try to find minimal sub-cubes that give the same precise result and prune their super-cubes
-				// update records about sets of predicates that yield precise result
-				
-				// positive case
-				if ( posResult && ( ! negResult ) )
-				{
-					val minimalCubes = findMinimalSubCubesImplyingWP(ctx, updatedPred, posWP, negWP, resdetCube, resdetPredSet, tempSupForms, logicvar2matchexprs, tempvar2eqlpreds)
-					
-					if (minimalCubes != null)
-					{
-						if (Main.DEBUG) 
-						{
-							for (minCube <- minimalCubes) FormulaUtils.printFormSet(minCube, "[DEBUG StatementResolver.resolve] minimal cube with positive result:")
-						}
-						
-						posResultCubes = posResultCubes ++ minimalCubes
-						
-						for (minCube <- minimalCubes)
-						{
-							cubes = cubes.filterNot(cb => minCube.subsetOf(cb))
-						}
-					}
-					else
-					{
-						posResultCubes = posResultCubes + resdetCube
-					}					
-				}
+				cubes = findNextCubeFromModel(ctx, scope, resdetPredList, tempSupFormsResultSet, cubeConstraints, blockedCubes).iterator
+			}
+			else
+			{
+				// enumerate all cubes of the maximal size from the set of result-determining predicates that do not contain conflicting predicates
+				cubeIter = new CubeIterator(resdetPredList, resdetpred2conflicts, scope.infeasibleLitPairs, tempvar2eqlpreds, alias2relevantpreds)
 				
-				// negative case
-				if ( negResult && ( ! posResult ) )
+				cubes = cubeIter
+			}
+			
+			
+			// generated cubes are evaluated in the background when the provider accepts concurrent queries (results are still processed in the order of cubes)
+			var cubeEvaluator : ParallelCubeEvaluator = null
+			
+			if ((cubeIter != null) && Configuration.parallelCubeResolution && Configuration.smtProvider.supportsConcurrentCallers())
+			{
+				cubeEvaluator = new ParallelCubeEvaluator(cubeIter, Configuration.cubeResolutionThreads, (cube, ticket) => 
 				{
-					val minimalCubes = findMinimalSubCubesImplyingWP(ctx, updatedPred, negWP, posWP, resdetCube, resdetPredSet, tempSupForms, logicvar2matchexprs, tempvar2eqlpreds)
+					// each thread has its own query context in providers that accept concurrent queries
+					Configuration.smtProvider.openQueryContext(ctx, ctxBackgroundForms)
 					
-					if (minimalCubes != null)
+					try
 					{
-						if (Main.DEBUG) 
-						{
-							for (minCube <- minimalCubes) FormulaUtils.printFormSet(minCube, "[DEBUG StatementResolver.resolve] minimal cube with negative result:")
-						}
-						
-						negResultCubes = negResultCubes ++ minimalCubes
-						
-						for (minCube <- minimalCubes)
-						{
-							cubes = cubes.filterNot(cb => minCube.subsetOf(cb))
-						}
+						evaluateCube(ctx, new StatementResolver.SpeculativeScope(scope, ticket), updatedPred, posWP, negWP, resdetPredSet, cube, tempSupFormsResultSet, varnames2matchexprs, tempvar2eqlpreds)
 					}
-					else
+					finally
 					{
-						negResultCubes = negResultCubes + resdetCube
+						Configuration.smtProvider.closeQueryContext()
 					}
-				}
+				})
 				
-				if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] finished processing cube")
+				cubes = cubeEvaluator
 			}
 			
 			
-			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] started generating bytecode")
-			
-			// generate bytecode for cubes with precise result
-			// we iterate over the cubes in the order of decreasing size
-			
-			var cubeSize = resdetPredSet.size
+			// process all cubes
 			
-			while (cubeSize > 0)
+			try
 			{
-				for (posCube <- posResultCubes if (posCube.size == cubeSize))
+				while (cubes.hasNext)
 				{
-					if (Main.DEBUG) FormulaUtils.printFormSet(posCube, "[DEBUG StatementResolver.resolve] generating code for positive cube:")
+					if (Main.DEBUG && (cubeIter != null)) println("[DEBUG StatementResolver.computeDecisionTable] remaining combinations for this predicate set = " + cubeIter.getRemainingCombinations())
+
+					val resdetCube = cubes.next()
 					
-					// create predicate set
+					if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] started processing next cube")
 					
-					var posPredSet = Set[AtomicPredicate]()
+					if (Main.DEBUG) FormulaUtils.printFormSet(resdetCube, "[DEBUG StatementResolver.computeDecisionTable] cube without result:")
 					
-					for (resPred <- resdetPredSet)
-					{
-						if (posCube.contains(resPred.asInstanceOf[LogicFormula])) posPredSet = posPredSet + resPred
-						else if (posCube.contains(new Negation(resPred))) posPredSet = posPredSet + resPred
-					}
+					val cubeEval = if (cubeEvaluator != null) cubeEvaluator.getCurrentEvaluation() else evaluateCube(ctx, scope, updatedPred, posWP, negWP, resdetPredSet, resdetCube, tempSupFormsResultSet, varnames2matchexprs, tempvar2eqlpreds)
 					
-					// generate bytecode to set new truth value of the updated predicate				
-					generateCodeForUpdatingPredicateTruthValue(ctx, mv, updatedPred, updatedPredBoolVar, posPredSet, posCube, updatedCombsEndLabel, true, false)
-				}
-				
-				for (negCube <- negResultCubes if (negCube.size == cubeSize))
-				{
-					if (Main.DEBUG) FormulaUtils.printFormSet(negCube, "[DEBUG StatementResolver.resolve] generating code for negative cube:")
+					if (Main.DEBUG) println("[DEBUG StatementResolver.computeDecisionTable] positive result = " + cubeEval.posResult + ", negative result = " + cubeEval.negResult)
 					
-					// create predicate set
 					
-					var negPredSet = Set[AtomicPredicate]()
+					// update records about sets of predicates that yield precise result and prune super-cubes of minimal cubes
 					
-					for (resPred <- resdetPredSet)
+					// positive case
+					if ( cubeEval.posResult && ( ! cubeEval.negResult ) )
 					{
-						if (negCube.contains(resPred.asInstanceOf[LogicFormula])) negPredSet = negPredSet + resPred
-						else if (negCube.contains(new Negation(resPred))) negPredSet = negPredSet + resPred
+						if (cubeEval.minimalCubes != null)
+						{
+							if (Main.DEBUG) 
+							{
+								for (minCube <- cubeEval.minimalCubes) FormulaUtils.printFormSet(minCube, "[DEBUG StatementResolver.computeDecisionTable] minimal cube with positive result:")
+							}
+							
+							posResultCubes = posResultCubes ++ cubeEval.minimalCubes
+							
+							if (cubeIter != null)
+							{
+								for (minCube <- cubeEval.minimalCubes) cubeIter.addMinimalCube(minCube)
+							}
+						}
+						else
+						{
+							posResultCubes = posResultCubes + resdetCube
+						}					
 					}
 					
-					// generate bytecode to set new truth value of the updated predicate				
-					generateCodeForUpdatingPredicateTruthValue(ctx, mv, updatedPred, updatedPredBoolVar, negPredSet, negCube, updatedCombsEndLabel, false, true)
-				}
-				
-				cubeSize -= 1
-			}
-
-				
-			// generate "else-if" branches for tuples of conflicting literals
-			// they force backtracking
-			for ( (rdPred, conflictTuples) <- resdetpred2conflicts)
-			{
-				for (cfLitTuple <- conflictTuples) generateCodeForConflictingPredicates(ctx, mv, rdPred, cfLitTuple, updatedCombsEndLabel, writeToVariables)				
-			}
+					// negative case
+					if ( cubeEval.negResult && ( ! cubeEval.posResult ) )
+					{
+						if (cubeEval.minimalCubes != null)
+						{
+							if (Main.DEBUG) 
+							{
+								for (minCube <- cubeEval.minimalCubes) FormulaUtils.printFormSet(minCube, "[DEBUG StatementResolver.computeDecisionTable] minimal cube with negative result:")
+							}
+							
+							negResultCubes = negResultCubes ++ cubeEval.minimalCubes
+							
+							if (cubeIter != null)
+							{
+								for (minCube <- cubeEval.minimalCubes) cubeIter.addMinimalCube(minCube)
+							}
+						}
+						else
+						{
+							negResultCubes = negResultCubes + resdetCube
+						}
+					}
+					
+					if (enumerateModels)
+					{
+						// the processed cube and all minimal cubes found for it
+						blockedCubes = blockedCubes ++ posResultCubes ++ negResultCubes + resdetCube
+						
+						cubes = findNextCubeFromModel(ctx, scope, resdetPredList, tempSupFormsResultSet, cubeConstraints, blockedCubes).iterator
+					}
+					
+					if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] finished processing cube")
+				}
+			}
+			finally
+			{
+				// cubes evaluated ahead must not keep the solver busy after the table is complete (e.g., when the loop ends by an exception)
+				if (cubeEvaluator != null) cubeEvaluator.cancelAll()
+			}
+			
+			// the generated code represents the empty cube by the "true" predicate (the weakest precondition does not depend on any result-determining predicate)
+			
+			posResultCubes = posResultCubes.map(cube => if (cube.isEmpty) Set[LogicFormula](Constants.TRUE_PRED) else cube)
+			negResultCubes = negResultCubes.map(cube => if (cube.isEmpty) Set[LogicFormula](Constants.TRUE_PRED) else cube)
+			
+			return new StatementResolver.DecisionTable(posResultCubes, negResultCubes)
+		}
+		finally
+		{
+			Configuration.smtProvider.closeQueryContext()
+		}
+	}
+	
+	/**
+	 * Returns the key of the decision table in the cache, which consists of everything that determines the table: the updated predicate, weakest preconditions, result-determining predicates (in the order of enumeration), conflicts, ambiguity, aliasing, and all supporting formulas that queries about cubes can use.
+	 * Facts about the current method (e.g., which expressions are maps) influence the table only through temporary supporting formulas, matching expressions, and conflicting literals, so the method itself is not a part of the key.
+	 * Variables are renamed to positional names like in canonical forms of single queries, so statements that differ only in names of variables share the table (also in different methods and for different properties).
+	 * Infeasible pairs of literals are not a part of the key, because cubes with them do not contribute to the table.
+	 */
+	private def createDecisionTableKey(scope : StatementResolver.StatementScope, updatedPred : AtomicPredicate, posWP : LogicFormula, negWP : LogicFormula, resdetPredSet : Set[AtomicPredicate], resdetPredList : List[AtomicPredicate], resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]], tempSupFormsResultSet : Set[LogicFormula], varnames2matchexprs : Map[Expression, Set[Expression]]) : String =
+	{
+		// temporary supporting formulas for single cubes are made of matching expressions and literals of the cube, and queries use also permanent supporting formulas relevant for them
+		
+		var matchForms = Set[LogicFormula]()
+		
+		for ( (varNameExpr, matchExprs) <- varnames2matchexprs ; matchExpr <- matchExprs ) matchForms = matchForms + new BinaryPredicate("=", varNameExpr, matchExpr)
+		
+		val supportForms = scope.relevantSupportForms ++ Configuration.predicateSemModel.getRelevantSupportFormulas(resdetPredSet.toSet[LogicFormula] ++ tempSupFormsResultSet ++ matchForms)
+		
+		
+		var keyForms = supportForms ++ tempSupFormsResultSet ++ matchForms ++ resdetPredSet + updatedPred + posWP + negWP
+		
+		for ( (rdPred, conflictTuples) <- resdetpred2conflicts ; cfLitTuple <- conflictTuples ) keyForms = keyForms ++ cfLitTuple
+		
+		for ( (tempVarName, tempVarPreds) <- tempvar2eqlpreds ) keyForms = keyForms ++ tempVarPreds
+		
+		for ( (aliasingPred, relevantPreds) <- alias2relevantpreds ) keyForms = keyForms ++ relevantPreds + aliasingPred
+		
+		val renamer = new StatementResolver.VariableRenamer(keyForms)
+		
+		
+		val keyBuf = new StringBuilder()
+		
+		keyBuf.append(scope.cartesianMode).append("\n")
+		
+		// positional names are given first to variables of the updated predicate, weakest preconditions, and result-determining predicates, so that they do not depend on the order of sets
+		
+		keyBuf.append(renamer.rename(updatedPred.toString())).append("\n").append(renamer.rename(posWP.toString())).append("\n").append(renamer.rename(negWP.toString())).append("\n")
+		
+		keyBuf.append(resdetPredList.map(pred => renamer.rename(pred.toString())).mkString(" ; ")).append("\n")
+		
+		keyBuf.append(renamer.renameSet(resdetpred2conflicts.toList.map(e => e._1 + " : " + e._2.toList.map(cfLitTuple => renamer.renameSet(cfLitTuple.map(_.toString()), ", ")).sorted.mkString(" | ")), " ; ")).append("\n")
+		
+		keyBuf.append(renamer.renameSet(tempvar2eqlpreds.toList.map(e => e._1 + " : " + renamer.renameSet(e._2.map(_.toString()), ", ")), " ; ")).append("\n")
+		
+		keyBuf.append(renamer.renameSet(alias2relevantpreds.toList.map(e => e._1 + " : " + renamer.renameSet(e._2.map(_.toString()), ", ")), " ; ")).append("\n")
+		
+		keyBuf.append(renamer.renameSet(varnames2matchexprs.toList.map(e => e._1 + " : " + renamer.renameSet(e._2.map(_.toString()), ", ")), " ; ")).append("\n")
+		
+		keyBuf.append(renamer.renameSet(tempSupFormsResultSet.map(_.toString()), " ; ")).append("\n")
+		
+		keyBuf.append(renamer.renameSet(supportForms.map(_.toString()), " ; "))
+		
+		return keyBuf.toString()
+	}
+	
+	/**
+	 * Returns the decision table combined from tables for groups of result-determining predicates that do not share symbols (see "PredicateSemanticsModel.getIndependentGroups"), or null when the predicates cannot be partitioned.
+	 * The weakest precondition must be a conjunction or disjunction whose clauses can be split between the groups, and the negative weakest precondition must be its negation.
+	 * Each group is resolved separately with its part of the weakest precondition, so cubes of sizes "a" and "b" are enumerated instead of cubes of size "a+b".
+	 * Temporary supporting formulas for the whole result set may connect predicates too, so they are considered when the groups are identified.
+	 */
+	private def computePartitionedDecisionTable(ctx : AbstractionContext, scope : StatementResolver.StatementScope, updatedPred : AtomicPredicate, posWP : LogicFormula, negWP : LogicFormula, resdetPredSet : Set[AtomicPredicate], resdetPredList : List[AtomicPredicate], resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]], tempSupFormsResultSet : Set[LogicFormula]) : StatementResolver.DecisionTable =
+	{
+		if (negWP != FormulaUtils.negate(posWP)) return null
+		
+		// clauses of the weakest precondition in the form of a conjunction or disjunction
+		
+		var isConjunction = false
+		var wpClauses : List[LogicFormula] = null
+		
+		if (posWP.isInstanceOf[Conjunction])
+		{
+			isConjunction = true
+			wpClauses = posWP.asInstanceOf[Conjunction].clauses
+		}
+		else if (posWP.isInstanceOf[Disjunction])
+		{
+			isConjunction = false
+			wpClauses = posWP.asInstanceOf[Disjunction].clauses
+		}
+		else if (posWP.isInstanceOf[Negation] && posWP.asInstanceOf[Negation].clause.isInstanceOf[Conjunction])
+		{
+			isConjunction = false
+			wpClauses = posWP.asInstanceOf[Negation].clause.asInstanceOf[Conjunction].clauses.map(cl => FormulaUtils.negate(cl))
+		}
+		else if (posWP.isInstanceOf[Negation] && posWP.asInstanceOf[Negation].clause.isInstanceOf[Disjunction])
+		{
+			isConjunction = true
+			wpClauses = posWP.asInstanceOf[Negation].clause.asInstanceOf[Disjunction].clauses.map(cl => FormulaUtils.negate(cl))
+		}
+		else
+		{
+			return null
+		}
+		
+		val formGroups = Configuration.predicateSemModel.getIndependentGroups(wpClauses ++ resdetPredList, scope.relevantSupportForms ++ tempSupFormsResultSet)
+		
+		val clauseGroups = formGroups.take(wpClauses.size)
+		val predGroups = formGroups.drop(wpClauses.size)
+		
+		// groups without predicates are joined with the first group that has some, and predicates in groups without clauses cannot influence the result
+		// formulas without symbols are joined with the first group too (they do not belong to any group)
+		
+		val groupIDs = predGroups.distinct.filter(g => (g != PredicateSemanticsModel.NO_GROUP) && clauseGroups.contains(g))
+		
+		if (groupIDs.size < 2) return null
+		
+		if (Main.INFO) println("[INFO] result determining predicates partitioned into " + groupIDs.size + " independent groups for the updated predicate '" + updatedPred + "'")
+		
+		var groupTables = List[StatementResolver.DecisionTable]()
+		
+		for (groupID <- groupIDs)
+		{
+			var groupClauses = List[LogicFormula]()
 			
+			for ( (cl, g) <- wpClauses.zip(clauseGroups) if ((g == groupID) || ((groupID == groupIDs.head) && ( ! groupIDs.contains(g) ))) ) groupClauses = groupClauses :+ cl
 			
-			// generate "else-if" branches for cubes that specify ambiguous values of temporary variables
-			// they force backtracking
-			generateCodeForAmbiguousCubes(ctx, mv, resdetPredSet, tempvar2eqlpreds, updatedCombsEndLabel, writeToVariables)
+			val groupWP = if (groupClauses.size == 1) groupClauses.head else if (isConjunction) new Conjunction(groupClauses) else new Disjunction(groupClauses)
 			
-			// generate "else-if" branches for cubes that are not relevant with respect to aliasing between variables
-			// they keep the current value of the updated predicate
-			generateCodeForIrrelevantCubes(ctx, mv, updatedPred, resdetPredSet, alias2relevantpreds, updatedCombsEndLabel, writeToVariables)
+			val groupPredList = resdetPredList.zip(predGroups).filter(pg => (pg._2 == groupID) || ((groupID == groupIDs.head) && (pg._2 == PredicateSemanticsModel.NO_GROUP))).map(_._1)
+			val groupPredSet = groupPredList.toSet
 			
-			// generate the "else" branch that assigns non-deterministic boolean value ("we do not know")
-			// this handles cases when the solver says yes (sat) both for original precondition and negated precondition
-			mv.visitInsn(Opcodes.POP) // pop the dummy value
-			GenUtils.generateChooseBool(mv)		
+			// conflicts, ambiguity, and aliasing over the predicates of the group
 			
-			mv.visitLabel(updatedCombsEndLabel)
+			val groupConflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]] = new HashMap
 			
-			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] finished generating bytecode")
-		}
-
-		if (writeToVariables)
-		{		
-			// save new values into variables (they are taken from stack in reversed order)
-			for (updatedPred <- updatedPredList.reverse)
+			for ( (rdPred, conflictTuples) <- resdetpred2conflicts if groupPredSet.contains(rdPred) )
 			{
-				if (Main.DEBUG) println("[DEBUG StatementResolver.resolve] updated predicate = '" + updatedPred + "'")
+				val groupTuples = conflictTuples.filter(cfLitTuple => cfLitTuple.forall(cfLit => groupPredSet.contains(FormulaUtils.extractAtomicPredicates(cfLit).head)))
 				
-				var updatedPredBoolVar = ctx.getVariableForPredicate(updatedPred).get
-				
-				GenUtils.generateStoreInstruction(updatedPredBoolVar, mv, ctx)
+				if (groupTuples.size > 0) groupConflicts.put(rdPred, groupTuples)
+			}
+			
+			val groupTempvar2eqlpreds : Map[String, Set[AtomicPredicate]] = new HashMap
+			
+			for ( (tempVarName, tempVarPreds) <- tempvar2eqlpreds if tempVarPreds.subsetOf(groupPredSet) ) groupTempvar2eqlpreds.put(tempVarName, tempVarPreds)
+			
+			val groupAlias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]] = new HashMap
+			
+			for ( (aliasingPred, relevantPreds) <- alias2relevantpreds if groupPredSet.contains(aliasingPred) ) groupAlias2relevantpreds.put(aliasingPred, relevantPreds.intersect(groupPredSet))
+			
+			if (Main.DEBUG)
+			{
+				println("[DEBUG StatementResolver.computePartitionedDecisionTable] weakest precondition for the group = '" + groupWP + "'")
+				FormulaUtils.printAtomPredSet(groupPredSet, "[DEBUG StatementResolver.computePartitionedDecisionTable] predicates of the group:")
 			}
+			
+			groupTables = groupTables :+ computeDecisionTable(ctx, scope, updatedPred, groupWP, FormulaUtils.negate(groupWP), groupPredSet, groupPredList, groupConflicts, groupTempvar2eqlpreds, groupAlias2relevantpreds)
+		}
+		
+		// a conjunction holds when all its parts hold (the cube is combined from cubes for all groups) and it does not hold when some part does not hold (the cube for one group is enough)
+		
+		var posResultCubes = Set[Set[LogicFormula]]()
+		var negResultCubes = Set[Set[LogicFormula]]()
+		
+		if (isConjunction)
+		{
+			posResultCubes = groupTables.map(_.posResultCubes).reduceLeft(combineCubeSets)
+			negResultCubes = groupTables.map(_.negResultCubes).reduceLeft(_ ++ _)
+		}
+		else
+		{
+			posResultCubes = groupTables.map(_.posResultCubes).reduceLeft(_ ++ _)
+			negResultCubes = groupTables.map(_.negResultCubes).reduceLeft(combineCubeSets)
+		}
+		
+		// the generated code represents the empty cube by the "true" predicate
+		
+		posResultCubes = posResultCubes.map(cube => if (cube.isEmpty) Set[LogicFormula](Constants.TRUE_PRED) else cube)
+		negResultCubes = negResultCubes.map(cube => if (cube.isEmpty) Set[LogicFormula](Constants.TRUE_PRED) else cube)
+		
+		return new StatementResolver.DecisionTable(posResultCubes, negResultCubes)
+	}
+	
+	/**
+	 * Returns all unions of a cube from the first set and a cube from the second set (cubes from different groups of predicates never contain the same predicate).
+	 */
+	private def combineCubeSets(cubes1 : Set[Set[LogicFormula]], cubes2 : Set[Set[LogicFormula]]) : Set[Set[LogicFormula]] =
+	{
+		var combinedCubes = Set[Set[LogicFormula]]()
+		
+		for (cube1 <- cubes1 ; cube2 <- cubes2)
+		{
+			// the "true" predicate is needed only in the empty cube
+			val cube = (cube1 ++ cube2) - Constants.TRUE_PRED
+			
+			combinedCubes = combinedCubes + (if (cube.isEmpty) Set[LogicFormula](Constants.TRUE_PRED) else cube)
+		}
+		
+		return combinedCubes
+	}
+	
+	/**
+	 * Computes the decision table in the Cartesian mode, where each literal over the result-determining predicates is checked separately, so the number of queries is linear in the number of predicates.
+	 * Cubes in the table contain single literals (or just the "true" predicate when supporting formulas alone imply the weakest precondition). The new value is chosen nondeterministically in states where no such literal holds.
+	 */
+	private def computeCartesianDecisionTable(ctx : AbstractionContext, scope : StatementResolver.StatementScope, updatedPred : AtomicPredicate, posWP : LogicFormula, negWP : LogicFormula, resdetPredSet : Set[AtomicPredicate], resdetPredList : List[AtomicPredicate], tempSupFormsResultSet : Set[LogicFormula]) : StatementResolver.DecisionTable =
+	{
+		Configuration.smtProvider.getStatistics().markCurrentLocationCartesian()
+		
+		var posResultCubes = Set[Set[LogicFormula]]()
+		var negResultCubes = Set[Set[LogicFormula]]()
+		
+		val varnames2matchexprs = Configuration.predicateSemModel.findMatchingExpressions(posWP, resdetPredSet, ctx.getCurClassOrigName(), ctx.getCurMethodName())
+		
+		// the empty cube is checked first, because no literal is needed when the weakest precondition holds in all states
+		
+		var literalCubes = List[Set[LogicFormula]](Set[LogicFormula]())
+		
+		for (rdPred <- resdetPredList) literalCubes = literalCubes :+ Set[LogicFormula](rdPred) :+ Set[LogicFormula](new Negation(rdPred))
+		
+		for (litCube <- literalCubes)
+		{
+			if (Main.DEBUG) FormulaUtils.printFormSet(litCube, "[DEBUG StatementResolver.computeCartesianDecisionTable] literal cube:")
+			
+			val tempSupFormsResultCube = Configuration.predicateSemModel.getTemporarySupportingFormulasResultCube(updatedPred, posWP, resdetPredSet, litCube, varnames2matchexprs, ctx.getCurClassOrigName(), ctx.getCurMethodName())._1
+			
+			val pnResults = computePredicateTruthValues(ctx, scope, updatedPred, resdetPredSet, litCube, List(posWP, negWP), tempSupFormsResultSet ++ tempSupFormsResultCube)
+			
+			if (Main.DEBUG) println("[DEBUG StatementResolver.computeCartesianDecisionTable] positive result = " + pnResults(0) + ", negative result = " + pnResults(1))
+			
+			// the generated code represents the empty cube by the "true" predicate
+			val resultCube = if (litCube.isEmpty) Set[LogicFormula](Constants.TRUE_PRED) else litCube
+			
+			if ( pnResults(0) && ( ! pnResults(1) ) ) posResultCubes = posResultCubes + resultCube
+			
+			if ( pnResults(1) && ( ! pnResults(0) ) ) negResultCubes = negResultCubes + resultCube
+			
+			// the new value does not depend on the literals
+			if (litCube.isEmpty && ((posResultCubes.size + negResultCubes.size) > 0)) return new StatementResolver.DecisionTable(posResultCubes, negResultCubes)
 		}
+		
+		return new StatementResolver.DecisionTable(posResultCubes, negResultCubes)
+	}
+	
+	/**
+	 * Records atomic predicates from the weakest preconditions that are not available in the input set.
+	 */
+	private def recordMissingPredicates(ctx : AbstractionContext, posWP : LogicFormula, negWP : LogicFormula) =
+	{
+		val wpAtomicPreds = FormulaUtils.extractAtomicPredicates(posWP) ++ FormulaUtils.extractAtomicPredicates(negWP)
+		
+		for (wpPred <- wpAtomicPreds)
+		{
+			var candidateMissingPreds = Set[AtomicPredicate]()
+			
+			var containsTempVar = false
+					
+			// replace temporary variables with possible constant values and record every variant
+			for (vname <- FormulaUtils.extractVariableNames(wpPred))
+			{
+				if (ExpressionUtils.isTemporaryVariable(vname) && Configuration.predicatesMngr.isReservedName(vname))
+				{
+					val tmpvarPreds = Configuration.predicatesMngr.getPredicatesOverExpr(ctx.getCurClassOrigName(), ctx.getCurMethodName(), vname, -1)
+					
+					// consider equality predicates over the temporary variable
+					for (tvPred <- tmpvarPreds)
+					{
+						if (tvPred.isInstanceOf[BinaryPredicate] && tvPred.containsOperand(vname) && (tvPred.getOperator() == "="))
+						{
+							val eqValue = FormulaUtils.extractOtherOperandFromBinPred(tvPred.asInstanceOf[BinaryPredicate], vname)
+							
+							// new instance of the given predicate
+							val instPred = FormulaUtils.copyWithReplace(wpPred, vname, eqValue.toString())
+							
+							candidateMissingPreds = candidateMissingPreds + instPred
+						}										
+					}
+				
+					containsTempVar = true
+				}								
+			}
+			
+			if ( ! containsTempVar )
+			{
+				candidateMissingPreds = candidateMissingPreds + wpPred
+			}
 
-		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] resolve finish")		
+			
+			for (cmPred <- candidateMissingPreds)
+			{
+				if ( ! Configuration.predicatesMngr.existsPredicate(ctx.getCurClassOrigName(), ctx.getCurMethodName(), cmPred, -1) ) 
+				{
+					var skipPred = false
+					
+					// ignore predicates with logic variables
+					if (FormulaUtils.containsLogicVariables(cmPred)) skipPred = true
+					
+					if (cmPred.isInstanceOf[BinaryPredicate])
+					{
+						val cmBinPred = cmPred.asInstanceOf[BinaryPredicate]
+						
+						// ignore binary predicates where both operands are the same
+						if (cmBinPred.left == cmBinPred.right) skipPred = true
+						
+						// ignore binary predicates where both operands are constant values
+						if (ExpressionUtils.isConstantValue(cmBinPred.left) && ExpressionUtils.isConstantValue(cmBinPred.right)) skipPred = true
+					}
+					
+					// ignore predicates containing the "update" function somewhere inside
+					val updateExprs = FormulaUtils.extractFunctionExpressionsRecursively(cmPred, Constants.ARRAY_UPDATE_OPER)
+					if (updateExprs.size > 0) skipPred = true
+					
+					if ( ! skipPred )
+					{
+						Configuration.predicatesMngr.recordMissingPredicate(cmPred)
+					}
+				}
+			}
+		}
 	}
+	
+	
+	/**
+	 * Computes new truth values of the updated predicate for the cube and, if the result is precise, minimal sub-cubes that give the same result.
+	 * It does not depend on results for other cubes, so several cubes can be evaluated concurrently.
+	 */
+	private def evaluateCube(ctx : AbstractionContext, scope : StatementResolver.StatementScope, updatedPred : AtomicPredicate, posWP : LogicFormula, negWP : LogicFormula, resdetPredSet : Set[AtomicPredicate], resdetCube : Set[LogicFormula], tempSupFormsResultSet : Set[LogicFormula], varnames2matchexprs : Map[Expression, Set[Expression]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]]) : StatementResolver.CubeEvaluation =
+	{
+		// create temporary supporting formulas for updated predicate, its weakest precondition (positive and negative), and result determining cube				
+		val tsfrcInfo = Configuration.predicateSemModel.getTemporarySupportingFormulasResultCube(updatedPred, posWP, resdetPredSet, resdetCube, varnames2matchexprs, ctx.getCurClassOrigName(), ctx.getCurMethodName())
+		val tempSupFormsResultCube = tsfrcInfo._1
+		val logicvar2matchexprs = tsfrcInfo._2
 
+		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] acquired temporary supporting formulas (result cube)")
+		
+		
+		// compute new truth value of the updated predicate for the cube
+		
+		val tempSupForms = tempSupFormsResultSet ++ tempSupFormsResultCube
+		
+		// both queries are sent together (they may be checked in one solver script or concurrently)
+		
+		val pnResults = computePredicateTruthValues(ctx, scope, updatedPred, resdetPredSet, resdetCube, List(posWP, negWP), tempSupForms)
+		
+		val posResult = pnResults(0)
+		
+		val negResult = pnResults(1)
+		
+		
+		// try to find minimal sub-cubes that give the same precise result
+		
+		var minimalCubes : Set[Set[LogicFormula]] = null
+		
+		// the search is expensive, so it is not done for cubes that get pruned by minimal cubes of previous cubes
+		if ( (posResult != negResult) && ( ! scope.awaitCubeTurn() ) ) return new StatementResolver.CubeEvaluation(posResult, negResult, null)
+		
+		if ( posResult && ( ! negResult ) ) minimalCubes = findMinimalSubCubesImplyingWP(ctx, scope, updatedPred, posWP, negWP, resdetCube, resdetPredSet, tempSupForms, logicvar2matchexprs, tempvar2eqlpreds)
+		
+		if ( negResult && ( ! posResult ) ) minimalCubes = findMinimalSubCubesImplyingWP(ctx, scope, updatedPred, negWP, posWP, resdetCube, resdetPredSet, tempSupForms, logicvar2matchexprs, tempvar2eqlpreds)
+		
+		return new StatementResolver.CubeEvaluation(posResult, negResult, minimalCubes)
+	}
 	
-	private def computePredicateTruthValue(ctx : AbstractionContext, updatedPred : AtomicPredicate, resdetPredSet : Set[AtomicPredicate], resdetCube : Set[LogicFormula], updatedPredWP : LogicFormula, tempSupForms : Set[LogicFormula]) : Boolean =
+	private def computePredicateTruthValues(ctx : AbstractionContext, scope : StatementResolver.StatementScope, updatedPred : AtomicPredicate, resdetPredSet : Set[AtomicPredicate], resdetCube : Set[LogicFormula], updatedPredWPs : List[LogicFormula], tempSupForms : Set[LogicFormula]) : List[Boolean] =
 	{
 		// compute new value of the given predicate based on weakest preconditions
 			
-		var result = false
+		val allInputPreds = getQueryInputForms(scope, resdetCube, tempSupForms)
+		
+		var queries = List[(LogicFormula, Set[LogicFormula])]()
+		
+		for (wp <- updatedPredWPs) queries = queries :+ (wp, allInputPreds)
+		
+		// we do not know anything when the time is over, and therefore the new value of the predicate will be chosen nondeterministically (that is sound)
+		if (scope.isTimeExceeded()) return updatedPredWPs.map(wp => false)
+			
+		// check validity using SMT solver (in the context opened for the updated predicate)
+		return Configuration.smtProvider.checkValidityInContextBatch(ctx, queries)
+	}
+	
+	/**
+	 * Starts checking the same queries as "computePredicateTruthValues" and returns the future results (in the order of weakest preconditions).
+	 */
+	private def submitPredicateTruthValues(ctx : AbstractionContext, scope : StatementResolver.StatementScope, resdetCube : Set[LogicFormula], updatedPredWPs : List[LogicFormula], tempSupForms : Set[LogicFormula]) : List[Future[Boolean]] =
+	{
+		val allInputPreds = getQueryInputForms(scope, resdetCube, tempSupForms)
+		
+		// queries belong to the context opened for the updated predicate
+		return updatedPredWPs.map(wp => Configuration.smtProvider.checkValidityInContextAsync(ctx, wp, allInputPreds))
+	}
+	
+	/**
+	 * Returns the cube together with all supporting formulas.
+	 */
+	private def getQueryInputForms(scope : StatementResolver.StatementScope, resdetCube : Set[LogicFormula], tempSupForms : Set[LogicFormula]) : Set[LogicFormula] =
+	{
+		return resdetCube ++ scope.relevantSupportForms ++ Configuration.predicateSemModel.getRelevantSupportFormulas(tempSupForms) ++ tempSupForms
+	}
+	
+	
+	
+	/**
+	 * Returns the decision diagram that computes the same new value as the chain of tests (see "generateCodeForCubeChain"), or null if the diagram would be too large.
+	 */
+	private def createDecisionDiagram(ctx : AbstractionContext, updatedPred : AtomicPredicate, table : StatementResolver.DecisionTable, resdetPredSet : Set[AtomicPredicate], resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]]) : DecisionDiagram =
+	{
+		// rules are created in the same order as tests in the chain
+		
+		var rules = List[(List[(String, Boolean)], Int)]()
+		
+		// the cube with just the "true" predicate has the size 1 even when there are no result-determining predicates
+		var cubeSize = max(resdetPredSet.size, 1)
+		
+		while (cubeSize > 0)
+		{
+			for (posCube <- table.posResultCubes if (posCube.size == cubeSize)) rules = rules ++ createDecisionRule(ctx, posCube, StatementResolver.RESULT_TRUE)
+			
+			for (negCube <- table.negResultCubes if (negCube.size == cubeSize)) rules = rules ++ createDecisionRule(ctx, negCube, StatementResolver.RESULT_FALSE)
+			
+			cubeSize -= 1
+		}
+		
+		for ( (rdPred, conflictTuples) <- resdetpred2conflicts ; cfLitTuple <- conflictTuples )
+		{
+			rules = rules ++ createDecisionRule(ctx, List[LogicFormula](rdPred) ++ cfLitTuple, StatementResolver.RESULT_BACKTRACK)
+		}
+		
+		for ( (tempVarName, tempVarPreds) <- tempvar2eqlpreds )
+		{
+			rules = rules ++ createDecisionRule(ctx, tempVarPreds.toList.map(tvPred => new Negation(tvPred)), StatementResolver.RESULT_BACKTRACK)
+		}
+		
+		for ( (aliasingPred, relevantPreds) <- alias2relevantpreds ; relevPred <- relevantPreds )
+		{
+			rules = rules ++ createDecisionRule(ctx, List[LogicFormula](new Negation(aliasingPred), relevPred), StatementResolver.RESULT_KEEP)
+		}
+		
+		val diagram = new DecisionDiagram(rules, StatementResolver.RESULT_UNKNOWN, Configuration.maxDecisionDiagramNodes)
+		
+		if ( ! diagram.isComplete() )
+		{
+			if (Main.INFO) println("[INFO] decision diagram for the updated predicate '" + updatedPred + "' is too large, chain of tests is generated instead")
+			
+			return null
+		}
+		
+		if (Main.DEBUG) println("[DEBUG StatementResolver.createDecisionDiagram] rules count = " + rules.size + ", nodes count = " + diagram.getNodeCount())
+		
+		return diagram
+	}
+	
+	/**
+	 * Returns the rule for a conjunction of literals over predicates, or an empty list when the literals never hold.
+	 */
+	private def createDecisionRule(ctx : AbstractionContext, literals : Iterable[LogicFormula], result : Int) : List[(List[(String, Boolean)], Int)] =
+	{
+		var varLits = List[(String, Boolean)]()
+		
+		for (lit <- literals)
+		{
+			var pred : AtomicPredicate = null
+			var value = true
+			
+			if (lit.isInstanceOf[Negation])
+			{
+				pred = lit.asInstanceOf[Negation].clause.asInstanceOf[AtomicPredicate]
+				value = false
+			}
+			else
+			{
+				pred = lit.asInstanceOf[AtomicPredicate]
+				value = true
+			}
+			
+			if (pred == Constants.TRUE_PRED)
+			{
+				// the literal "not true" never holds
+				if ( ! value ) return List[(List[(String, Boolean)], Int)]()
+			}
+			else
+			{
+				varLits = varLits :+ (ctx.getVariableForPredicate(pred).get, value)
+			}
+		}
+		
+		return List( (varLits, result) )
+	}
+	
+	/**
+	 * Generates nested branches according to the decision diagram. Every node is generated only once and shared nodes are reached by jumps.
+	 */
+	private def generateCodeForDecisionDiagram(ctx : AbstractionContext, mv : MethodVisitor, updatedPred : AtomicPredicate, diagram : DecisionDiagram) =
+	{
+		// label marking the end of the code for given to-be-updated predicate (the new value is on the stack)
+		val updatedCombsEndLabel = new Label()
+		
+		val node2label : Map[DecisionDiagram.Node, Label] = new HashMap
+		
+		val generatedNodes = new HashSet[DecisionDiagram.Node]
+		
+		generateCodeForDiagramNode(ctx, mv, updatedPred, diagram, diagram.root, node2label, generatedNodes, updatedCombsEndLabel)
+		
+		mv.visitLabel(updatedCombsEndLabel)
+	}
+	
+	private def generateCodeForDiagramNode(ctx : AbstractionContext, mv : MethodVisitor, updatedPred : AtomicPredicate, diagram : DecisionDiagram, node : DecisionDiagram.Node, node2label : Map[DecisionDiagram.Node, Label], generatedNodes : HashSet[DecisionDiagram.Node], updatedCombsEndLabel : Label) : Unit =
+	{
+		// labels of successors may be created before the code for them is generated
+		val nodeLabel = node2label.getOrElseUpdate(node, new Label())
+		
+		generatedNodes.add(node)
+		
+		mv.visitLabel(nodeLabel)
+		
+		if (node.isTerminal())
+		{
+			node.result match
+			{
+				case StatementResolver.RESULT_TRUE => mv.visitInsn(Opcodes.ICONST_1)
+				
+				case StatementResolver.RESULT_FALSE => mv.visitInsn(Opcodes.ICONST_0)
+				
+				case StatementResolver.RESULT_KEEP =>
+				{
+					// irrelevant cube: the current value of the updated predicate is kept
+					GenUtils.generateLoadInstruction(ctx.getVariableForPredicate(updatedPred).get, mv, ctx)
+				}
+				
+				case StatementResolver.RESULT_BACKTRACK =>
+				{
+					// conflicting literals or ambiguous cube
+					GenUtils.generateForcedBacktrack(mv)
 					
-		// add all supporting predicates
-		val allInputPreds = resdetCube ++ Configuration.predicateSemModel.getSupportFormulas() ++ tempSupForms
+					// the value is never used but every path must load something on the stack
+					mv.visitInsn(Opcodes.ICONST_0)
+				}
+				
+				case _ =>
+				{
+					// we do not know the new value
+					GenUtils.generateChooseBool(mv)
+				}
+			}
 			
-		// check validity using SMT solver
-		result = Configuration.smtProvider.checkValidity(ctx, updatedPredWP, allInputPreds)
+			mv.visitJumpInsn(Opcodes.GOTO, updatedCombsEndLabel)
+			
+			return
+		}
+		
+		GenUtils.generateLoadInstruction(diagram.variables(node.varIndex), mv, ctx)
+		
+		// jump to the code for the low successor when the variable is false
+		mv.visitJumpInsn(Opcodes.IFEQ, node2label.getOrElseUpdate(node.low, new Label()))
 		
-		return result
+		// the code for the high successor follows when it was not generated yet
+		if (generatedNodes.contains(node.high)) mv.visitJumpInsn(Opcodes.GOTO, node2label(node.high))
+		else generateCodeForDiagramNode(ctx, mv, updatedPred, diagram, node.high, node2label, generatedNodes, updatedCombsEndLabel)
+		
+		if ( ! generatedNodes.contains(node.low) ) generateCodeForDiagramNode(ctx, mv, updatedPred, diagram, node.low, node2label, generatedNodes, updatedCombsEndLabel)
 	}
 	
+	/**
+	 * Generates the chain of tests for individual cubes (the first cube that holds determines the new value), followed by tests for conflicting literals, ambiguous cubes, and irrelevant cubes.
+	 */
+	private def generateCodeForCubeChain(ctx : AbstractionContext, mv : MethodVisitor, updatedPred : AtomicPredicate, updatedPredBoolVar : String, table : StatementResolver.DecisionTable, resdetPredSet : Set[AtomicPredicate], resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]], writeToVariables : Boolean) =
+	{
+		// put something on the stack so that it is guaranteed in the bytecode that some value is always loaded
+		// this dummy value is popped out if we compute the actual value (see the code below) and assign it to the variable
+		mv.visitInsn(Opcodes.ICONST_0)
+		
+
+		// create Label marking the end of the chain of all combinations for given to-be-updated predicate
+		val updatedCombsEndLabel = new Label()
+
+
+		// generate bytecode for cubes with precise result
+		// we iterate over the cubes in the order of decreasing size
+		// the cube with just the "true" predicate has the size 1 even when there are no result-determining predicates
+		
+		var cubeSize = max(resdetPredSet.size, 1)
+		
+		while (cubeSize > 0)
+		{
+			for (posCube <- table.posResultCubes if (posCube.size == cubeSize))
+			{
+				if (Main.DEBUG) FormulaUtils.printFormSet(posCube, "[DEBUG StatementResolver.resolve] generating code for positive cube:")
+				
+				// create predicate set
+				
+				var posPredSet = Set[AtomicPredicate]()
+				
+				for (resPred <- resdetPredSet)
+				{
+					if (posCube.contains(resPred.asInstanceOf[LogicFormula])) posPredSet = posPredSet + resPred
+					else if (posCube.contains(new Negation(resPred))) posPredSet = posPredSet + resPred
+				}
+				
+				// generate bytecode to set new truth value of the updated predicate				
+				generateCodeForUpdatingPredicateTruthValue(ctx, mv, updatedPred, updatedPredBoolVar, posPredSet, posCube, updatedCombsEndLabel, true, false)
+			}
+			
+			for (negCube <- table.negResultCubes if (negCube.size == cubeSize))
+			{
+				if (Main.DEBUG) FormulaUtils.printFormSet(negCube, "[DEBUG StatementResolver.resolve] generating code for negative cube:")
+				
+				// create predicate set
+				
+				var negPredSet = Set[AtomicPredicate]()
+				
+				for (resPred <- resdetPredSet)
+				{
+					if (negCube.contains(resPred.asInstanceOf[LogicFormula])) negPredSet = negPredSet + resPred
+					else if (negCube.contains(new Negation(resPred))) negPredSet = negPredSet + resPred
+				}
+				
+				// generate bytecode to set new truth value of the updated predicate				
+				generateCodeForUpdatingPredicateTruthValue(ctx, mv, updatedPred, updatedPredBoolVar, negPredSet, negCube, updatedCombsEndLabel, false, true)
+			}
+			
+			cubeSize -= 1
+		}
+
+			
+		// generate "else-if" branches for tuples of conflicting literals
+		// they force backtracking
+		for ( (rdPred, conflictTuples) <- resdetpred2conflicts)
+		{
+			for (cfLitTuple <- conflictTuples) generateCodeForConflictingPredicates(ctx, mv, rdPred, cfLitTuple, updatedCombsEndLabel, writeToVariables)				
+		}
+		
+		
+		// generate "else-if" branches for cubes that specify ambiguous values of temporary variables
+		// they force backtracking
+		generateCodeForAmbiguousCubes(ctx, mv, resdetPredSet, tempvar2eqlpreds, updatedCombsEndLabel, writeToVariables)
+		
+		// generate "else-if" branches for cubes that are not relevant with respect to aliasing between variables
+		// they keep the current value of the updated predicate
+		generateCodeForIrrelevantCubes(ctx, mv, updatedPred, resdetPredSet, alias2relevantpreds, updatedCombsEndLabel, writeToVariables)
+		
+		// generate the "else" branch that assigns non-deterministic boolean value ("we do not know")
+		// this handles cases when the solver says yes (sat) both for original precondition and negated precondition
+		mv.visitInsn(Opcodes.POP) // pop the dummy value
+		GenUtils.generateChooseBool(mv)		
+		
+		mv.visitLabel(updatedCombsEndLabel)
+	}
 	
 	private def generateCodeForUpdatingPredicateTruthValue(ctx : AbstractionContext, mv : MethodVisitor, updatedPred : AtomicPredicate, updatedPredBoolVar : String, resdetPredSet : Set[AtomicPredicate], resdetCube : Set[LogicFormula], updatedCombsEndLabel : Label, posResult : Boolean, negResult : Boolean) : Unit =
 	{
@@ -750,353 +1498,698 @@ trait StatementResolver
 	}
 	
 	
-	private def generateCubes(resdetPredList : List[AtomicPredicate], resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]]) : List[Set[LogicFormula]] =
+	/**
+	 * Returns formulas over the result-determining predicates that are satisfied exactly by the cubes that "CubeIterator" would include, or null if there are no such cubes.
+	 */
+	private def createCubeConstraints(resdetPredList : List[AtomicPredicate], resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], infeasibleLitPairs : Set[Set[LogicFormula]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]]) : Set[LogicFormula] =
+	{
+		var constraints = Set[LogicFormula]()
+		
+		// conflicting literals
+		for ( (resPred, conflictingTuples) <- resdetpred2conflicts )
+		{
+			for (cfLitTuple <- conflictingTuples) constraints = constraints + createBlockingClause(cfLitTuple + resPred)
+		}
+		
+		// infeasible pairs of literals (pairs over other predicates are ignored, like in "CubeIterator")
+		for (litPair <- infeasibleLitPairs if litPair.forall(lit => resdetPredList.contains(FormulaUtils.extractAtomicPredicates(lit).head)))
+		{
+			constraints = constraints + createBlockingClause(litPair)
+		}
+		
+		// some predicate that makes the cube unambiguous must be true
+		for ( (tempVarName, unambgIndexes) <- Configuration.predicateSemModel.getIndexesForUnambiguousPredicates(resdetPredList, tempvar2eqlpreds) )
+		{
+			if (unambgIndexes.size == 0) return null
+			
+			var unambgPreds = List[LogicFormula]()
+			
+			for (idx <- unambgIndexes) unambgPreds = unambgPreds :+ resdetPredList(idx)
+			
+			if (unambgPreds.size == 1) constraints = constraints + unambgPreds.head
+			else constraints = constraints + new Disjunction(unambgPreds)
+		}
+		
+		// relevant predicates cannot be true when the aliasing predicate is false
+		for ( (aliasingPredIdx, relevantPredIndexes) <- Configuration.predicateSemModel.getIndexesForAliasingRelevantPredicates(resdetPredList, alias2relevantpreds) )
+		{
+			for (idx <- relevantPredIndexes) constraints = constraints + createBlockingClause(Set[LogicFormula](new Negation(resdetPredList(aliasingPredIdx)), resdetPredList(idx)))
+		}
+		
+		return constraints
+	}
+	
+	/**
+	 * Returns a list with the cube given by the next model of the supporting formulas and constraints, or an empty list when there is no such model.
+	 */
+	private def findNextCubeFromModel(ctx : AbstractionContext, scope : StatementResolver.StatementScope, resdetPredList : List[AtomicPredicate], tempSupFormsResultSet : Set[LogicFormula], cubeConstraints : Set[LogicFormula], blockedCubes : Set[Set[LogicFormula]]) : List[Set[LogicFormula]] =
+	{
+		if (cubeConstraints == null) return List[Set[LogicFormula]]()
+		
+		// cubes that are not enumerated fall into the nondeterministic branch
+		if (scope.isTimeExceeded()) return List[Set[LogicFormula]]()
+		
+		var forms = scope.relevantSupportForms ++ tempSupFormsResultSet ++ cubeConstraints
+		
+		for (blCube <- blockedCubes) forms = forms + createBlockingClause(blCube)
+		
+		val cube = Configuration.smtProvider.findSatisfyingCube(ctx, forms, resdetPredList)
+		
+		// every cube must be blocked after it is processed, so we cannot continue with an empty cube
+		if ((cube == null) || (cube.size == 0)) return List[Set[LogicFormula]]()
+		
+		if (Main.DEBUG) FormulaUtils.printFormSet(cube, "[DEBUG StatementResolver.findNextCubeFromModel] cube from model:")
+		
+		return List[Set[LogicFormula]](cube)
+	}
+	
+	/**
+	 * Returns the clause satisfied by all cubes that do not include the given cube.
+	 */
+	private def createBlockingClause(cube : Set[LogicFormula]) : LogicFormula =
+	{
+		if (cube.size == 1) return FormulaUtils.negate(cube.head)
+		
+		var negLits = List[LogicFormula]()
+		
+		for (lit <- cube) negLits = negLits :+ FormulaUtils.negate(lit)
+		
+		return new Disjunction(negLits)
+	}
+	
+	private def findMinimalSubCubesImplyingWP(ctx : AbstractionContext, scope : StatementResolver.StatementScope, updatedPred : AtomicPredicate, targetWP : LogicFormula, oppositeWP : LogicFormula, origCube : Set[LogicFormula], origPredSet : Set[AtomicPredicate], tempSupForms : Set[LogicFormula], logicvar2matchexprs : Map[Expression, Set[Expression]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]]) : Set[Set[LogicFormula]] =
+	{
+		if (Configuration.unsatCoreMinimalCubes)
+		{
+			val coreCube = findMinimalSubCubeFromCore(ctx, scope, targetWP, origCube, origPredSet, tempSupForms, logicvar2matchexprs, tempvar2eqlpreds)
+			
+			if (coreCube != null) return Set[Set[LogicFormula]](coreCube)
+			
+			// otherwise we search through the sub-cubes
+		}
+		
+		val cubeHolder : Map[String, Set[Set[LogicFormula]]] = new HashMap
+		
+		cubeHolder.put("minimal", Set[Set[LogicFormula]]())
+		
+		// we use a set because there can be multiple different sub-cubes 
+		
+		findMinimalSubCubesRecursively(ctx, scope, updatedPred, targetWP, oppositeWP, origCube, origPredSet, tempSupForms, logicvar2matchexprs, tempvar2eqlpreds, cubeHolder)
+		
+		val minimalCubes = cubeHolder.get("minimal").get
+		
+		if (minimalCubes.size > 0) return minimalCubes
+		else return null // we have not found anything
+	}
+	
+	/**
+	 * Derives a smaller cube implying the target weakest precondition from unsat cores of the negated implication.
+	 * Returns null if there is no acceptable smaller cube.
+	 */
+	private def findMinimalSubCubeFromCore(ctx : AbstractionContext, scope : StatementResolver.StatementScope, targetWP : LogicFormula, origCube : Set[LogicFormula], origPredSet : Set[AtomicPredicate], tempSupForms : Set[LogicFormula], logicvar2matchexprs : Map[Expression, Set[Expression]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]]) : Set[LogicFormula] =
+	{
+		if (origCube.size <= 1) return null
+		
+		if (scope.isTimeExceeded()) return null
+		
+		val wpAtomicPreds = FormulaUtils.extractAtomicPredicates(targetWP)
+		
+		// elements that must not be dropped are not tracked in the core
+		
+		var requiredElems = Set[LogicFormula]()
+		
+		for (cubeElem <- origCube)
+		{
+			if (isRequiredCubeElem(getCubeElemPredicate(cubeElem, origPredSet), wpAtomicPreds, logicvar2matchexprs)) requiredElems = requiredElems + cubeElem
+		}
+		
+		val fixedForms = requiredElems ++ scope.relevantSupportForms ++ Configuration.predicateSemModel.getRelevantSupportFormulas(tempSupForms) ++ tempSupForms
+		
+		// cores returned by the solver are not necessarily minimal, so we ask again for the core of a smaller cube until it does not shrink
+		
+		var subCube = origCube
+		
+		var shrinked = true
+		
+		var iterations = 0
+		
+		while (shrinked && (iterations < StatementResolver.MAX_CORE_ITERATIONS))
+		{
+			val coreElems = Configuration.smtProvider.findImplyingSubset(ctx, targetWP, fixedForms, subCube -- requiredElems)
+			
+			if (coreElems == null) return null
+			
+			val newSubCube = coreElems ++ requiredElems
+			
+			shrinked = (newSubCube.size < subCube.size)
+			
+			subCube = newSubCube
+			
+			iterations += 1
+		}
+		
+		if (subCube.size == origCube.size) return null
+		
+		if (Main.DEBUG) FormulaUtils.printFormSet(subCube, "[DEBUG StatementResolver.findMinimalSubCubeFromCore] sub-cube from unsat core:")
+		
+		var subPredSet = Set[AtomicPredicate]()
+		
+		for (cubeElem <- subCube) subPredSet = subPredSet + getCubeElemPredicate(cubeElem, origPredSet)
+		
+		if ( ! isAcceptableSubCube(ctx, targetWP, subCube, subPredSet, origPredSet) ) return null
+		
+		if (Configuration.predicateSemModel.isAmbiguousCube(subCube, tempvar2eqlpreds)) return null
+		
+		return subCube
+	}
+	
+	private def getCubeElemPredicate(cubeElem : LogicFormula, predSet : Set[AtomicPredicate]) : AtomicPredicate =
+	{
+		if (cubeElem.isInstanceOf[AtomicPredicate] && predSet.contains(cubeElem.asInstanceOf[AtomicPredicate])) return cubeElem.asInstanceOf[AtomicPredicate]
+		else return cubeElem.asInstanceOf[Negation].clause.asInstanceOf[AtomicPredicate]
+	}
+	
+	/**
+	 * Returns true if the predicate matches possible values of some logic variable in the weakest precondition (such cube elements cannot be dropped).
+	 */
+	private def isRequiredCubeElem(resPred : AtomicPredicate, wpAtomicPreds : Iterable[AtomicPredicate], logicvar2matchexprs : Map[Expression, Set[Expression]]) : Boolean =
 	{
-		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] started generating cubes")
+		var matchesSomeLogicVar = false
+		var wpContainsLogicVar = false
+
+		for (wpPred <- wpAtomicPreds)
+		{
+			val wpPredVarNames = FormulaUtils.extractVariableNames(wpPred)
+
+			for (vname <- wpPredVarNames)
+			{
+				if (ExpressionUtils.isLogicVariable(vname))
+				{
+					wpContainsLogicVar = true
+
+					val vnameExpr = new Expression(vname)
+
+					val samePosExprs = FormulaUtils.findExprsWithMatchingPosition(wpPred, vnameExpr, resPred)
+
+					if (samePosExprs.size > 0)
+					{
+						var usedMatchExprs = logicvar2matchexprs.getOrElse(vnameExpr, Set[Expression]())
+
+						if (samePosExprs.intersect(usedMatchExprs).size > 0) matchesSomeLogicVar = true
+					}
+				}
+			}
+		}
+
+		return (wpContainsLogicVar && matchesSomeLogicVar)
+	}
+	
+	private def isAcceptableSubCube(ctx : AbstractionContext, targetWP : LogicFormula, subCube : Set[LogicFormula], subPredSet : Set[AtomicPredicate], origPredSet : Set[AtomicPredicate]) : Boolean =
+	{
+		// check whether the sub-cube contains only negated predicates from the result-determinig set
+		var onlyNegatedResPreds = true
+		for (subCubeElem <- subCube)
+		{
+			if (subCubeElem.isInstanceOf[AtomicPredicate] && origPredSet.contains(subCubeElem.asInstanceOf[AtomicPredicate])) onlyNegatedResPreds = false	
+		}
+		if (onlyNegatedResPreds) return false
+		
+		// check whether the sub-cube defines matching expressions for every logic variable in the weakest precondition				
+		val subCubeMatches = Configuration.predicateSemModel.findMatchingExpressions(targetWP, subPredSet, ctx.getCurClassOrigName(), ctx.getCurMethodName())
+		for (logicVarName <- FormulaUtils.extractVariableNames(targetWP) if ExpressionUtils.isLogicVariable(logicVarName))
+		{
+			// no matches for some logic variable
+			if (subCubeMatches.getOrElse(new Expression(logicVarName), Set[Expression]()).size == 0) return false
+		}
 		
-		// we use bit operations on the number that encodes a current combination (cube), and precompute some information (e.g., which powers of two correspond to conflicting predicates)
-		// we generate actual cube objects (sets of logic formulas) only for the included ones -> this avoids unnecessary computation for pruned cubes
+		return true
+	}
+	
+
+	private def findMinimalSubCubesRecursively(ctx : AbstractionContext, scope : StatementResolver.StatementScope, updatedPred : AtomicPredicate, targetWP : LogicFormula, oppositeWP : LogicFormula, origCube : Set[LogicFormula], origPredSet : Set[AtomicPredicate], tempSupForms : Set[LogicFormula], logicvar2matchexprs : Map[Expression, Set[Expression]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], cubeHolder : Map[String, Set[Set[LogicFormula]]]) : Boolean =
+	{
+		// we do not want an empty cube
+		if (origCube.size <= 1) return false
 		
-		var cubes = List[Set[LogicFormula]]()
+		var addedNewCubes = false
 		
-		val maxCombinations : Long = round(pow(2, resdetPredList.size))
+		// sibling sub-cubes (each without one element of the original cube) that must be checked, in the order of dropped elements
+		var siblingCubes = List[(Set[LogicFormula], Set[AtomicPredicate])]()
 		
-		if (Main.DEBUG) println("[DEBUG StatementResolver.generateCubes] max combinations = " + maxCombinations)
+		var firstCubePart = Set[LogicFormula]()
+		var secondCubePart = origCube
+
+		val wpAtomicPreds = FormulaUtils.extractAtomicPredicates(targetWP)
+
+		while (secondCubePart.size > 0)
+		{
+			val curCubeElem = secondCubePart.head
+			secondCubePart = secondCubePart.tail
+
+			val curResPred = getCubeElemPredicate(curCubeElem, origPredSet)
+
+			// if the weakest precondition contains some logic variables, then drop only those elements of the full cube that do not match possible values of logic variables that are captured in temporary supporting formulas
+			
+			val skipCubeElem = isRequiredCubeElem(curResPred, wpAtomicPreds, logicvar2matchexprs)
+			
+
+			if ( ! skipCubeElem )
+			{
+				val newSubCube = firstCubePart ++ secondCubePart
+				
+				var newPredSet : Set[AtomicPredicate] = origPredSet - curResPred
+	
+				// consider only sub-cubes that are acceptable, not ambiguous, and do not include some already identified minimal cube
+				if ( ( ! includesMinimalCube(newSubCube, cubeHolder) ) && isAcceptableSubCube(ctx, targetWP, newSubCube, newPredSet, origPredSet) && ( ! Configuration.predicateSemModel.isAmbiguousCube(newSubCube, tempvar2eqlpreds) ) )
+				{
+					siblingCubes = siblingCubes :+ (newSubCube, newPredSet)
+				}
+			}
+
+			// try another subcube (different subtree) in the next iteration
+
+			firstCubePart = firstCubePart + curCubeElem
+		}
 		
+		// queries about all siblings are submitted at once when the provider checks queries concurrently, but the results are used in the same order as when the siblings are checked one by one
+		// a sibling that includes a minimal cube found in the subtree of a previous sibling is still skipped (its results are not needed)
 		
-		// compute flags (patterns) that mark conflicting predicates
+		val submitSiblings = (siblingCubes.size > 1) && Configuration.smtProvider.supportsConcurrentCallers()
 		
-		// all tuples of conflicting predicates
-		// each pattern contains positive literals and negative literals
-		var patternsConflictLits = Set[(Set[Long],Set[Long])]()
+		val siblingResults : List[List[Future[Boolean]]] = siblingCubes.map(sc => if (submitSiblings) submitPredicateTruthValues(ctx, scope, sc._1, List(targetWP, oppositeWP), tempSupForms) else null)
 		
-		for ( (resPred, conflictingTuples) <- resdetpred2conflicts )
+		for ( ( (newSubCube, newPredSet), resultFutures ) <- siblingCubes.zip(siblingResults) )
 		{
-			val resPredIdx = resdetPredList.indexOf(resPred)
-			
-			for (cfLitTuple <- conflictingTuples)
+			if (includesMinimalCube(newSubCube, cubeHolder))
+			{
+				if (resultFutures != null) for (rf <- resultFutures) rf.cancel(false)
+			}
+			else
 			{
-				var posFlags = Set[Long]()
-				var negFlags = Set[Long]()
-								
-				posFlags = posFlags + round(pow(2, resPredIdx))
+				// check validity of the subcube
+			
+				// we use temporary supporting formulas based on the original predicate set and cube
+				
+				if (Main.DEBUG) FormulaUtils.printFormSet(newSubCube, "[DEBUG StatementResolver.findMinimalSubCubesRecursively] processing sub-cube:")
 				
-				for (cfLit <- cfLitTuple)
+				val toResults = if ((resultFutures != null) && ( ! scope.isTimeExceeded() )) resultFutures.map(_.get()) else computePredicateTruthValues(ctx, scope, updatedPred, newPredSet, newSubCube, List(targetWP, oppositeWP), tempSupForms)
+				
+				val tgtResult = toResults(0)
+			
+				val oppResult = toResults(1)
+			
+				if (Main.DEBUG) println("[DEBUG StatementResolver.findMinimalSubCubesRecursively] target result = " + tgtResult + ", opposite result = " + oppResult)
+							
+				if ( tgtResult && ( ! oppResult ) ) 
 				{
-					if (cfLit.isInstanceOf[Negation])
+					// this new subcube also implies the given weakest precondition
+
+					// try to find even smaller cubes recursively
+					val addedSmallerCubes = findMinimalSubCubesRecursively(ctx, scope, updatedPred, targetWP, oppositeWP, newSubCube, newPredSet, tempSupForms, logicvar2matchexprs, tempvar2eqlpreds, cubeHolder)
+					
+					if ( ! addedSmallerCubes )
 					{
-						val cfPred = cfLit.asInstanceOf[Negation].clause.asInstanceOf[AtomicPredicate]						
+						// we add the currently processed new sub-cube
 						
-						val cfPredIdx = resdetPredList.indexOf(cfPred)
-						
-						negFlags = negFlags + round(pow(2, cfPredIdx))
-					}
-					else
-					{
-						var cfPred = cfLit.asInstanceOf[AtomicPredicate]
+						var minimalCubes = cubeHolder.get("minimal").get
 						
-						val cfPredIdx = resdetPredList.indexOf(cfPred)
+						minimalCubes = minimalCubes + newSubCube
 						
-						posFlags = posFlags + round(pow(2, cfPredIdx))
+						cubeHolder.put("minimal", minimalCubes)							
 					}
+					
+					// either the current processed new sub-cube or a smaller cube was added
+					addedNewCubes = true
 				}
-				
-				patternsConflictLits = patternsConflictLits + ( (posFlags, negFlags) )
 			}
 		}
-			
 		
-		// compute flags marking predicates that would make a given cube unambiguous
+		return addedNewCubes
+	}
+	
+	/**
+	 * Returns true if the sub-cube includes some already identified minimal cube.
+	 */
+	private def includesMinimalCube(subCube : Set[LogicFormula], cubeHolder : Map[String, Set[Set[LogicFormula]]]) : Boolean =
+	{
+		for (minCube <- cubeHolder.get("minimal").get)
+		{				
+			if (minCube.subsetOf(subCube)) return true
+		}
+		
+		return false
+	}
+
+}
+
+object StatementResolver
+{
+	/**
+	 * New truth values of the updated predicate for a cube, and minimal sub-cubes that give the same precise result (null if there are none or the result is not precise).
+	 */
+	class CubeEvaluation (val posResult : Boolean, val negResult : Boolean, val minimalCubes : Set[Set[LogicFormula]])
+	
+	/**
+	 * Cubes for which the updated predicate is true (positive) or false (negative) after the statement.
+	 */
+	class DecisionTable (val posResultCubes : Set[Set[LogicFormula]], val negResultCubes : Set[Set[LogicFormula]])
+	
+	/**
+	 * Decision table in the cache, where each literal is given by the index of its predicate in the list of result-determining predicates (negative literals by "-index-1"), so that the table can be used for statements with other names of variables.
+	 */
+	class CachedDecisionTable (posResultCubes : Set[List[Int]], negResultCubes : Set[List[Int]])
+	{
+		/**
+		 * Returns the table over the given result-determining predicates (in the order of the list used when the table was cached).
+		 */
+		def createTable(resdetPredList : List[AtomicPredicate]) : DecisionTable =
+		{
+			val predArray = resdetPredList.toArray
+			
+			return new DecisionTable(posResultCubes.map(codedCube => CachedDecisionTable.decodeCube(codedCube, predArray)), negResultCubes.map(codedCube => CachedDecisionTable.decodeCube(codedCube, predArray)))
+		}
+	}
+	
+	object CachedDecisionTable
+	{
+		// code of the "true" predicate, which represents the empty cube in tables
+		private val TRUE_PRED_CODE = Int.MaxValue
 		
-		// one set of flags for each temporary variable
-		var flagsUnambigPreds = List[Set[Long]]()
 		
-		// get indexes of predicates that would make a given cube unambiguous
-		val tmpvar2unambgindexes = Configuration.predicateSemModel.getIndexesForUnambiguousPredicates(resdetPredList, tempvar2eqlpreds)
+		/**
+		 * Returns null if some cube contains a formula that is not a literal over the result-determining predicates.
+		 */
+		def create(table : DecisionTable, resdetPredList : List[AtomicPredicate]) : CachedDecisionTable =
+		{
+			val pred2index : Map[AtomicPredicate, Int] = new HashMap
+			
+			for (i <- 0 until resdetPredList.size) pred2index.getOrElseUpdate(resdetPredList(i), i)
+			
+			val posCodedCubes = encodeCubes(table.posResultCubes, pred2index)
+			val negCodedCubes = encodeCubes(table.negResultCubes, pred2index)
+			
+			if ((posCodedCubes == null) || (negCodedCubes == null)) return null
+			
+			return new CachedDecisionTable(posCodedCubes, negCodedCubes)
+		}
 		
-		for ( (tempVarName, unambgIndexes) <- tmpvar2unambgindexes )
+		private def encodeCubes(cubes : Set[Set[LogicFormula]], pred2index : Map[AtomicPredicate, Int]) : Set[List[Int]] =
 		{
-			var tmpvarFlags = Set[Long]()
+			var codedCubes = Set[List[Int]]()
 			
-			for (idx <- unambgIndexes) 
+			for (cube <- cubes)
 			{
-				tmpvarFlags = tmpvarFlags + round(pow(2, idx))	
+				var codedCube = List[Int]()
+				
+				for (lit <- cube)
+				{
+					val positive = ! lit.isInstanceOf[Negation]
+					
+					val pred = if (positive) lit else lit.asInstanceOf[Negation].clause
+					
+					val idxOpt = if (pred.isInstanceOf[AtomicPredicate]) pred2index.get(pred.asInstanceOf[AtomicPredicate]) else None
+					
+					if (positive && (lit == Constants.TRUE_PRED)) codedCube = TRUE_PRED_CODE :: codedCube
+					else if (idxOpt == None) return null
+					else if (positive) codedCube = idxOpt.get :: codedCube
+					else codedCube = (- idxOpt.get - 1) :: codedCube
+				}
+				
+				codedCubes = codedCubes + codedCube.sorted
 			}
 			
-			flagsUnambigPreds = flagsUnambigPreds :+ tmpvarFlags
+			return codedCubes
 		}
 		
+		private def decodeCube(codedCube : List[Int], predArray : Array[AtomicPredicate]) : Set[LogicFormula] =
+		{
+			var cube = Set[LogicFormula]()
+			
+			for (code <- codedCube)
+			{
+				if (code == TRUE_PRED_CODE) cube = cube + Constants.TRUE_PRED
+				else if (code >= 0) cube = cube + predArray(code)
+				else cube = cube + new Negation(predArray(- code - 1))
+			}
+			
+			return cube
+		}
+	}
+	
+	/**
+	 * Everything needed to generate the code that computes new truth values of the updated predicates (one decision table for each of them, in the order of the list).
+	 */
+	class Resolution (val updatedPredList : List[AtomicPredicate], val resdetPredSet : Set[AtomicPredicate], val tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], val alias2relevantpreds : Map[AtomicPredicate, Set[AtomicPredicate]], val resdetpred2conflicts : Map[AtomicPredicate, Set[Set[LogicFormula]]], val updatedPredTables : List[DecisionTable])
+	
+	/**
+	 * Data shared by all queries about one statement: permanent supporting formulas relevant for the statement, infeasible pairs of literals over the result-determining predicates (found on the first use), the time after which the solver is not asked anymore (0 means no limit), and whether the Cartesian mode is used.
+	 */
+	class StatementScope (val relevantSupportForms : Set[LogicFormula], findInfeasiblePairs : () => Set[Set[LogicFormula]], val deadline : Long, val cartesianMode : Boolean)
+	{
+		lazy val infeasibleLitPairs : Set[Set[LogicFormula]] = findInfeasiblePairs()
 		
-		// compute flags that mark irrelevant predicates with respect to aliasing between variables
+		@volatile private var timedOut = false
 		
-		// one patterns represents the aliasing predicate and relevant predicates
-		var patternsAliasRelevPreds = List[(Long,Set[Long])]()
 		
-		// get indexes of aliasing predicate and relevant predicates
-		var indexesAliasRelevPreds = Configuration.predicateSemModel.getIndexesForAliasingRelevantPredicates(resdetPredList, alias2relevantpreds)
+		/**
+		 * Returns true if some query was not asked because of the time limit.
+		 */
+		def hasTimedOut() : Boolean =
+		{
+			return timedOut
+		}
 		
-		for ( (aliasingPredIdx, relevantPredIndexes) <- indexesAliasRelevPreds )		
+		def isTimeExceeded() : Boolean =
 		{
-			val aliasPredFlag = round(pow(2, aliasingPredIdx))
-			
-			var relevPredFlags = Set[Long]()
+			if (timedOut) return true
 			
-			for (idx <- relevantPredIndexes) 
+			if ((deadline > 0) && (System.currentTimeMillis() > deadline))
 			{
-				relevPredFlags = relevPredFlags + round(pow(2, idx))	
+				println("[WARNING] SMT queries for the current statement did not finish within " + Configuration.smtStatementTimeoutMS + " ms, remaining results are unknown")
+				
+				timedOut = true
 			}
 			
-			patternsAliasRelevPreds = patternsAliasRelevPreds :+ (aliasPredFlag, relevPredFlags)
-		}		
+			return timedOut
+		}
 		
+		/**
+		 * Waits until the evaluated cube cannot be pruned by minimal cubes of other cubes, and returns false if the cube was pruned in the meantime.
+		 */
+		def awaitCubeTurn() : Boolean =
+		{
+			return true
+		}
+	}
+	
+	
+	/**
+	 * Scope of the evaluation of a single cube ahead of the processed cubes (see "ParallelCubeEvaluator").
+	 * The solver is not asked anymore when the cube was dropped (its result is not used), like when the time is over.
+	 */
+	class SpeculativeScope (parent : StatementScope, ticket : ParallelCubeEvaluator.Ticket) extends StatementScope(parent.relevantSupportForms, () => parent.infeasibleLitPairs, parent.deadline, parent.cartesianMode)
+	{
+		override def isTimeExceeded() : Boolean =
+		{
+			return ticket.isDropped() || parent.isTimeExceeded()
+		}
+		
+		override def awaitCubeTurn() : Boolean =
+		{
+			return ticket.awaitTurn()
+		}
+	}
+	
+	
+	// maximal number of unsat core queries for a single cube
+	val MAX_CORE_ITERATIONS = 3
+	
+	// cubes are encoded into a single long number when all of them are generated
+	val MAX_EXHAUSTIVE_PREDICATES = 63
+	
+	// results of rules in decision diagrams
+	val RESULT_FALSE = 0
+	val RESULT_TRUE = 1
+	val RESULT_KEEP = 2
+	val RESULT_BACKTRACK = 3
+	val RESULT_UNKNOWN = 4
+	
+	
+	/**
+	 * Renames variables in textual forms of formulas to positional names, which are given in the order of the first occurrence.
+	 * Only variables that do not have reserved names are renamed, like in canonical forms of single queries (see "ScriptSMTProvider.createCanonicalQuery").
+	 */
+	private class VariableRenamer (forms : Set[LogicFormula])
+	{
+		private var varNames = Set[String]()
 		
-		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] all flags precomputed")
+		for (form <- forms ; vname <- FormulaUtils.extractVariableNames(form) if ( ! Configuration.predicatesMngr.isReservedName(vname) )) varNames = varNames + vname
 		
+		private val var2posname : Map[String, String] = new HashMap
 		
-		// we create list of cubes where the first contains only negations and the last contains all positive predicates
 		
-		var curCmb : Long = 0
+		def rename(formStr : String) : String =
+		{
+			return replaceVariables(formStr, false)
+		}
 		
-		while (curCmb <= (maxCombinations - 1))
+		/**
+		 * Returns the renamed textual forms joined with the separator.
+		 * Forms are renamed in the order of their shapes (i.e., with all variable names masked) and then sorted, so that positions of variables depend on names as little as possible.
+		 */
+		def renameSet(formStrs : Iterable[String], separator : String) : String =
 		{
-			var includeCube = true
+			val orderedStrs = formStrs.toList.map(str => (replaceVariables(str, true), str)).sorted.map(_._2)
 			
-			// decide whether the cube should be ignored for some reason (conflicts, ambiguity, irrelevance for aliasing)
+			return orderedStrs.map(str => replaceVariables(str, false)).sorted.mkString(separator)
+		}
+		
+		private def replaceVariables(formStr : String, maskOnly : Boolean) : String =
+		{
+			val newFormStr = new StringBuilder()
 			
-			// look for conflicting literals
-			for ( (posFlags, negFlags) <- patternsConflictLits if includeCube )
-			{
-				var matchingConflictPattern = true
-				
-				for (pf <- posFlags)
-				{
-					if ((curCmb & pf) != pf) matchingConflictPattern = false
-				}
-				
-				for (nf <- negFlags)
-				{
-					if ((curCmb & nf) != 0) matchingConflictPattern = false
-				}
-				
-				if (matchingConflictPattern) includeCube = false
-			}			
+			var i = 0
 			
-			// check ambiguity
-			for (tmpvarFlagSet <- flagsUnambigPreds if includeCube)
+			while (i < formStr.length())
 			{
-				var containsUnambigPred = false
-				
-				for (flag <- tmpvarFlagSet)
+				if (isTokenDelimiter(formStr.charAt(i)))
 				{
-					if ((curCmb & flag) == flag) containsUnambigPred = true						
+					newFormStr.append(formStr.charAt(i))
+					i += 1
 				}
-				
-				if ( ! containsUnambigPred ) includeCube = false
-			}
-
-			// check irrelevancy with respect to aliasing between variables
-			for ( (aliasPredFlag, relevPredFlags) <- patternsAliasRelevPreds if includeCube )
-			{
-				if ((curCmb & aliasPredFlag) == 0)
+				else
 				{
-					// we have negated aliasing predicate
+					var j = i
 					
-					var containsPositiveRelevantPred = false
-					
-					for (flag <- relevPredFlags)
-					{
-						if ((curCmb & flag) == flag) containsPositiveRelevantPred = true						
-					}
+					while ((j < formStr.length()) && ( ! isTokenDelimiter(formStr.charAt(j)) )) j += 1
 					
-					if (containsPositiveRelevantPred) includeCube = false
-				}
-			}
-			
-
-			// include the new cube based on previous checks
-			if (includeCube)
-			{			
-				// generate the cube (subset of result determining predicates augmented with truth values) for the given combination		
-
-				var newCube = Set[LogicFormula]()
-	
-				var coef = 1
-				
-				for (pred <- resdetPredList)
-				{
-					val truthValue = curCmb & coef
+					val token = formStr.substring(i, j)
 					
-					if (truthValue == coef) newCube = newCube + pred
-					else newCube = newCube + new Negation(pred)
+					if ( ! varNames.contains(token) ) newFormStr.append(token)
+					else if (maskOnly) newFormStr.append(POSITIONAL_NAME_PREFIX)
+					else newFormStr.append(var2posname.getOrElseUpdate(token, POSITIONAL_NAME_PREFIX + var2posname.size))
 					
-					coef *= 2
+					i = j
 				}
-										
-				cubes = cubes :+ newCube
 			}
 			
-			
-			curCmb += 1
+			return newFormStr.toString()
 		}
 		
-		if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] finished generating cubes")
-		
-		return cubes
+		private def isTokenDelimiter(c : Char) : Boolean =
+		{
+			return (c == ' ') || (c == '(') || (c == ')') || (c == ',')
+		}
+	}
+	
+	// positional names of variables cannot clash with names in formulas
+	private val POSITIONAL_NAME_PREFIX = "#"
+	
+	
+	/**
+	 * Thread of the pool that computes decision tables (the class identifies threads of the pool).
+	 */
+	private class TableThread (r : Runnable) extends Thread(r, "decision-table")
+	
+	// threads that compute decision tables of updated predicates concurrently (created when needed)
+	private var tableExecutor : ExecutorService = null
+	
+	// relation graphs of methods (keys are full method names)
+	private val method2relations : Map[String, PredicateRelationGraph] = new HashMap
+	
+	// complete decision tables (keys are digests of canonical forms, see "createDecisionTableKey")
+	private val tableCache = new BoundedCache[String, CachedDecisionTable]("decisionTables", Configuration.decisionTableCacheMaxEntries)
+	
+	
+	/**
+	 * Returns the relation graph of predicates for the given method (it is created when needed).
+	 */
+	def getPredicateRelations(className : String, methodName : String) : PredicateRelationGraph = synchronized
+	{
+		return method2relations.getOrElseUpdate(className + "." + methodName, new PredicateRelationGraph(className, methodName))
 	}
 	
+	/**
+	 * Relation graphs are dropped when the set of predicates changes, because conflicting tuples may contain other predicates of the method.
+	 */
+	def clearPredicateRelations() = synchronized
+	{
+		method2relations.clear()
+	}
 	
-	private def findMinimalSubCubesImplyingWP(ctx : AbstractionContext, updatedPred : AtomicPredicate, targetWP : LogicFormula, oppositeWP : LogicFormula, origCube : Set[LogicFormula], origPredSet : Set[AtomicPredicate], tempSupForms : Set[LogicFormula], logicvar2matchexprs : Map[Expression, Set[Expression]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]]) : Set[Set[LogicFormula]] =
+	/**
+	 * Cached decision tables are dropped together with other caches (e.g., when some predicates were dropped), but they are kept for all properties.
+	 */
+	def clearDecisionTables() =
 	{
-		val cubeHolder : Map[String, Set[Set[LogicFormula]]] = new HashMap
+		tableCache.clear()
+	}
+	
+	/**
+	 * Stops threads that compute decision tables. The pool is created again when another table is computed concurrently.
+	 */
+	def shutdown() = synchronized
+	{
+		if (tableExecutor != null) tableExecutor.shutdownNow()
 		
-		cubeHolder.put("minimal", Set[Set[LogicFormula]]())
+		tableExecutor = null
+	}
+	
+	/**
+	 * Runs the tasks concurrently and returns their results in the same order.
+	 */
+	def computeConcurrently[T](tasks : List[() => T]) : List[T] =
+	{
+		// tasks submitted from a thread of the pool are computed directly, because waiting for them could block all threads
+		if ((tasks.size <= 1) || Thread.currentThread().isInstanceOf[TableThread]) 
+		{
+			val location = Configuration.smtProvider.getStatistics().getCurrentLocation()
+			
+			return tasks.map(task => Configuration.smtProvider.getStatistics().runInLocation(location, task))
+		}
 		
-		// we use a set because there can be multiple different sub-cubes 
+		var resultFutures = List[Future[T]]()
 		
-		findMinimalSubCubesRecursively(ctx, updatedPred, targetWP, oppositeWP, origCube, origPredSet, tempSupForms, logicvar2matchexprs, tempvar2eqlpreds, cubeHolder)
+		// queries made by the tasks are attributed to the location of the caller (unless the task sets its own location)
+		val location = Configuration.smtProvider.getStatistics().getCurrentLocation()
 		
-		val minimalCubes = cubeHolder.get("minimal").get
+		for (task <- tasks)
+		{
+			resultFutures = resultFutures :+ getTableExecutor().submit(new Callable[T]
+			{
+				def call() : T = Configuration.smtProvider.getStatistics().runInLocation(location, task)
+			})
+		}
 		
-		if (minimalCubes.size > 0) return minimalCubes
-		else return null // we have not found anything
+		var results = List[T]()
+		
+		try
+		{
+			for (rf <- resultFutures) results = results :+ rf.get()
+		}
+		catch
+		{
+			case ex : ExecutionException => throw ex.getCause()
+		}
+		
+		return results
 	}
 	
-
-	private def findMinimalSubCubesRecursively(ctx : AbstractionContext, updatedPred : AtomicPredicate, targetWP : LogicFormula, oppositeWP : LogicFormula, origCube : Set[LogicFormula], origPredSet : Set[AtomicPredicate], tempSupForms : Set[LogicFormula], logicvar2matchexprs : Map[Expression, Set[Expression]], tempvar2eqlpreds : Map[String, Set[AtomicPredicate]], cubeHolder : Map[String, Set[Set[LogicFormula]]]) : Boolean =
+	private def getTableExecutor() : ExecutorService = synchronized
 	{
-		// we do not want an empty cube
-		if (origCube.size <= 1) return false
-		
-		var addedNewCubes = false
-		
-		var firstCubePart = Set[LogicFormula]()
-		var secondCubePart = origCube
-
-		val wpAtomicPreds = FormulaUtils.extractAtomicPredicates(targetWP)
-
-		while (secondCubePart.size > 0)
+		if (tableExecutor == null)
 		{
-			val curCubeElem = secondCubePart.head
-			secondCubePart = secondCubePart.tail
-
-			var curResPred : AtomicPredicate = null
-			if (curCubeElem.isInstanceOf[AtomicPredicate] && origPredSet.contains(curCubeElem.asInstanceOf[AtomicPredicate])) curResPred = curCubeElem.asInstanceOf[AtomicPredicate]
-			else curResPred = curCubeElem.asInstanceOf[Negation].clause.asInstanceOf[AtomicPredicate]
-			
-
-			var skipCubeElem = false
-
-			// if the weakest precondition contains some logic variables, then drop only those elements of the full cube that do not match possible values of logic variables that are captured in temporary supporting formulas
-			
-			var matchesSomeLogicVar = false
-			var wpContainsLogicVar = false
-
-			for (wpPred <- wpAtomicPreds)
-			{
-				val wpPredVarNames = FormulaUtils.extractVariableNames(wpPred)
-
-				for (vname <- wpPredVarNames)
-				{
-					if (ExpressionUtils.isLogicVariable(vname))
-					{
-						wpContainsLogicVar = true
-
-						val vnameExpr = new Expression(vname)
-
-						val samePosExprs = FormulaUtils.findExprsWithMatchingPosition(wpPred, vnameExpr, curResPred)
-
-						if (samePosExprs.size > 0)
-						{
-							var usedMatchExprs = logicvar2matchexprs.getOrElse(vnameExpr, Set[Expression]())
-
-							if (samePosExprs.intersect(usedMatchExprs).size > 0) matchesSomeLogicVar = true
-						}
-					}
-				}
-			}
-
-			if (wpContainsLogicVar && matchesSomeLogicVar) skipCubeElem = true
-			
-
-			if ( ! skipCubeElem )
+			tableExecutor = Executors.newFixedThreadPool(Configuration.decisionTableThreads, new ThreadFactory()
 			{
-				val newSubCube = firstCubePart ++ secondCubePart
-				
-				var newPredSet : Set[AtomicPredicate] = origPredSet - curResPred
-	
-				var skipCube = false
-	
-				// check if the new sub-cube includes some already identified minimal cube
-				for (minCube <- cubeHolder.get("minimal").get if ( ! skipCube ) )
-				{				
-					if (minCube.subsetOf(newSubCube)) skipCube = true
-				}
-				
-				// check whether the new sub-cube contains only negated predicates from the result-determinig set
-				var onlyNegatedResPreds = true
-				for (newCubeElem <- newSubCube)
-				{
-					if (newCubeElem.isInstanceOf[AtomicPredicate] && origPredSet.contains(newCubeElem.asInstanceOf[AtomicPredicate])) onlyNegatedResPreds = false	
-				}
-				if (onlyNegatedResPreds) skipCube = true
-				
-				// check whether the new sub-cube defines matching expressions for every logic variable in the weakest precondition				
-				val newSubCubeMatches = Configuration.predicateSemModel.findMatchingExpressions(targetWP, newPredSet, ctx.getCurClassOrigName(), ctx.getCurMethodName())
-				for (logicVarName <- FormulaUtils.extractVariableNames(targetWP) if ExpressionUtils.isLogicVariable(logicVarName))
+				def newThread(r : Runnable) : Thread =
 				{
-					// no matches for some logic variable
-					if (newSubCubeMatches.getOrElse(new Expression(logicVarName), Set[Expression]()).size == 0) skipCube = true
-				}
-	
-				
-				if ( ! skipCube )
-				{	
-					// consider only sub-cubes that are not ambiguous
-					if ( ! Configuration.predicateSemModel.isAmbiguousCube(newSubCube, tempvar2eqlpreds) )
-					{
-						// check validity of the subcube
-					
-						// we use temporary supporting formulas based on the original predicate set and cube
-						
-						if (Main.DEBUG) FormulaUtils.printFormSet(newSubCube, "[DEBUG StatementResolver.findMinimalSubCubesRecursively] processing sub-cube:")
-						
-						val tgtResult = computePredicateTruthValue(ctx, updatedPred, newPredSet, newSubCube, targetWP, tempSupForms)
-					
-						val oppResult = computePredicateTruthValue(ctx, updatedPred, newPredSet, newSubCube, oppositeWP, tempSupForms)
-					
-						if (Main.DEBUG) println("[DEBUG StatementResolver.findMinimalSubCubesRecursively] target result = " + tgtResult + ", opposite result = " + oppResult)
-									
-						if ( tgtResult && ( ! oppResult ) ) 
-						{
-							// this new subcube also implies the given weakest precondition
-	
-							// try to find even smaller cubes recursively
-							val addedSmallerCubes = findMinimalSubCubesRecursively(ctx, updatedPred, targetWP, oppositeWP, newSubCube, newPredSet, tempSupForms, logicvar2matchexprs, tempvar2eqlpreds, cubeHolder)
-							
-							if ( ! addedSmallerCubes )
-							{
-								// we add the currently processed new sub-cube
-								
-								var minimalCubes = cubeHolder.get("minimal").get
-								
-								minimalCubes = minimalCubes + newSubCube
-								
-								cubeHolder.put("minimal", minimalCubes)							
-							}
-							
-							// either the current processed new sub-cube or a smaller cube was added
-							addedNewCubes = true
-						}
-					}
+					val t = new TableThread(r)
+					t.setDaemon(true)
+					return t
 				}
-			}
-
-			// try another subcube (different subtree) or backtrack from here (if the loop ends)
-
-			firstCubePart = firstCubePart + curCubeElem
+			})
 		}
 		
-		return addedNewCubes
+		return tableExecutor
 	}
-
 }
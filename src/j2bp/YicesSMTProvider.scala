@@ -15,9 +15,6 @@
  */
 package j2bp
 
-import java.io.Writer
-import java.io.OutputStreamWriter
-
 import scala.collection.immutable.List
 import scala.collection.mutable.Map
 import scala.collection.mutable.HashMap
@@ -26,378 +23,168 @@ import scala.util.matching.Regex
 import common._
 
 import util.StringUtils
+import util.BoundedCache
 
 
-class YicesSMTProvider extends SMTProvider
+/**
+ * Provider for the Yices solver (version 1), which reads scripts in its own language.
+ */
+class YicesSMTProvider extends ScriptSMTProvider
 {
-	protected var cacheForm2SMT : Map[String, String] = new HashMap
-	protected var cacheExpr2SMT : Map[String, String] = new HashMap
-	
-	protected var cacheValidityQuery2Result : Map[(Set[LogicFormula], LogicFormula), Boolean] = new HashMap
-	
-	protected var numSolverCalls : Long = 0
-	
-	
 	/**
-	 * This method checks validity of the formula "(resdetFormulas[1] and ... and resdetFormulas[N]) => weakPrecond".
+	 * Named formulas are asserted with "assert+", so that the solver can report them in the unsat core.
 	 */
-	def checkValidity(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Boolean =
+	override def findImplyingSubset(ctx : AbstractionContext, weakPrecond : LogicFormula, fixedForms : Set[LogicFormula], namedForms : Set[LogicFormula]) : Set[LogicFormula] =
 	{
-		var queryResultOpt = cacheValidityQuery2Result.get( (resdetCube, weakPrecond) )
+		// the solver prints identifiers of formulas asserted by "assert+" only in the verbose mode
 		
-		if (queryResultOpt != None) return queryResultOpt.get
+		val namedFormsList = namedForms.toList
 		
+		val smtCommands = createScriptWriter()
 		
-		var smtInput : String = ""
+		smtCommands.setVerbosity(2)
 		
-		if (Main.DEBUG) println("[DEBUG YicesSMTProvider.checkValidity] weakest precondition: " + weakPrecond.toString())
-
+		for (form <- namedFormsList) smtCommands.assertNamedFormula(convertFormulaToSMT(form))
 		
-		val reservedVarNames = Configuration.predicatesMngr.getReservedVariableNames()
-		val reservedFunctions = Configuration.predicatesMngr.getReservedFunctionSignatures()
-		val reservedConstants = Configuration.predicatesMngr.getReservedConstants()
+		smtCommands.setVerbosity(0)
 		
+		smtCommands.assertFormula("(not " + convertFormulaToSMT(weakPrecond) + ")")
 		
-		var formVarNames = Set[String]()
-		var formFieldNames = Set[String]()
+		// evidence for an unsatisfiable formula is the unsat core
+		smtCommands.checkWithEvidence()
 		
+		val smtOut = runAssertionScript(fixedForms, namedForms + weakPrecond, smtCommands.toString(), "findImplyingSubset")
 		
-		// extract variable names and field names from the cube and weakest precondition
+		if (smtOut == null) return super.findImplyingSubset(ctx, weakPrecond, fixedForms, namedForms)
 		
-		for ( formElem <- (resdetCube + weakPrecond) )
-		{
-			for (vname <- FormulaUtils.extractVariableNames(formElem))
-			{
-				if ( ! Configuration.predicatesMngr.isReservedName(vname) ) 
-				{
-					formVarNames = formVarNames + vname
-				}
-			}
-			
-			formFieldNames = formFieldNames ++ FormulaUtils.extractFieldNames(formElem)
-		}
-			
-		if (Main.DEBUG) StringUtils.printStringSet("[DEBUG YicesSMTProvider.checkValidity] variable names from the whole formula: ", formVarNames)
 		
-		if (Main.DEBUG) StringUtils.printStringSet("[DEBUG YicesSMTProvider.checkValidity] field names from the whole formula: ", formFieldNames)
-
+		// identifiers are printed in the order of assertions
 		
-		// write type declarations
-	
-		var declaredVars = List[String]()
+		val id2namedForm : Map[String, LogicFormula] = new HashMap
 		
-		for (vname <- formVarNames)
-		{
-			if ( ! declaredVars.contains(vname) )
-			{
-				smtInput = smtInput + ("(define " + convertNameToSMT(vname) + "::int)\n")
-				declaredVars = declaredVars :+ vname
-			}
-		}
-
-		var declaredFunctions = List[String]()
+		var coreIDs : Array[String] = null
 		
-		for (fieldName <- formFieldNames)
-		{
-			if ( ! declaredFunctions.contains(fieldName) )
-			{
-				smtInput = smtInput + ("(define " + convertNameToSMT(fieldName) + "::(-> int int))\n")
-				declaredFunctions = declaredFunctions :+ fieldName
-			}
-		}
-
+		var resultLine : String = null
 		
-		// built-in variables and functions
-				
-		for (rvar <- reservedVarNames)
+		for (line <- smtOut.split("\n"))
 		{
-			if ( ! declaredVars.contains(rvar) )
+			if (line.startsWith("id:")) 
 			{
-				smtInput = smtInput + ("(define " + rvar + "::int)\n")
-				declaredVars = declaredVars :+ rvar
+				if (id2namedForm.size < namedFormsList.size) id2namedForm.put(line.substring(3).trim(), namedFormsList(id2namedForm.size))
 			}
-		}			
-		
-		for (rfunc <- reservedFunctions)
-		{
-			if ( ! declaredFunctions.contains(rfunc._1) )
+			else if (line.startsWith("unsat core ids:"))
 			{
-				smtInput = smtInput + ("(define " + rfunc._1 + "::(-> " + rfunc._2 + " " + rfunc._3 + "))\n")
-				declaredFunctions = declaredFunctions :+ rfunc._1
+				coreIDs = line.substring("unsat core ids:".length()).trim().split(" ").filter(_.length() > 0)
 			}
-		}
-		
-		for (rconst <- reservedConstants)
-		{
-			smtInput = smtInput + ("(define " + rconst._1 + "::int (" + rconst._2 + "))\n")
-		}
-		
-		
-		// we check validity of the formula by checking satisfiability of its negation
-		
-		// generate formula from predicates
-
-		smtInput = smtInput + "(assert (not (=> "
-	
-		if (resdetCube.size > 1)
-		{
-			smtInput = smtInput + "("
-			
-			smtInput = smtInput + "and"
-			
-			for (cubeElem <- resdetCube)  
+			else if (resultLine == null) 
 			{
-				smtInput = smtInput + (" " + convertFormulaToSMT(cubeElem))
+				resultLine = line
 			}
-
-			smtInput = smtInput + ")"
-		}
-		else if (resdetCube.size == 1)
-		{
-			smtInput = smtInput + convertFormulaToSMT(resdetCube.head)
-		}
-		else
-		{
-			smtInput = smtInput + "true"
 		}
 		
-		smtInput = smtInput + (" " + convertFormulaToSMT(weakPrecond))
+		val queryResult = (resultLine != null) && resultLine.startsWith("unsat")
 		
-		smtInput = smtInput + " ) ) )\n"
+		cacheValidityQuery2Result.put(BoundedCache.digestKey(createCanonicalQuery(weakPrecond, fixedForms ++ namedForms)), queryResult)
 		
-		// run the satisfiability check
-		smtInput = smtInput + "(check)\n"
+		if ( ! queryResult ) return null
 		
-				
-		// run the Yices smt solver to read from stdin given as normal string
-		// yices reads from stdin and prints to stdout (and errors go to stderr)
-		
-		var smtCommand = "./tools/yices"
-		if (Main.DEBUG) smtCommand = smtCommand + " -e"
+		// we cannot tell which named formulas are in the core
+		if ((coreIDs == null) || (id2namedForm.size != namedFormsList.size)) return namedForms
 		
-		val smtResult : (Int, String, String) = util.Process.runCmdWithStrOutputs(smtCommand, util.Process.string2outstream(smtInput))
+		var coreForms = Set[LogicFormula]()
 		
-		numSolverCalls += 1
-		
-		if (Main.DEBUG) 
+		for (id <- coreIDs)
 		{
-			println("[DEBUG YicesSMTProvider.checkValidity] input for the SMT solver:")
-			val smtInputLines : Array[String] = smtInput.split("\n")
-			for (line <- smtInputLines) 
-			{
-				if ( ! line.startsWith("(define") ) println("\t" + line)
-			}
-
-			println("[DEBUG YicesSMTProvider.checkValidity] smt result: status = " + smtResult._1 + ", output = ")			
-			val smtOutputLines : Array[String] = smtResult._2.split("\n")
-			for (line <- smtOutputLines) println("\t" + line)
-		}
+			val formOpt = id2namedForm.get(id)
 			
-		// some error occurred
-		if (smtResult._1 != 0) 
-		{
-			println("[ERROR] solver failed, error message = " + smtResult._3)
-			
-			println("[ERROR] input for the SMT solver:")
-			val smtInputLines : Array[String] = smtInput.split("\n")
-			for (line <- smtInputLines) println("\t" + line)
+			if (formOpt == None) return namedForms
 			
-			return false
+			coreForms = coreForms + formOpt.get
 		}
 		
-		val smtOut = smtResult._2
+		return coreForms
+	}
 
+	/**
+	 * Boolean variables that mirror truth values of the predicates are defined, so that the model returned by the solver says which literals hold.
+	 */
+	def findSatisfyingCube(ctx : AbstractionContext, forms : Set[LogicFormula], preds : List[AtomicPredicate]) : Set[LogicFormula] =
+	{
+		val smtCommands = createScriptWriter()
 		
-		var queryResult = true
+		for (i <- 0 until preds.size)
+		{
+			smtCommands.defineVariable(ScriptSMTProvider.PRED_VALUE_VAR_PREFIX + i, "bool")
+			smtCommands.assertFormula("(= " + ScriptSMTProvider.PRED_VALUE_VAR_PREFIX + i + " " + convertFormulaToSMT(preds(i)) + ")")
+		}
 		
-		if (smtOut.startsWith("sat")) queryResult = false
+		// evidence for a satisfiable formula is the model
+		smtCommands.checkWithEvidence()
 		
-		cacheValidityQuery2Result.put( (resdetCube, weakPrecond), queryResult )
+		val smtOut = runAssertionScript(forms, preds.toSet[LogicFormula], smtCommands.toString(), "findSatisfyingCube")
 		
-		return queryResult
-	}
-	
-	
-	def resetCounters() =
-	{
-		numSolverCalls = 0	
-	}
-	
-	def getCountersValue() : Long =
-	{
-		return numSolverCalls
-	}
-	
-	
-	private def convertFormulaToSMT(form : LogicFormula) : String =
-	{
-		var formSMTOpt = cacheForm2SMT.get(form.toString())
+		if (smtOut == null) return null
 		
-		if (formSMTOpt != None) return formSMTOpt.get
+		val smtOutLines = smtOut.split("\n")
 		
+		if ((smtOutLines.length == 0) || ( ! smtOutLines(0).startsWith("sat") )) return null
 		
-		var formSMT = ""
 		
-		if (form.isInstanceOf[BinaryPredicate])
-		{
-			val binPred = form.asInstanceOf[BinaryPredicate]
-			
-			if (binPred.op == "!=") formSMT = "(not (= " + convertExprToSMT(binPred.left) + " " + convertExprToSMT(binPred.right) + "))"
-			else formSMT = "(" + binPred.op + " " + convertExprToSMT(binPred.left) + " " + convertExprToSMT(binPred.right) + ")"
-		}
-		else if (form.isInstanceOf[UnaryPredicate])
-		{
-			val unPred = form.asInstanceOf[UnaryPredicate]
-
-			if (unPred.op == "") formSMT = convertExprToSMT(unPred.arg)
-			else formSMT = "(" + unPred.op + " " + convertExprToSMT(unPred.arg) + ")"
-		}
-		else if (form.isInstanceOf[Negation])
-		{
-			val negForm = form.asInstanceOf[Negation]
-			
-			formSMT = "(not " + convertFormulaToSMT(negForm.clause) + ")"
-		}
-		else if (form.isInstanceOf[Conjunction])
-		{
-			val conjForm = form.asInstanceOf[Conjunction]
-
-			var conjFormStr = "(and" 
-
-			for (cl <- conjForm.clauses)
-			{
-				conjFormStr = conjFormStr + (" " + convertFormulaToSMT(cl))
-			}
-
-			conjFormStr = conjFormStr + ")"
+		val predIdx2value : Map[Int, Boolean] = new HashMap
 		
-			formSMT = conjFormStr
-		}
-		else if (form.isInstanceOf[Disjunction])
+		for (line <- smtOutLines)
 		{
-			val disjForm = form.asInstanceOf[Disjunction]
-
-			var disjFormStr = "(or" 
-
-			for (cl <- disjForm.clauses)
+			if (line.startsWith("(= " + ScriptSMTProvider.PRED_VALUE_VAR_PREFIX))
 			{
-				disjFormStr = disjFormStr + (" " + convertFormulaToSMT(cl))
+				val assignment = line.substring(3 + ScriptSMTProvider.PRED_VALUE_VAR_PREFIX.length(), line.length() - 1).split(" ")
+				
+				predIdx2value.put(java.lang.Integer.parseInt(assignment(0)), (assignment(1) == "true"))
 			}
-
-			disjFormStr = disjFormStr + ")"
-		
-			formSMT = disjFormStr
-		}
-		else if (form.isInstanceOf[Implication])
-		{
-			val implyForm = form.asInstanceOf[Implication]
-			
-			formSMT = "(=> " + convertFormulaToSMT(implyForm.ante) + " " + convertFormulaToSMT(implyForm.cons) + ")"
-		}
-		else if (form.isInstanceOf[ExistentialQuantification])
-		{
-			val existForm = form.asInstanceOf[ExistentialQuantification]
-			
-			formSMT = "(exists (" + existForm.quantVarName + "::int) " + convertFormulaToSMT(existForm.clause) + ")"
-		}
-		else
-		{
-			// default -> should not happen
-			formSMT = convertNameToSMT(form.toString())
 		}
 		
-		cacheForm2SMT.put(form.toString(), formSMT)
-
-		return formSMT
+		return createCubeFromPredicateValues(preds, predIdx2value)
 	}
-	
-	private def convertExprToSMT(expr : Expression) : String =
+
+	protected def getSolverCommand() : String =
 	{
-		var exprSMTOpt = cacheExpr2SMT.get(expr.toString())
+		var smtCommand = YicesSMTProvider.SOLVER_COMMAND
+		if (Main.DEBUG) smtCommand = smtCommand + " -e"
 		
-		if (exprSMTOpt != None) return exprSMTOpt.get
-
-		// translate function symbols into the standard theory of function updates
-
-		var exprSMT = ""
+		return smtCommand
+	}
 
-		if (expr.isInstanceOf[FunctionExpression])
-		{
-			val funcExpr = expr.asInstanceOf[FunctionExpression]
-			
-			if (funcExpr.name == Constants.ARRAY_UPDATE_OPER)
-			{
-				// convert function expression "update(f,args,e)" to "(update f (args) e)"
+	protected def createScriptWriter(out : java.lang.Appendable = new java.lang.StringBuilder()) : SMTScriptWriter =
+	{
+		return new YicesScriptWriter(out)
+	}
 
-				exprSMT = "(" + Constants.ARRAY_UPDATE_OPER + " " + funcExpr.args(0)
-				
-				exprSMT += " ("
-				
-				for (i <- 1 to (funcExpr.args.length - 2))
-				{
-					if (i > 1) exprSMT += " "
-					
-					exprSMT = exprSMT + convertExprToSMT(funcExpr.args(i))
-				}
-				
-				exprSMT += ") "
-				
-				exprSMT = exprSMT + convertExprToSMT(funcExpr.args(funcExpr.args.length - 1))
-				
-				exprSMT = exprSMT + ")"
-			}
-			else
-			{
-				// the first argument can be "update" so we must convert it too
-				
-				exprSMT = "(" + convertExprToSMT(funcExpr.args(0))
-			
-				for (i <- 1 to (funcExpr.args.length - 1))
-				{
-					exprSMT = exprSMT + " " + convertExprToSMT(funcExpr.args(i))
-				}
-			
-				exprSMT = exprSMT + ")"
-			}
-		}
-		else if (expr.isInstanceOf[ArithmeticExpression])
-		{
-			val arExpr = expr.asInstanceOf[ArithmeticExpression]
-			
-			exprSMT = "(" + getOperatorString(arExpr.op) + " " + convertExprToSMT(arExpr.left) + " " + convertExprToSMT(arExpr.right) + ")"			
-		}
-		else if (ExpressionUtils.isFieldAccessPath(expr)) 
-		{
-			val fapTgtObjExpr = ExpressionUtils.extractTargetObjExprFromFieldAccessPath(expr)
+	/**
+	 * Converts the application of the function given as the first argument to the remaining arguments.
+	 */
+	protected def convertApplicationToSMT(funcExpr : FunctionExpression) : String =
+	{
+		// the first argument can be "update" so we must convert it too
 		
-			val fieldNames = ExpressionUtils.extractFieldNamesFromFieldAccessPath(expr)
-
-			exprSMT = convertExprToSMT(fapTgtObjExpr)
-			
-			for (fname <- fieldNames)
-			{
-				exprSMT = "(" + fname + " " + exprSMT + ")"
-			}
-		}
-		else
+		var exprSMT = "(" + convertExprToSMT(funcExpr.args(0))
+	
+		for (i <- 1 to (funcExpr.args.length - 1))
 		{
-			exprSMT = convertNameToSMT(expr.toString())
+			exprSMT = exprSMT + " " + convertExprToSMT(funcExpr.args(i))
 		}
-
-		cacheExpr2SMT.put(expr.toString(), exprSMT)
-
-		return exprSMT
-	}
 	
-	private def convertNameToSMT(vname : String) : String =
-	{
-		return vname.replace('.', '_').replace('[', '_').replace(']', '_')	
+		exprSMT = exprSMT + ")"
+		
+		return exprSMT
 	}
-	
-	private def getOperatorString(op : String) : String =
+
+	protected def convertExistentialToSMT(quantVarName : String, clauseSMT : String) : String =
 	{
-		if (op == "%") return "mod"
-		
-		return op
+		return "(exists (" + quantVarName + "::int) " + clauseSMT + ")"
 	}
 }
+
+
+object YicesSMTProvider
+{
+	val SOLVER_COMMAND = "./tools/yices"
+}
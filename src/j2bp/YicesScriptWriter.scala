@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package j2bp
+
+
+/**
+ * Emits commands of the Yices input language.
+ */
+class YicesScriptWriter (out : java.lang.Appendable) extends SMTScriptWriter(out)
+{
+	def this() = this(new java.lang.StringBuilder())
+
+
+	def defineVariable(name : String, typeName : String) =
+	{
+		out.append("(define ").append(name).append("::").append(typeName).append(")\n")
+	}
+
+	def defineFunction(name : String, argTypes : String, resultType : String) =
+	{
+		out.append("(define ").append(name).append("::(-> ").append(argTypes).append(" ").append(resultType).append("))\n")
+	}
+
+	def defineConstant(name : String, typeName : String, value : String) =
+	{
+		out.append("(define ").append(name).append("::").append(typeName).append(" (").append(value).append("))\n")
+	}
+
+	/**
+	 * The solver reports identifiers of formulas asserted in this way (in the verbose mode) and uses them in unsat cores.
+	 */
+	def assertNamedFormula(formSMT : String) =
+	{
+		out.append("(assert+ ").append(formSMT).append(")\n")
+	}
+
+	def push() =
+	{
+		out.append("(push)\n")
+	}
+
+	def pop() =
+	{
+		out.append("(pop)\n")
+	}
+
+	def check() =
+	{
+		out.append("(check)\n")
+	}
+
+	def checkWithEvidence() =
+	{
+		out.append("(set-evidence! true)\n(check)\n(set-evidence! false)\n")
+	}
+
+	def setVerbosity(level : Int) =
+	{
+		out.append("(set-verbosity! ").append(String.valueOf(level)).append(")\n")
+	}
+
+	def echo(text : String) =
+	{
+		out.append("(echo \"").append(text).append("\\n\")\n")
+	}
+}
@@ -30,6 +30,7 @@ import j2bp.Main
 import j2bp.Configuration
 import j2bp.AbstractionContext
 import j2bp.GenUtils
+import j2bp.StatementResolver
 
 import util.StringUtils
 
@@ -402,7 +403,9 @@ class ContainerMethodCallAbstractor extends j2bp.DefaultMethodCallAbstractor wit
 
 		
 		// compute new truth value of each predicate to be updated separately
-		// new truth values are stored on the stack
+
+		val upPred2ResultPreds : Map[AtomicPredicate, Set[AtomicPredicate]] = new HashMap
+		
 		for (upPred <- updatePredList) 
 		{
 			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] started processing next updated predicate")
@@ -428,7 +431,24 @@ class ContainerMethodCallAbstractor extends j2bp.DefaultMethodCallAbstractor wit
 			if (Main.DEBUG) FormulaUtils.printAtomPredSet(resultPredSet, "[DEBUG ContainerMethodCallAbstractor.resolveContainerMethodCall] relevant predicates that may determine result:")
 
 			
-			resolve(ctx, mv, mainTargetExpr, Set[AtomicPredicate](upPred), resultPredSet, updatePred2PosWP, updatePred2NegWP, false)
+			upPred2ResultPreds.put(upPred, resultPredSet)
+		}
+		
+		val upPredResolutions = 
+			if (Configuration.concurrentDecisionTables && (updatePredList.size > 1) && Configuration.smtProvider.supportsConcurrentCallers())
+			{
+				// resolutions for different updated predicates are independent (each records queries for its own location)
+				StatementResolver.computeConcurrently(updatePredList.map(upPred => () => computeResolution(ctx, mainTargetExpr, Set[AtomicPredicate](upPred), upPred2ResultPreds.get(upPred).get, updatePred2PosWP, updatePred2NegWP)))
+			}
+			else
+			{
+				updatePredList.map(upPred => computeResolution(ctx, mainTargetExpr, Set[AtomicPredicate](upPred), upPred2ResultPreds.get(upPred).get, updatePred2PosWP, updatePred2NegWP))
+			}
+		
+		// new truth values are stored on the stack
+		for (res <- upPredResolutions) 
+		{
+			emitResolution(ctx, mv, res, false)
 			
 			if (Main.DEBUG) Main.printCurrentTimeMS("[TIME] finished processing updated predicate")
 		}
@@ -556,9 +556,9 @@ class ContainerPredicateSemanticsModel extends j2bp.DefaultPredicateSemanticsMod
 	}
 	
 
-	override def getConflictingLiterals(headPred : AtomicPredicate, resdetPredSet : Set[AtomicPredicate], weakPrecond : LogicFormula, curClassOrigName : String, curMethodName : String) : Set[Set[LogicFormula]] =	
+	override def getConflictingLiterals(headPred : AtomicPredicate, resdetPredSet : Set[AtomicPredicate], curClassOrigName : String, curMethodName : String) : Set[Set[LogicFormula]] =	
 	{
-		var conflictingTuples = super.getConflictingLiterals(headPred, resdetPredSet, weakPrecond, curClassOrigName, curMethodName)
+		var conflictingTuples = super.getConflictingLiterals(headPred, resdetPredSet, curClassOrigName, curMethodName)
 	
 		
 		if (ContainerPredicateUtils.isMapOrderPredicate(headPred))
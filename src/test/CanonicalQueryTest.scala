@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import common.LogicFormula
+import common.ExistentialQuantification
+import common.Constants
+
+import j2bp.Configuration
+import j2bp.YicesSMTProvider
+
+
+/**
+ * Checks that canonical forms of queries, which are keys of the caches of query results, are the same exactly for queries that differ in names of variables and in the order of formulas.
+ */
+object CanonicalQueryTest extends UnitTestBase
+{
+	/**
+	 * Makes the canonical form available to the test (no solver is started).
+	 */
+	private class CanonicalQueryProvider extends YicesSMTProvider
+	{
+		def getCanonicalQuery(weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : String = createCanonicalQuery(weakPrecond, resdetCube)
+	}
+
+
+	def main(args : Array[String]) : Unit =
+	{
+		Configuration.init(false)
+		
+		val provider = new CanonicalQueryProvider()
+		
+		
+		val key1 = provider.getCanonicalQuery(form("= y 1"), Set(form("= x 1"), form("= y x")))
+		
+		check(key1 == provider.getCanonicalQuery(form("= b 1"), Set(form("= a 1"), form("= b a"))), "queries that differ only in names of variables have the same key")
+		
+		check(key1 != provider.getCanonicalQuery(form("= y 1"), Set(form("= x 2"), form("= y x"))), "queries with different constants have different keys")
+		
+		check(key1 != provider.getCanonicalQuery(form("= x 1"), Set(form("= x 1"), form("= y x"))), "queries where the renaming of variables is not consistent have different keys")
+		
+		
+		// the bound variable of the existential quantifier is replaced by a free program variable with the same role
+		
+		val boundVarName = Constants.QUANT_VAR_PREFIX + "k"
+		
+		val keyBound = provider.getCanonicalQuery(new ExistentialQuantification(boundVarName, form("= " + boundVarName + " x")), Set(form("= x 1")))
+		
+		val keyFree = provider.getCanonicalQuery(new ExistentialQuantification(boundVarName, form("= z x")), Set(form("= x 1")))
+		
+		check(keyBound != keyFree, "queries that differ in a free program variable and a bound variable have different keys")
+		
+		check(keyBound == provider.getCanonicalQuery(new ExistentialQuantification(boundVarName, form("= " + boundVarName + " w")), Set(form("= w 1"))), "free variables of a quantified query are still renamed")
+		
+		
+		// sets with up to four elements keep the order in which elements were added
+		
+		val cubeForms = List(form("= x 1"), form("= y x"), form("!= z y"), form("= w 2"))
+		
+		val keyOrdered = provider.getCanonicalQuery(form("= z w"), cubeForms.toSet)
+		
+		check(keyOrdered == provider.getCanonicalQuery(form("= z w"), cubeForms.reverse.toSet), "order of formulas in the cube does not affect the key")
+		
+		check(keyOrdered == provider.getCanonicalQuery(form("= z w"), Set(cubeForms(2), cubeForms(0), cubeForms(3), cubeForms(1))), "any permutation of the cube has the same key")
+		
+		finish()
+	}
+}
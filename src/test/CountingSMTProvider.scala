@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import common.LogicFormula
+import common.AtomicPredicate
+import common.Negation
+import common.Conjunction
+import common.Disjunction
+import common.FormulaUtils
+
+import j2bp.AbstractionContext
+import j2bp.SMTProvider
+import j2bp.EqualityPreSolver
+
+
+/**
+ * Provider used by tests instead of an external solver.
+ * Queries are decided by congruence closure (see "EqualityPreSolver"), so they must contain only equalities and disequalities, and queries that cannot be decided in this way are reported as not valid.
+ * Negated conjunctions and disjunctions in weakest preconditions are rewritten to disjunctions and conjunctions of negated clauses first.
+ * Each query is recorded into the statistics as one solver run.
+ */
+class CountingSMTProvider extends SMTProvider
+{
+	private val solver = new EqualityPreSolver()
+	
+	// number of queries decided by this provider
+	val validityCalls = new AtomicInteger(0)
+	
+	// number of batches received by this provider
+	val batchCalls = new AtomicInteger(0)
+	
+	// background formulas of the current query context (each calling thread has its own context)
+	private val ctxBackgroundForms = new ThreadLocal[Set[LogicFormula]]()
+	
+	
+	def checkValidity(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Boolean =
+	{
+		validityCalls.incrementAndGet()
+		
+		statistics.recordValidityQuery(false)
+		statistics.recordSolverRun(0, 0)
+		
+		return solver.checkValidity(pushNegation(weakPrecond), resdetCube).getOrElse(false)
+	}
+	
+	def openQueryContext(ctx : AbstractionContext, backgroundForms : Set[LogicFormula]) =
+	{
+		ctxBackgroundForms.set(backgroundForms)
+	}
+	
+	def checkValidityInContext(ctx : AbstractionContext, weakPrecond : LogicFormula, resdetCube : Set[LogicFormula]) : Boolean =
+	{
+		val background = ctxBackgroundForms.get()
+		
+		if (background != null) return checkValidity(ctx, weakPrecond, resdetCube ++ background)
+		else return checkValidity(ctx, weakPrecond, resdetCube)
+	}
+	
+	def closeQueryContext() =
+	{
+		ctxBackgroundForms.remove()
+	}
+	
+	override def checkValidityBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])]) : List[Boolean] =
+	{
+		batchCalls.incrementAndGet()
+		
+		return super.checkValidityBatch(ctx, queries)
+	}
+	
+	override def checkValidityInContextBatch(ctx : AbstractionContext, queries : List[(LogicFormula, Set[LogicFormula])]) : List[Boolean] =
+	{
+		batchCalls.incrementAndGet()
+		
+		return super.checkValidityInContextBatch(ctx, queries)
+	}
+	
+	def findSatisfyingCube(ctx : AbstractionContext, forms : Set[LogicFormula], preds : List[AtomicPredicate]) : Set[LogicFormula] =
+	{
+		return null
+	}
+	
+	override def supportsConcurrentCallers() : Boolean =
+	{
+		return true
+	}
+	
+	def resetCounters() =
+	{
+		validityCalls.set(0)
+		batchCalls.set(0)
+	}
+	
+	def getCountersValue() : Long =
+	{
+		return validityCalls.get()
+	}
+	
+	def shutdown() =
+	{
+	}
+	
+	private def pushNegation(form : LogicFormula) : LogicFormula =
+	{
+		if ( ! form.isInstanceOf[Negation] ) return form
+		
+		val clause = form.asInstanceOf[Negation].clause
+		
+		if (clause.isInstanceOf[Conjunction]) return new Disjunction(clause.asInstanceOf[Conjunction].clauses.map(cl => FormulaUtils.negate(cl)))
+		
+		if (clause.isInstanceOf[Disjunction]) return new Conjunction(clause.asInstanceOf[Disjunction].clauses.map(cl => FormulaUtils.negate(cl)))
+		
+		return form
+	}
+}
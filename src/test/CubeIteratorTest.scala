@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import scala.collection.mutable.HashMap
+
+import common.LogicFormula
+import common.AtomicPredicate
+import common.Negation
+
+import j2bp.Configuration
+import j2bp.CubeIterator
+
+
+/**
+ * Compares cubes returned by the iterator with a plain enumeration of all combinations, and checks that ranges of subsumed combinations are skipped without visiting each of them.
+ */
+object CubeIteratorTest extends UnitTestBase
+{
+	def main(args : Array[String]) : Unit =
+	{
+		Configuration.init(false)
+		
+		val preds = (0 until 6).toList.map(i => form("= x" + i + " 0").asInstanceOf[AtomicPredicate])
+		
+		// p0 and p1 cannot be both true, p2 cannot be true when p3 is false
+		val resdetpred2conflicts = new HashMap[AtomicPredicate, Set[Set[LogicFormula]]]()
+		resdetpred2conflicts.put(preds(0), Set(Set[LogicFormula](preds(1))))
+		resdetpred2conflicts.put(preds(2), Set(Set[LogicFormula](new Negation(preds(3)))))
+		
+		// p4 and p5 cannot be both false, and the pair with a predicate outside of the list is ignored
+		val infeasibleLitPairs = Set(Set[LogicFormula](new Negation(preds(4)), new Negation(preds(5))), Set[LogicFormula](preds(0), form("= z 0")))
+		
+		// minimal cubes registered after the given number of returned cubes
+		val minimalCubesAfter = Map(3 -> Set[LogicFormula](preds(4), new Negation(preds(5))), 5 -> Set[LogicFormula](new Negation(preds(1))))
+		
+		
+		val cubeIter = new CubeIterator(preds, resdetpred2conflicts, infeasibleLitPairs, new HashMap, new HashMap)
+		
+		var returnedCubes = List[Set[LogicFormula]]()
+		
+		while (cubeIter.hasNext())
+		{
+			returnedCubes = returnedCubes :+ cubeIter.next()
+			
+			val minCubeOpt = minimalCubesAfter.get(returnedCubes.size)
+			
+			if (minCubeOpt != None) cubeIter.addMinimalCube(minCubeOpt.get)
+		}
+		
+		
+		var expectedCubes = List[Set[LogicFormula]]()
+		
+		var minimalCubes = List[Set[LogicFormula]]()
+		
+		for (cmb <- 0 until (1 << preds.size))
+		{
+			val cube : Set[LogicFormula] = preds.indices.map(i => if ((cmb & (1 << i)) != 0) preds(i) else new Negation(preds(i))).toSet
+			
+			val conflict = (cube.contains(preds(0)) && cube.contains(preds(1))) || (cube.contains(preds(2)) && cube.contains(new Negation(preds(3)))) || (cube.contains(new Negation(preds(4))) && cube.contains(new Negation(preds(5))))
+			
+			if (( ! conflict ) && ( ! minimalCubes.exists(_.subsetOf(cube)) ))
+			{
+				expectedCubes = expectedCubes :+ cube
+				
+				val minCubeOpt = minimalCubesAfter.get(expectedCubes.size)
+				
+				if (minCubeOpt != None) minimalCubes = minimalCubes :+ minCubeOpt.get
+			}
+		}
+		
+		check(returnedCubes == expectedCubes, "iterator returns the same cubes in the same order as the plain enumeration (" + expectedCubes.size + " cubes)")
+		
+		
+		// with 40 predicates, visiting every combination would never finish
+		
+		val manyPreds = (0 until 40).toList.map(i => form("= y" + i + " 0").asInstanceOf[AtomicPredicate])
+		
+		val bigIter = new CubeIterator(manyPreds, new HashMap, Set[Set[LogicFormula]](), new HashMap, new HashMap)
+		
+		val firstCube = bigIter.next()
+		
+		bigIter.addMinimalCube(Set[LogicFormula](new Negation(manyPreds(39))))
+		
+		bigIter.addMinimalCube(Set[LogicFormula](manyPreds(39), new Negation(manyPreds(38))))
+		
+		val secondCube = bigIter.next()
+		
+		bigIter.addMinimalCube(Set[LogicFormula](manyPreds(39), manyPreds(38)))
+		
+		check(firstCube.forall(_.isInstanceOf[Negation]) && secondCube.contains(manyPreds(39)) && secondCube.contains(manyPreds(38)) && ( ! bigIter.hasNext() ), "subsumed ranges of combinations are skipped at once")
+		
+		finish()
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import scala.collection.mutable.HashMap
+
+import common.Constants
+import common.LogicFormula
+import common.AtomicPredicate
+import common.Negation
+import common.FormulaUtils
+
+import j2bp.Configuration
+import j2bp.AbstractionContext
+import j2bp.StatementResolver
+
+
+/**
+ * Checks that a statement whose decision table differs from a resolved one only in names of variables gets the table from the cache without asking the solver (also in another method), and that the table gives the same results after renaming.
+ */
+object DecisionTableCacheTest extends UnitTestBase with StatementResolver
+{
+	def main(args : Array[String]) : Unit =
+	{
+		Configuration.init(false)
+		
+		val provider = new CountingSMTProvider()
+		
+		Configuration.smtProvider = provider
+		
+		val ctx = new AbstractionContext()
+		
+		ctx.initCurClass("Test")
+		ctx.initCurMethod("run", true)
+		ctx.setCurInsnIndex(0)
+		
+		val resdetPreds = List("= a x", "= x b", "= x c").map(pred)
+		
+		val table = resolveTable(ctx, pred("= p q"), resdetPreds, form("= a b"))
+		
+		check(provider.validityCalls.get() > 0, "the first table is computed by the solver")
+		
+		
+		// the same statement with other names of variables in another method
+		
+		provider.resetCounters()
+		
+		ctx.initCurMethod("other", true)
+		ctx.setCurInsnIndex(5)
+		
+		val renamedPreds = List("= d y", "= y e", "= y f").map(pred)
+		
+		val renamedTable = resolveTable(ctx, pred("= r s"), renamedPreds, form("= d e"))
+		
+		check(provider.validityCalls.get() == 0, "the renamed table is taken from the cache without queries")
+		
+		var sameResults = true
+		
+		for (mask <- 0 until (1 << resdetPreds.size))
+		{
+			if (getResult(table, createAssignment(resdetPreds, mask)) != getResult(renamedTable, createAssignment(renamedPreds, mask))) sameResults = false
+		}
+		
+		check(sameResults, "the cached table gives the same results for the renamed predicates")
+		
+		check(renamedTable.posResultCubes.forall(cube => cube.forall(lit => renamedPreds.contains(FormulaUtils.extractAtomicPredicateFromLiteral(lit)))), "the cached table is over the renamed predicates")
+		
+		
+		// a different weakest precondition is not matched
+		
+		resolveTable(ctx, pred("= r s"), renamedPreds, form("= e d"))
+		
+		check(provider.validityCalls.get() > 0, "the table for a different weakest precondition is computed by the solver")
+		
+		
+		// tables are dropped together with other caches
+		
+		provider.resetCounters()
+		
+		StatementResolver.clearDecisionTables()
+		
+		resolveTable(ctx, pred("= r s"), renamedPreds, form("= d e"))
+		
+		check(provider.validityCalls.get() > 0, "the table is computed again after the cache was cleared")
+		
+		finish()
+	}
+	
+	private def resolveTable(ctx : AbstractionContext, updatedPred : AtomicPredicate, resdetPreds : List[AtomicPredicate], posWP : LogicFormula) : StatementResolver.DecisionTable =
+	{
+		val updatedPred2PosWP = new HashMap[AtomicPredicate, LogicFormula]
+		val updatedPred2NegWP = new HashMap[AtomicPredicate, LogicFormula]
+		
+		updatedPred2PosWP.put(updatedPred, posWP)
+		updatedPred2NegWP.put(updatedPred, FormulaUtils.negate(posWP))
+		
+		return computeResolution(ctx, null, Set(updatedPred), resdetPreds.toSet, updatedPred2PosWP, updatedPred2NegWP).updatedPredTables.head
+	}
+	
+	private def pred(str : String) : AtomicPredicate =
+	{
+		return form(str).asInstanceOf[AtomicPredicate]
+	}
+	
+	private def createAssignment(preds : List[AtomicPredicate], mask : Int) : Set[LogicFormula] =
+	{
+		return preds.zipWithIndex.map(pi => if ((mask & (1 << pi._2)) != 0) pi._1 else new Negation(pi._1)).toSet[LogicFormula]
+	}
+	
+	/**
+	 * Returns whether the table says that the updated predicate is true and false for the given truth values of predicates.
+	 */
+	private def getResult(table : StatementResolver.DecisionTable, assignment : Set[LogicFormula]) : (Boolean, Boolean) =
+	{
+		def matches(cube : Set[LogicFormula]) : Boolean = (cube - Constants.TRUE_PRED).subsetOf(assignment)
+		
+		return (table.posResultCubes.exists(matches), table.negResultCubes.exists(matches))
+	}
+}
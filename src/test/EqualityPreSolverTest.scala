@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import common.LogicFormula
+
+import j2bp.Configuration
+import j2bp.EqualityPreSolver
+
+
+/**
+ * Checks answers of the congruence closure procedure, in particular that it never says that a valid query is not valid.
+ */
+object EqualityPreSolverTest extends UnitTestBase
+{
+	def main(args : Array[String]) : Unit =
+	{
+		// reserved functions of the container model include functions with boolean values
+		Configuration.init(true)
+		
+		val solver = new EqualityPreSolver()
+		
+		
+		check(solver.checkValidity(form("= h(f,a) h(f,b)"), Set(form("= a b"))) == Some(true), "equal arguments imply equal applications of a function")
+		
+		check(solver.checkValidity(form("= h(f,a) h(f,c)"), Set(form("= a b"), form("= b c"))) == Some(true), "congruence uses transitivity of equalities")
+		
+		check(solver.checkValidity(form("= a b"), Set(form("= h(f,a) h(f,b)"))) == Some(false), "equal applications do not imply equal arguments")
+		
+		
+		check(solver.checkValidity(form("!= x 2"), Set(form("= x 1"))) == Some(true), "different numerals have different values")
+		
+		check(solver.checkValidity(form("!= x y"), Set(form("= x 1"), form("= y 2"))) == Some(true), "variables equal to different numerals are different")
+		
+		check(solver.checkValidity(form("= y 1"), Set(form("= x 1"))) == Some(false), "unrelated variable can have any value")
+		
+		
+		check(solver.checkValidity(form("= x y"), Set(form("or (= x y) (= x z)"))) == None, "query with an ignored disjunctive hypothesis is not decided")
+		
+		check(solver.checkValidity(form("= x y"), Set(form("= a b"), form("or (= x y) (= x z)"))) == None, "ignored hypothesis is not decided even when the other literals have a model")
+		
+		
+		check(solver.checkValidity(form("= y z"), Set(form("= y (x + 1)"), form("= z (x + 1)"))) == Some(true), "the same arithmetic term has the same value")
+		
+		check(solver.checkValidity(form("= y x"), Set(form("= y (x + 1)"))) == None, "query over arithmetic terms is never said to be not valid")
+		
+		check(solver.checkValidity(form("!= y 3"), Set(form("= y (x + 1)"), form("= x 2"))) == None, "arithmetic is not evaluated")
+		
+		
+		// there are only two boolean values, so two of the three applications must be equal
+		
+		val boolForms = Set(form("!= mkeys(mks,m,a) mkeys(mks,m,b)"), form("!= mkeys(mks,m,b) mkeys(mks,m,c)"))
+		
+		check(solver.checkValidity(form("= mkeys(mks,m,a) mkeys(mks,m,c)"), boolForms) != Some(false), "disequalities between boolean terms are not treated as values of an infinite domain")
+		
+		check(solver.checkValidity(form("= mkeys(mks,m,a) mkeys(mks,m,b)"), Set(form("= a b"))) == Some(true), "congruence applies to boolean functions")
+		
+		finish()
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import scala.collection.mutable.HashMap
+
+import common.Constants
+import common.LogicFormula
+import common.AtomicPredicate
+import common.Negation
+import common.Conjunction
+import common.Disjunction
+import common.FormulaUtils
+
+import j2bp.Configuration
+import j2bp.AbstractionContext
+import j2bp.PredicateSemanticsModel
+import j2bp.StatementResolver
+
+
+/**
+ * Checks that the decision table combined from independent groups of result-determining predicates gives the same results as the table over all predicates, for all truth values of the predicates.
+ */
+object PartitionedDecisionTableTest extends UnitTestBase with StatementResolver
+{
+	def main(args : Array[String]) : Unit =
+	{
+		Configuration.init(false)
+		
+		val provider = new CountingSMTProvider()
+		
+		Configuration.smtProvider = provider
+		
+		val ctx = new AbstractionContext()
+		
+		ctx.initCurClass("Test")
+		ctx.initCurMethod("run", true)
+		ctx.setCurInsnIndex(0)
+		
+		
+		val groups = Configuration.predicateSemModel.getIndependentGroups(List(form("= 1 2"), form("= a x"), form("= c y"), form("= x b")), Set[LogicFormula]())
+		
+		check(groups == List(PredicateSemanticsModel.NO_GROUP, 0, 1, 0), "formula without symbols does not belong to any group")
+		
+		
+		val updatedPred = form("= p q").asInstanceOf[AtomicPredicate]
+		
+		val resdetPreds = List("= a x", "= x b", "= c y", "= y d").map(str => form(str).asInstanceOf[AtomicPredicate])
+		
+		val clauses = List(form("= a b"), form("= c d"))
+		
+		val posWP = new Conjunction(clauses)
+		
+		// the negative weakest precondition is not syntactically the negation of the positive one, so the table is computed over all predicates
+		val fullTable = resolveTable(ctx, updatedPred, resdetPreds, posWP, new Disjunction(clauses.map(cl => FormulaUtils.negate(cl))))
+		
+		val fullCalls = provider.validityCalls.get()
+		
+		provider.resetCounters()
+		
+		val partTable = resolveTable(ctx, updatedPred, resdetPreds, posWP, FormulaUtils.negate(posWP))
+		
+		val partCalls = provider.validityCalls.get()
+		
+		check(partCalls < fullCalls, "partitioned table needs fewer queries (" + partCalls + " instead of " + fullCalls + ")")
+		
+		var sameResults = true
+		
+		for (mask <- 0 until (1 << resdetPreds.size))
+		{
+			val assignment = resdetPreds.zipWithIndex.map(pi => if ((mask & (1 << pi._2)) != 0) pi._1 else new Negation(pi._1)).toSet[LogicFormula]
+			
+			if (getResult(fullTable, assignment) != getResult(partTable, assignment)) sameResults = false
+		}
+		
+		check(sameResults, "partitioned table gives the same results as the table over all predicates")
+		
+		check(getResult(partTable, resdetPreds.toSet[LogicFormula]) == (true, false), "updated predicate holds when both parts of the weakest precondition hold")
+		
+		finish()
+	}
+	
+	private def resolveTable(ctx : AbstractionContext, updatedPred : AtomicPredicate, resdetPreds : List[AtomicPredicate], posWP : LogicFormula, negWP : LogicFormula) : StatementResolver.DecisionTable =
+	{
+		val updatedPred2PosWP = new HashMap[AtomicPredicate, LogicFormula]
+		val updatedPred2NegWP = new HashMap[AtomicPredicate, LogicFormula]
+		
+		updatedPred2PosWP.put(updatedPred, posWP)
+		updatedPred2NegWP.put(updatedPred, negWP)
+		
+		return computeResolution(ctx, null, Set(updatedPred), resdetPreds.toSet, updatedPred2PosWP, updatedPred2NegWP).updatedPredTables.head
+	}
+	
+	/**
+	 * Returns whether the table says that the updated predicate is true and false for the given truth values of predicates.
+	 */
+	private def getResult(table : StatementResolver.DecisionTable, assignment : Set[LogicFormula]) : (Boolean, Boolean) =
+	{
+		def matches(cube : Set[LogicFormula]) : Boolean = (cube - Constants.TRUE_PRED).subsetOf(assignment)
+		
+		return (table.posResultCubes.exists(matches), table.negResultCubes.exists(matches))
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import java.io.File
+import java.io.FileOutputStream
+
+import util.PersistentResultCache
+
+
+/**
+ * Checks that results written into the cache file are loaded again by the next run, including files with duplicate records, an incomplete record at the end, and records evicted because of the limit.
+ */
+object PersistentResultCacheTest extends UnitTestBase
+{
+	def main(args : Array[String]) : Unit =
+	{
+		val cacheFile = File.createTempFile("queryresults", ".bin")
+		cacheFile.deleteOnExit()
+		
+		// the cache starts with an empty file
+		cacheFile.delete()
+		
+		val recordLength = PersistentResultCache.DIGEST_LENGTH + 1
+		
+		
+		val cache1 = new PersistentResultCache(cacheFile.getPath(), 10)
+		
+		cache1.put("query a", true)
+		cache1.put("query b", false)
+		cache1.put("query c", true)
+		
+		// the same key is not written again
+		cache1.put("query a", false)
+		
+		cache1.close()
+		
+		check(cacheFile.length() == 3 * recordLength, "each result is written once")
+		
+		val cache2 = new PersistentResultCache(cacheFile.getPath(), 10)
+		
+		check(cache2.size() == 3, "all results are loaded")
+		
+		check((cache2.get("query a") == Some(true)) && (cache2.get("query b") == Some(false)) && (cache2.get("query c") == Some(true)), "loaded results are the same as written results")
+		
+		check(cache2.get("query d") == None, "unknown query has no result")
+		
+		cache2.close()
+		
+		
+		// an interrupted run leaves an incomplete record at the end of the file
+		
+		val out = new FileOutputStream(cacheFile, true)
+		out.write(new Array[Byte](7))
+		out.close()
+		
+		val cache3 = new PersistentResultCache(cacheFile.getPath(), 10)
+		
+		check(cache3.size() == 3, "incomplete record at the end is ignored")
+		
+		cache3.put("query d", false)
+		
+		cache3.close()
+		
+		check(cacheFile.length() == 4 * recordLength, "incomplete record is removed from the file before new results are written")
+		
+		val cache4 = new PersistentResultCache(cacheFile.getPath(), 10)
+		
+		check((cache4.size() == 4) && (cache4.get("query d") == Some(false)) && (cache4.get("query a") == Some(true)), "results written after the incomplete record are loaded")
+		
+		cache4.close()
+		
+		
+		// with the limit of two entries, results of "query a" and "query c" are evicted from the memory, and their new results are written into the file again
+		
+		val cache5 = new PersistentResultCache(cacheFile.getPath(), 2)
+		
+		check(cache5.size() == 2, "only the most recent results are kept within the limit")
+		
+		check(cache5.get("query a") == None, "the oldest result is evicted")
+		
+		cache5.close()
+		
+		check(cacheFile.length() == 2 * recordLength, "file is compacted when results were evicted at loading")
+		
+		val cache6 = new PersistentResultCache(cacheFile.getPath(), 2)
+		
+		cache6.put("query a", false)
+		cache6.put("query c", false)
+		
+		cache6.close()
+		
+		check(cacheFile.length() == 4 * recordLength, "new result of an evicted key is appended to the file")
+		
+		val cache7 = new PersistentResultCache(cacheFile.getPath(), 10)
+		
+		check((cache7.size() == 3) && (cache7.get("query d") == Some(false)), "duplicate records are loaded as one entry")
+		
+		check((cache7.get("query a") == Some(false)) && (cache7.get("query c") == Some(false)), "the newest record of a duplicate key wins")
+		
+		cache7.close()
+		
+		check(cacheFile.length() == 3 * recordLength, "file with duplicate records is compacted when it is loaded")
+		
+		finish()
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import scala.collection.mutable.ListBuffer
+
+import common.LogicFormula
+
+import j2bp.AbstractionContext
+import j2bp.PooledSMTProvider
+
+
+/**
+ * Checks that the pool shares results of queries among its workers, also when the same query is built again from new formula objects, and that it distributes batches of queries among workers.
+ */
+object PooledSMTProviderTest extends UnitTestBase
+{
+	def main(args : Array[String]) : Unit =
+	{
+		val workers = new ListBuffer[CountingSMTProvider]()
+		
+		val pool = new PooledSMTProvider(2, () => { val w = new CountingSMTProvider(); workers += w; w })
+		
+		val ctx = new AbstractionContext()
+		
+		def totalCalls() : Int = workers.map(_.validityCalls.get()).sum
+		
+		
+		val res1 = pool.checkValidity(ctx, form("= x y"), Set(form("= x z"), form("= z y")))
+		
+		check(res1 && (totalCalls() == 1), "valid query is decided by a worker")
+		
+		// equal formulas in a different order
+		val res2 = pool.checkValidity(ctx, form("= x y"), Set(form("= z y"), form("= x z")))
+		
+		check(res2 && (totalCalls() == 1), "equal query made of new formulas is answered from the cache")
+		
+		val res3 = pool.checkValidity(ctx, form("= x y"), Set(form("= x z")))
+		
+		check(( ! res3 ) && (totalCalls() == 2), "different query is sent to a worker")
+		
+		// background formulas of a context are a part of the query
+		pool.openQueryContext(ctx, Set(form("= z y")))
+		
+		val res4 = pool.checkValidityInContext(ctx, form("= x y"), Set(form("= x z")))
+		
+		check(res4 && (totalCalls() == 2), "query in a context with the same formulas as a previous query is answered from the cache")
+		
+		val res5 = pool.checkValidityInContext(ctx, form("= x w"), Set(form("= x z")))
+		
+		pool.closeQueryContext()
+		
+		check(( ! res5 ) && (totalCalls() == 3), "new query in a context is sent to a worker")
+		
+		// batches go to workers as batches (except for cached queries)
+		val batchResults = pool.checkValidityBatch(ctx, List( (form("= a b"), Set(form("= a c"), form("= c b"))), (form("= x y"), Set(form("= x z"), form("= z y"))), (form("= a d"), Set(form("= a c"))) ))
+		
+		val batchCalls = workers.map(_.batchCalls.get()).sum
+		
+		check(batchResults == List(true, true, false), "results of the batch are returned in the order of queries")
+		
+		check((totalCalls() == 5) && (batchCalls == 1), "uncached queries of a small batch are sent to one worker in a single batch")
+		
+		val bigBatch = (1 to 8).toList.map(i => (form("= a" + i + " b"), Set(form("= a" + i + " c"), form("= c b"))))
+		
+		val bigBatchResults = pool.checkValidityBatch(ctx, bigBatch)
+		
+		check(bigBatchResults.forall(r => r) && (workers.forall(_.batchCalls.get() >= 1)) && (workers.map(_.batchCalls.get()).sum == 3), "large batch is split among all workers")
+		
+		// asynchronous queries belong to the context that is open when they are submitted
+		pool.openQueryContext(ctx, Set(form("= z y")))
+		
+		val asyncResults = List( (form("= x y"), Set(form("= x z"))), (form("= r y"), Set(form("= r z"))), (form("= r w"), Set(form("= r z"))) ).map(q => pool.checkValidityInContextAsync(ctx, q._1, q._2))
+		
+		pool.closeQueryContext()
+		
+		check(asyncResults.map(_.get()) == List(true, true, false), "asynchronous queries are checked in the context open at submission")
+		
+		pool.shutdown()
+		
+		finish()
+	}
+}
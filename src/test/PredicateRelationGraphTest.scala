@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import common.LogicFormula
+import common.AtomicPredicate
+import common.Negation
+
+import j2bp.Configuration
+import j2bp.AbstractionContext
+import j2bp.PredicateRelationGraph
+
+
+/**
+ * Checks that tuples of conflicting literals joined from pairs of predicates are the same as tuples returned by the predicate semantics model for the whole set, and that each pair is examined only once.
+ * Infeasible pairs of literals must be checked by the solver in one batch, reused by later statements, and derived through implications without asking the solver.
+ */
+object PredicateRelationGraphTest extends UnitTestBase
+{
+	def main(args : Array[String]) : Unit =
+	{
+		Configuration.init(false)
+		
+		val semModel = Configuration.predicateSemModel
+		
+		val preds = List("= x 1", "= x 2", "= a b", "< a b", "= c d").map(str => form(str).asInstanceOf[AtomicPredicate])
+		
+		val predSet = preds.toSet
+		
+		val relations = new PredicateRelationGraph("Test", "run")
+		
+		
+		var sameTuples = true
+		
+		for (pred <- preds)
+		{
+			if (relations.getConflictingLiterals(pred, predSet) != semModel.getConflictingLiterals(pred, predSet, "Test", "run")) sameTuples = false
+		}
+		
+		check(sameTuples, "tuples joined from pairs are the same as tuples for the whole set")
+		
+		check(relations.getConflictingLiterals(preds(0), predSet).nonEmpty && relations.getConflictingLiterals(preds(2), predSet).nonEmpty, "conflicts over the same variable and over the same operands are found")
+		
+		val pairsCount = relations.getPairsCount()
+		
+		check(pairsCount == preds.size * (preds.size - 1), "each ordered pair of different predicates is examined")
+		
+		
+		// statements with a subset of the predicates reuse the pairs
+		
+		val subset = Set(preds(0), preds(1), preds(4))
+		
+		check(relations.getConflictingLiterals(preds(0), subset) == semModel.getConflictingLiterals(preds(0), subset, "Test", "run"), "tuples for a subset are the same as tuples returned by the model")
+		
+		check(relations.getPairsCount() == pairsCount, "pairs are not examined again for a subset")
+		
+		
+		// infeasible pairs checked by the solver
+		
+		val provider = new CountingSMTProvider()
+		
+		Configuration.smtProvider = provider
+		
+		val ctx = new AbstractionContext()
+		
+		ctx.initCurClass("Test")
+		ctx.initCurMethod("run", true)
+		ctx.setCurInsnIndex(0)
+		
+		val xPreds = List("= x 1", "= x 2", "= x y", "= z w").map(str => form(str).asInstanceOf[AtomicPredicate])
+		
+		val solverRelations = new PredicateRelationGraph("Test", "run")
+		
+		val infeasiblePairs = solverRelations.getInfeasiblePairs(ctx, xPreds)
+		
+		check(infeasiblePairs == Set(Set[LogicFormula](xPreds(0), xPreds(1))), "the only infeasible pair is found")
+		
+		// four pairs of literals for each of the three connected pairs of predicates
+		check((solverRelations.getQueriedPairsCount() == 12) && (provider.batchCalls.get() == 1), "connected pairs are checked in one batch (" + solverRelations.getQueriedPairsCount() + " pairs)")
+		
+		provider.resetCounters()
+		
+		val subsetPairs = solverRelations.getInfeasiblePairs(ctx, List(xPreds(0), xPreds(1)))
+		
+		check((solverRelations.getInfeasiblePairs(ctx, xPreds) == infeasiblePairs) && (subsetPairs == infeasiblePairs) && (provider.validityCalls.get() == 0), "relations are reused by later statements without queries")
+		
+		
+		// implications "a = b => b = c" and "b = c => c = d" are given as if the predicate semantics model found them, so "a = b => c = d" follows
+		
+		val chainPreds = List("= a b", "= b c", "= c d").map(str => form(str).asInstanceOf[AtomicPredicate])
+		
+		val chainRelations = new PredicateRelationGraph("Test", "run")
+		
+		chainRelations.addConflictingPair(chainPreds(0), new Negation(chainPreds(1)))
+		chainRelations.addConflictingPair(chainPreds(1), new Negation(chainPreds(2)))
+		
+		val chainPairs = chainRelations.getInfeasiblePairs(ctx, chainPreds)
+		
+		check(chainPairs.contains(Set[LogicFormula](chainPreds(0), new Negation(chainPreds(2)))), "infeasible pair is derived through implications")
+		
+		check(chainRelations.getQueriedPairsCount() == 9, "known and derived pairs are not checked by the solver (" + chainRelations.getQueriedPairsCount() + " pairs)")
+		
+		finish()
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import scala.collection.mutable.HashMap
+
+import common.Constants
+import common.LogicFormula
+import common.AtomicPredicate
+
+import j2bp.Configuration
+import j2bp.AbstractionContext
+import j2bp.StatementResolver
+
+
+/**
+ * Checks that slicing keeps exactly the result-determining predicates connected with weakest preconditions, also through temporary supporting formulas, that logic variables connect all predicates, and that the new value is still precise when all predicates are sliced away.
+ */
+object PredicateSlicingTest extends UnitTestBase with StatementResolver
+{
+	def main(args : Array[String]) : Unit =
+	{
+		Configuration.init(false)
+		
+		Configuration.smtProvider = new CountingSMTProvider()
+		
+		val semModel = Configuration.predicateSemModel
+		
+		val candidates = List("= a x", "= x y", "= c d").map(pred)
+		
+		
+		check(semModel.getInfluencingPredicates(Set(form("= a b")), candidates.toSet, Set[LogicFormula]()) == Set(pred("= a x"), pred("= x y")), "predicates connected directly or through other predicates are kept")
+		
+		check(semModel.getInfluencingPredicates(Set(form("= a b")), candidates.toSet, Set(form("= b c"))) == candidates.toSet, "connecting formula joins predicates with the weakest precondition")
+		
+		check(semModel.getInfluencingPredicates(Set(form("= fla b")), candidates.toSet, Set[LogicFormula]()) == candidates.toSet, "logic variable in the weakest precondition connects all predicates")
+		
+		check(semModel.getInfluencingPredicates(Set(form("= a b")), candidates.toSet, Set(form("= b flk"))) == candidates.toSet, "logic variable in a connecting formula connects all predicates")
+		
+		
+		// the updated predicate is resolved over the predicates that remain after slicing
+		
+		val ctx = new AbstractionContext()
+		
+		ctx.initCurClass("Test")
+		ctx.initCurMethod("run", true)
+		ctx.setCurInsnIndex(0)
+		
+		val updatedPred = pred("= p q")
+		
+		val updatedPred2PosWP = new HashMap[AtomicPredicate, LogicFormula]
+		val updatedPred2NegWP = new HashMap[AtomicPredicate, LogicFormula]
+		
+		updatedPred2PosWP.put(updatedPred, form("= a b"))
+		updatedPred2NegWP.put(updatedPred, form("!= a b"))
+		
+		val resolution = computeResolution(ctx, null, Set(updatedPred), (candidates :+ pred("= x b")).toSet, updatedPred2PosWP, updatedPred2NegWP)
+		
+		check(resolution.resdetPredSet == Set(pred("= a x"), pred("= x y"), pred("= x b")), "unconnected predicate is not used for resolution")
+		
+		check(resolution.updatedPredTables.head.posResultCubes.contains(Set(pred("= a x"), pred("= x b"))), "sliced table keeps the cube that implies the weakest precondition")
+		
+		
+		// a weakest precondition without symbols is not connected with any predicate, but the new value is still precise
+		
+		updatedPred2PosWP.put(updatedPred, form("= 1 0"))
+		updatedPred2NegWP.put(updatedPred, form("!= 1 0"))
+		
+		val constResolution = computeResolution(ctx, null, Set(updatedPred), candidates.toSet, updatedPred2PosWP, updatedPred2NegWP)
+		
+		check(constResolution.resdetPredSet.isEmpty, "all predicates are sliced away for a constant weakest precondition")
+		
+		check(constResolution.updatedPredTables.head.negResultCubes == Set(Set[LogicFormula](Constants.TRUE_PRED)), "updated predicate is false for the empty cube")
+		
+		check(constResolution.updatedPredTables.head.posResultCubes.isEmpty, "updated predicate is never true for a constant false weakest precondition")
+		
+		finish()
+	}
+	
+	private def pred(str : String) : AtomicPredicate =
+	{
+		return form(str).asInstanceOf[AtomicPredicate]
+	}
+}
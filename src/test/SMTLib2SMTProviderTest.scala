@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import java.io.File
+
+import scala.io.Source
+
+import j2bp.Configuration
+import j2bp.AbstractionContext
+import j2bp.SMTLib2SMTProvider
+import j2bp.SMTSolverConfig
+
+
+/**
+ * Checks the protocol between the SMT-LIB2 provider and the solver process (sessions, scopes of queries and contexts, batches, and recovery from errors) using a stub solver.
+ */
+object SMTLib2SMTProviderTest extends UnitTestBase
+{
+	def main(args : Array[String]) : Unit =
+	{
+		Configuration.init(false)
+		
+		val logFile = File.createTempFile("stubsmt", ".log")
+		logFile.deleteOnExit()
+		
+		val stubCommand = System.getProperty("java.home") + "/bin/java -cp " + System.getProperty("java.class.path") + " test.StubSMTSolver " + logFile.getPath()
+		
+		val provider = new SMTLib2SMTProvider(new SMTSolverConfig(stubCommand, true, false, null))
+		
+		val ctx = new AbstractionContext()
+		
+		
+		// "<" is not decided by the equality pre-solver, so all queries go to the stub (they differ in constants, because variables are renamed in keys of the cache)
+		
+		check(provider.checkValidity(ctx, form("< stubvalid 1"), Set(form("< x 1"))), "query is valid when the solver answers unsat")
+		
+		check( ! provider.checkValidity(ctx, form("< y 11"), Set(form("< x 1"))), "query is not valid when the solver answers sat")
+		
+		check(countCommands(logFile, "start") == 1, "queries are sent to one solver session")
+		
+		check(isBalanced(logFile), "each query is enclosed in its own scope")
+		
+		
+		provider.openQueryContext(ctx, Set(form("< z 2")))
+		
+		check(provider.checkValidityInContext(ctx, form("< stubvalid 2"), Set(form("< x 1"))), "query in a context is valid when the solver answers unsat")
+		
+		check(provider.checkValidityInContextBatch(ctx, List( (form("< stubvalid 3"), Set(form("< x 1"))), (form("< y 13"), Set(form("< x 1"))) )) == List(true, false), "answers to the batch are returned in the order of queries")
+		
+		provider.closeQueryContext()
+		
+		check(isBalanced(logFile), "scope of the context is closed")
+		
+		check(countCommands(logFile, "(check-sat)") == 5, "each query is checked exactly once")
+		
+		
+		check( ! provider.checkValidity(ctx, form("< stuberror 21"), Set(form("< x 1"))), "query is not valid when the solver reports an error")
+		
+		check(provider.checkValidity(ctx, form("< stubvalid 22"), Set(form("< x 1"))), "next query is answered by a new session")
+		
+		check(countCommands(logFile, "start") >= 2, "session is started again after the error")
+		
+		provider.shutdown()
+		
+		finish()
+	}
+	
+	private def readLog(logFile : File) : List[String] =
+	{
+		val src = Source.fromFile(logFile)
+		
+		try
+		{
+			return src.getLines().toList
+		}
+		finally
+		{
+			src.close()
+		}
+	}
+	
+	private def countCommands(logFile : File, cmd : String) : Int =
+	{
+		return readLog(logFile).count(_ == cmd)
+	}
+	
+	/**
+	 * Returns true if every "push" in the log of the current session is followed by "pop".
+	 */
+	private def isBalanced(logFile : File) : Boolean =
+	{
+		val sessionLog = readLog(logFile).reverse.takeWhile(_ != "start")
+		
+		return sessionLog.count(_.startsWith("(push")) == sessionLog.count(_.startsWith("(pop"))
+	}
+}
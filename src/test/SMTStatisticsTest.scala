@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import java.util.concurrent.CountDownLatch
+
+import common.LogicFormula
+
+import j2bp.AbstractionContext
+import j2bp.PooledSMTProvider
+
+
+/**
+ * Checks that queries made concurrently by several threads are attributed to the location of the thread that made them, also when workers of the pool process them.
+ */
+object SMTStatisticsTest extends UnitTestBase
+{
+	def main(args : Array[String]) : Unit =
+	{
+		val pool = new PooledSMTProvider(2, () => new CountingSMTProvider())
+		
+		val ctx = new AbstractionContext()
+		
+		val stats = pool.getStatistics()
+		
+		val start = new CountDownLatch(1)
+		
+		// each thread makes single queries (processed by threads of the pool) and a batch (split among workers) with its own constants
+		def makeQueries(prefix : String, count : Int, cartesian : Boolean) : Thread =
+		{
+			val t = new Thread(new Runnable()
+			{
+				def run() =
+				{
+					stats.setCurrentLocation("Test", prefix, 0, "p")
+					
+					if (cartesian) stats.markCurrentLocationCartesian()
+					
+					start.await()
+					
+					val futures = (1 to count).toList.map(i => pool.checkValidityAsync(ctx, form("= " + prefix + i + " b"), Set(form("= " + prefix + i + " c"))))
+					
+					for (f <- futures) f.get()
+					
+					pool.checkValidityBatch(ctx, (1 to count).toList.map(i => (form("= " + prefix + i + " d"), Set(form("= " + prefix + i + " e")))))
+				}
+			})
+			
+			t.start()
+			
+			return t
+		}
+		
+		val threadA = makeQueries("a", 6, true)
+		val threadB = makeQueries("b", 10, false)
+		
+		start.countDown()
+		
+		threadA.join()
+		threadB.join()
+		
+		check(stats.getSolverRunsByMode() == (12L, 20L), "queries of each thread are attributed to its own location")
+		
+		check(stats.getCurrentLocation() != ("Test", "a", 0, "p"), "locations of other threads do not change the location of the main thread")
+		
+		stats.setCurrentLocation("Test", "main", 0, "p")
+		
+		stats.runInLocation(("Test", "task", 1, "q"), () => check(stats.getCurrentLocation() == ("Test", "task", 1, "q"), "task runs with the given location"))
+		
+		check(stats.getCurrentLocation() == ("Test", "main", 0, "p"), "previous location is restored after the task")
+		
+		pool.shutdown()
+		
+		finish()
+	}
+}
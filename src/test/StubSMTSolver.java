@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Minimal process that reads SMT-LIB2 commands (one per line) from its standard input, so that the protocol of script-based providers can be tested without a real solver.
+ * The answer to "check-sat" is "unsat" if some assertion in the current scopes contains the name "stubvalid", and "sat" otherwise.
+ * Any command that contains the name "stuberror" makes the stub print an error and terminate.
+ * All received commands are recorded into the log file given as the first argument.
+ * It is written in Java, so that it can be started without the Scala library.
+ */
+public class StubSMTSolver
+{
+	public static void main(String[] args) throws IOException
+	{
+		FileWriter log = new FileWriter(args[0], true);
+		
+		BufferedReader input = new BufferedReader(new InputStreamReader(System.in));
+		
+		// assertions of each open scope (the innermost scope is the last)
+		List<List<String>> scopes = new ArrayList<List<String>>();
+		scopes.add(new ArrayList<String>());
+		
+		logLine(log, "start");
+		
+		String line = input.readLine();
+		
+		while (line != null)
+		{
+			String cmd = line.trim();
+			
+			if (cmd.length() > 0) logLine(log, cmd);
+			
+			if (cmd.contains("stuberror")) exitWithError("stub failure");
+			
+			if (cmd.startsWith("(push"))
+			{
+				scopes.add(new ArrayList<String>());
+			}
+			else if (cmd.startsWith("(pop"))
+			{
+				if (scopes.size() == 1) exitWithError("pop without push");
+				
+				scopes.remove(scopes.size() - 1);
+			}
+			else if (cmd.startsWith("(assert"))
+			{
+				scopes.get(scopes.size() - 1).add(cmd);
+			}
+			else if (cmd.startsWith("(check-sat"))
+			{
+				boolean valid = false;
+				
+				for (List<String> scope : scopes)
+				{
+					for (String assertion : scope)
+					{
+						if (assertion.contains("stubvalid")) valid = true;
+					}
+				}
+				
+				System.out.println(valid ? "unsat" : "sat");
+			}
+			else if (cmd.startsWith("(get-value") || cmd.startsWith("(get-unsat-core"))
+			{
+				System.out.println("()");
+			}
+			else if (cmd.startsWith("(echo "))
+			{
+				System.out.println(cmd.substring("(echo ".length(), cmd.length() - 1));
+			}
+			
+			System.out.flush();
+			
+			line = input.readLine();
+		}
+		
+		log.close();
+	}
+	
+	private static void logLine(FileWriter log, String text) throws IOException
+	{
+		log.write(text + "\n");
+		log.flush();
+	}
+	
+	private static void exitWithError(String msg)
+	{
+		System.out.println("(error \"" + msg + "\")");
+		System.out.flush();
+		System.exit(1);
+	}
+}
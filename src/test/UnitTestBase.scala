@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test
+
+import common.LogicFormula
+import common.FormulaUtils
+
+
+/**
+ * Common base of unit tests for the abstraction (each test is an object with the "main" method that exits with the status 1 when some check fails).
+ */
+class UnitTestBase
+{
+	private var failedChecks = 0
+	
+	
+	protected def check(cond : Boolean, descr : String) =
+	{
+		if (cond) 
+		{
+			println("[TEST] passed: " + descr)
+		}
+		else
+		{
+			println("[TEST] FAILED: " + descr)
+			
+			failedChecks += 1
+		}
+	}
+	
+	protected def form(formStr : String) : LogicFormula =
+	{
+		return FormulaUtils.parseFromStr(formStr).get
+	}
+	
+	protected def finish() =
+	{
+		if (failedChecks > 0) println("[TEST] number of failed checks = " + failedChecks)
+		
+		System.exit(if (failedChecks > 0) 1 else 0)
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package util
+
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+
+/**
+ * In-memory cache with a limited number of entries, where the least recently used entry is evicted when the limit is exceeded.
+ * Hits, misses and evictions are counted together for all caches with the same name (e.g., caches of all solver workers).
+ * All methods can be called from multiple threads.
+ */
+class BoundedCache[K, V] (val name : String, val maxEntries : Int)
+{
+	private val counters = BoundedCache.getCounters(name)
+
+	// the map is ordered by the time of last access
+	private val key2value = new java.util.LinkedHashMap[K, V](16, 0.75f, true)
+	{
+		override def removeEldestEntry(eldest : java.util.Map.Entry[K, V]) : Boolean =
+		{
+			if (size() <= maxEntries) return false
+
+			counters.evictions.incrementAndGet()
+
+			return true
+		}
+	}
+
+
+	def get(key : K) : Option[V] = synchronized
+	{
+		if (key2value.containsKey(key))
+		{
+			counters.hits.incrementAndGet()
+
+			return Some(key2value.get(key))
+		}
+
+		counters.misses.incrementAndGet()
+
+		return None
+	}
+
+	def put(key : K, value : V) = synchronized
+	{
+		key2value.put(key, value)
+	}
+
+	def size() : Int = synchronized
+	{
+		key2value.size()
+	}
+
+	def clear() = synchronized
+	{
+		key2value.clear()
+	}
+}
+
+object BoundedCache
+{
+	class Counters
+	{
+		val hits = new AtomicLong(0)
+		val misses = new AtomicLong(0)
+		val evictions = new AtomicLong(0)
+	}
+
+
+	private val name2counters = new ConcurrentHashMap[String, Counters]()
+
+	private val digestCreator = new ThreadLocal[MessageDigest]()
+	{
+		override def initialValue() : MessageDigest = MessageDigest.getInstance("SHA-1")
+	}
+
+
+	def getCounters(name : String) : Counters =
+	{
+		name2counters.putIfAbsent(name, new Counters())
+
+		return name2counters.get(name)
+	}
+
+	/**
+	 * Returns names of all caches and their counters sorted by the name.
+	 */
+	def getAllCounters() : List[(String, Counters)] =
+	{
+		var result = List[(String, Counters)]()
+
+		val it = name2counters.entrySet().iterator()
+
+		while (it.hasNext())
+		{
+			val entry = it.next()
+
+			result = (entry.getKey(), entry.getValue()) :: result
+		}
+
+		return result.sortBy(_._1)
+	}
+
+	/**
+	 * Returns the SHA-1 digest of the given key (with one character for each byte), which can be used as a compact key instead of a very long string.
+	 */
+	def digestKey(key : String) : String =
+	{
+		return new String(digestCreator.get().digest(key.getBytes("UTF-8")), "ISO-8859-1")
+	}
+}
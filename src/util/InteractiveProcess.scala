@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package util
+
+import java.io.BufferedReader
+import java.io.InputStreamReader
+import java.io.OutputStreamWriter
+import java.io.Writer
+import java.io.IOException
+
+
+/**
+ * Long-running external command that reads requests from its stdin and prints answers to its stdout.
+ * The caller marks the end of each answer by a line that the command is asked to print (e.g., by an "echo" command).
+ */
+class InteractiveProcess (val cmd : String)
+{
+	private val process : java.lang.Process = Process.startCmd(cmd)
+
+	private val procIn : Writer = new OutputStreamWriter(process.getOutputStream())
+	private val procOut : BufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()))
+
+	private val errOutput = new StringBuffer()
+
+	private var alive = true
+	
+	@volatile private var timedOut = false
+
+
+	// the error output must be consumed all the time, otherwise the process may get blocked
+	private val errPump = new Thread()
+	{
+		override def run() =
+		{
+			val errReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))
+
+			var line = readLineSafely(errReader)
+
+			while (line != null)
+			{
+				errOutput.append(line).append("\n")
+				line = readLineSafely(errReader)
+			}
+		}
+	}
+	errPump.setDaemon(true)
+	errPump.start()
+
+
+	/**
+	 * Sends the input to the process and returns everything it prints before the line equal to "endMarker" (possibly enclosed in quotes, as some commands print echoed strings that way).
+	 * Returns null when the process died (e.g., because of an error in the input) and cannot be used anymore.
+	 * The process is killed when the answer does not come within timeoutMS milliseconds (0 means no limit).
+	 */
+	def exchange(input : String, endMarker : String, timeoutMS : Long = 0) : String =
+	{
+		if ( ! alive ) return null
+		
+		val killTask = new java.util.TimerTask()
+		{
+			override def run() = 
+			{
+				timedOut = true
+				process.destroy()
+			}
+		}
+		
+		if (timeoutMS > 0) Process.watchdog.schedule(killTask, timeoutMS)
+		
+		try
+		{
+			return exchangeWithoutLimit(input, endMarker)
+		}
+		finally
+		{
+			killTask.cancel()
+		}
+	}
+	
+	private def exchangeWithoutLimit(input : String, endMarker : String) : String =
+	{
+		try
+		{
+			procIn.write(input)
+			procIn.flush()
+		}
+		catch
+		{
+			case ex : IOException =>
+			{
+				alive = false
+				return null
+			}
+		}
+
+		val output = new StringBuilder()
+
+		val quotedEndMarker = "\"" + endMarker + "\""
+
+		var line = readLineSafely(procOut)
+
+		while ((line != null) && (line != endMarker) && (line != quotedEndMarker))
+		{
+			output.append(line).append("\n")
+			line = readLineSafely(procOut)
+		}
+
+		if (line == null)
+		{
+			// end of the output stream -> the process has terminated
+			alive = false
+			return null
+		}
+
+		return output.toString()
+	}
+
+	def isAlive() : Boolean =
+	{
+		return alive
+	}
+	
+	/**
+	 * Returns true if the process was killed because some answer did not come in time.
+	 */
+	def hasTimedOut() : Boolean =
+	{
+		return timedOut
+	}
+
+	def getErrorOutput() : String =
+	{
+		return errOutput.toString()
+	}
+
+	def stop() =
+	{
+		alive = false
+
+		try
+		{
+			procIn.close()
+		}
+		catch
+		{
+			case ex : IOException => ()
+		}
+
+		process.destroy()
+	}
+
+	private def readLineSafely(reader : BufferedReader) : String =
+	{
+		try
+		{
+			return reader.readLine()
+		}
+		catch
+		{
+			case ex : IOException => return null
+		}
+	}
+}
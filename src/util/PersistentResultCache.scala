@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package util
+
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.EOFException
+import java.io.IOException
+import java.security.MessageDigest
+
+import scala.collection.mutable.LinkedHashMap
+
+
+/**
+ * Boolean results stored in an append-only file and keyed by SHA-1 digests of (possibly very long) string keys.
+ * Each record in the file consists of the 20-byte digest and one byte with the result.
+ * When the number of results exceeds the limit, the oldest results are evicted; the file is compacted when it is loaded next time.
+ * All methods can be called from multiple threads.
+ */
+class PersistentResultCache (val fileName : String, val maxEntries : Int)
+{
+	// digests are stored as strings with one character for each byte
+	private val digest2result = new LinkedHashMap[String, Boolean]()
+	
+	private val md = MessageDigest.getInstance("SHA-1")
+	
+	private var fileOut : BufferedOutputStream = null
+	
+	load()
+	
+	
+	def get(key : String) : Option[Boolean] = synchronized
+	{
+		digest2result.get(computeDigest(key))
+	}
+	
+	def put(key : String, result : Boolean) = synchronized
+	{
+		val digest = computeDigest(key)
+		
+		if ( ! digest2result.contains(digest) )
+		{
+			digest2result.put(digest, result)
+			
+			if (digest2result.size > maxEntries) digest2result.remove(digest2result.head._1)
+			
+			if (fileOut != null)
+			{
+				try
+				{
+					writeRecord(fileOut, digest, result)
+				}
+				catch
+				{
+					case ex : IOException => 
+					{
+						println("[WARNING] cannot write to the persistent cache file " + fileName + ": " + ex.getMessage())
+						closeFile()
+					}
+				}
+			}
+		}
+	}
+	
+	def size() : Int = synchronized
+	{
+		digest2result.size
+	}
+	
+	def close() = synchronized
+	{
+		closeFile()
+	}
+	
+	
+	private def load() =
+	{
+		val cacheFile = new File(fileName)
+		
+		var numRecords = 0
+		
+		if (cacheFile.exists())
+		{
+			val fileIn = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))
+			
+			val recordBytes = new Array[Byte](PersistentResultCache.DIGEST_LENGTH + 1)
+			
+			try
+			{
+				while (true)
+				{
+					fileIn.readFully(recordBytes)
+					
+					val digest = new String(recordBytes, 0, PersistentResultCache.DIGEST_LENGTH, "ISO-8859-1")
+					
+					// later records are more recent
+					digest2result.remove(digest)
+					digest2result.put(digest, recordBytes(PersistentResultCache.DIGEST_LENGTH) != 0)
+					
+					numRecords += 1
+				}
+			}
+			catch
+			{
+				// end of file or an incomplete record at the end (written by an interrupted run)
+				case ex : EOFException => ()
+				
+				case ex : IOException => println("[WARNING] cannot read the persistent cache file " + fileName + ": " + ex.getMessage())
+			}
+			finally
+			{
+				fileIn.close()
+			}
+		}
+		
+		while (digest2result.size > maxEntries) digest2result.remove(digest2result.head._1)
+		
+		try
+		{
+			if ((numRecords > digest2result.size) || (cacheFile.length() > numRecords * (PersistentResultCache.DIGEST_LENGTH + 1)))
+			{
+				// rewrite the file without evicted and duplicate records
+				
+				fileOut = new BufferedOutputStream(new FileOutputStream(cacheFile, false))
+				
+				for ( (digest, result) <- digest2result ) writeRecord(fileOut, digest, result)
+			}
+			else
+			{
+				fileOut = new BufferedOutputStream(new FileOutputStream(cacheFile, true))
+			}
+		}
+		catch
+		{
+			case ex : IOException => 
+			{
+				println("[WARNING] cannot write to the persistent cache file " + fileName + ": " + ex.getMessage())
+				closeFile()
+			}
+		}
+	}
+	
+	private def writeRecord(out : BufferedOutputStream, digest : String, result : Boolean) =
+	{
+		out.write(digest.getBytes("ISO-8859-1"))
+		out.write(if (result) 1 else 0)
+	}
+	
+	private def closeFile() =
+	{
+		if (fileOut != null)
+		{
+			try
+			{
+				fileOut.close()
+			}
+			catch
+			{
+				case ex : IOException => ()
+			}
+			
+			fileOut = null
+		}
+	}
+	
+	private def computeDigest(key : String) : String =
+	{
+		return new String(md.digest(key.getBytes("UTF-8")), "ISO-8859-1")
+	}
+}
+
+object PersistentResultCache
+{
+	val DIGEST_LENGTH = 20
+}
@@ -23,8 +23,15 @@ import scala.collection.mutable.ArrayBuffer
 
 object Process 
 {
-	/** Run the external command cmd, taking input from stdin, sending output and error to stdout and stderr. */
-	def runCmd(cmd : String, stdin : OutputStream => Unit = none, stdout : InputStream => Unit = ignore, stderr : InputStream => Unit = ignore) : Int = 
+	/** Exit status of a command that was killed because it did not finish in time. */
+	val TIMEOUT_STATUS = -1
+	
+	/** Kills processes that run out of time. */
+	val watchdog = new java.util.Timer("process-watchdog", true)
+	
+	
+	/** Run the external command cmd, taking input from stdin, sending output and error to stdout and stderr. The command is killed after timeoutMS milliseconds (0 means no limit). */
+	def runCmd(cmd : String, stdin : OutputStream => Unit = none, stdout : InputStream => Unit = ignore, stderr : InputStream => Unit = ignore, timeoutMS : Long = 0) : Int = 
 	{
 		val cmdline = Array("/bin/bash", "-c", cmd)
 		
@@ -52,7 +59,24 @@ object Process
 		}
 		terr.start()
 		
-		val res = process.waitFor()
+		var killed = false
+		
+		val killTask = new java.util.TimerTask()
+		{
+			override def run() = 
+			{
+				killed = true
+				process.destroy()
+			}
+		}
+		
+		if (timeoutMS > 0) watchdog.schedule(killTask, timeoutMS)
+		
+		var res = process.waitFor()
+		
+		killTask.cancel()
+		
+		if (killed) res = TIMEOUT_STATUS
 		
 		tin.join()
 		tout.join()
@@ -65,13 +89,21 @@ object Process
 		return res
 	}
 	
+	/** Start the external command cmd without waiting for it, so that the caller can talk to it over its stdin and stdout. */
+	def startCmd(cmd : String) : java.lang.Process =
+	{
+		val cmdline = Array("/bin/bash", "-c", cmd)
+
+		return Runtime.getRuntime.exec(cmdline)
+	}
+
 	/** Execute a process, capturing the return code as an Int, and the stdout and stderr as Strings. */
-	def runCmdWithStrOutputs(cmd : String, stdin : OutputStream => Unit = none) : (Int, String, String) = 
+	def runCmdWithStrOutputs(cmd : String, stdin : OutputStream => Unit = none, timeoutMS : Long = 0) : (Int, String, String) = 
 	{
 		val stdoutbuff = new ArrayBuffer[Byte]()
 		val stderrbuff = new ArrayBuffer[Byte]()
 		
-		val res = runCmd(cmd, stdin, stdoutbuff, stderrbuff)
+		val res = runCmd(cmd, stdin, stdoutbuff, stderrbuff, timeoutMS)
 		
 		return (res, new String(stdoutbuff.toArray), new String(stderrbuff.toArray))
 	}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2015, Charles University in Prague.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package util
+
+import scala.collection.mutable.Map
+import scala.collection.mutable.HashMap
+
+
+/**
+ * Disjoint sets of elements, where each set is identified by its representative element.
+ * Elements are added when they are used for the first time.
+ */
+class UnionFind[T]
+{
+	private val elem2parent : Map[T, T] = new HashMap
+	
+	
+	def find(elem : T) : T =
+	{
+		var root = elem2parent.getOrElseUpdate(elem, elem)
+		
+		while (elem2parent(root) != root) root = elem2parent(root)
+		
+		// path compression
+		
+		var cur = elem
+		
+		while (cur != root)
+		{
+			val next = elem2parent(cur)
+			elem2parent.put(cur, root)
+			cur = next
+		}
+		
+		return root
+	}
+	
+	def union(elem1 : T, elem2 : T) =
+	{
+		val root1 = find(elem1)
+		val root2 = find(elem2)
+		
+		if (root1 != root2) elem2parent.put(root1, root2)
+	}
+}